@@ -25,10 +25,16 @@
 
 package org.openjdk.nashorn.api.scripting;
 
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
 import jdk.dynalink.beans.StaticClass;
 import jdk.dynalink.linker.LinkerServices;
+import org.openjdk.nashorn.internal.objects.NativeJSON;
 import org.openjdk.nashorn.internal.runtime.Context;
+import org.openjdk.nashorn.internal.runtime.JSONFunctions;
 import org.openjdk.nashorn.internal.runtime.ScriptFunction;
 import org.openjdk.nashorn.internal.runtime.ScriptObject;
 import org.openjdk.nashorn.internal.runtime.ScriptRuntime;
@@ -55,6 +61,83 @@ public final class ScriptUtils {
         return ScriptRuntime.parse(code, name, includeLoc);
     }
 
+    /**
+     * Parses JSON text read from a {@link java.io.Reader}, an {@link java.io.InputStream} or a
+     * {@link java.nio.ByteBuffer} without reading all of it into a string first. Bytes are
+     * decoded as UTF-8. This is the same as calling {@code JSON.parse} with the given input.
+     *
+     * @param input the reader, input stream or byte buffer to parse, or any other object to parse as string
+     * @return the value represented by the JSON text
+     * @throws java.io.UncheckedIOException if the text can't be read
+     * @throws IllegalStateException if there is no current script global, as when not called from script code
+     */
+    public static Object parseJSON(final Object input) {
+        checkGlobal();
+        return JSONFunctions.parse(input, ScriptRuntime.UNDEFINED);
+    }
+
+    /**
+     * Parses JSON text like {@code JSON.parse}, but creates the objects and arrays nested in
+     * object properties only when the properties are first read. Reading a few properties of
+     * a large document does not create the rest of it. The whole text is validated before this
+     * method returns, and is retained as long as any of its values has not been read.
+     *
+     * @param text the JSON text to parse
+     * @return the value represented by the JSON text
+     * @throws IllegalStateException if there is no current script global, as when not called from script code
+     */
+    public static Object parseJSONLazily(final Object text) {
+        checkGlobal();
+        return JSONFunctions.parseLazily(text);
+    }
+
+    /**
+     * Converts a tree of Java maps and lists, such as a parsed JSON document, to script objects and
+     * arrays without a round trip through JSON text. Like {@link #parseJSONLazily(Object)}, maps and
+     * lists that are values of object properties are converted only when the properties are first
+     * read. Keys are converted to strings, numbers to script numbers and character sequences to
+     * strings. The maps and lists must not be changed until their values have been read.
+     *
+     * @param value the Java map, list or value to convert
+     * @return the script value
+     * @throws IllegalStateException if there is no current script global, as when not called from script code
+     */
+    public static Object convertJSONLazily(final Object value) {
+        checkGlobal();
+        return JSONFunctions.convertLazily(value);
+    }
+
+    /**
+     * Writes the JSON text of a value to a {@link java.io.Writer} or an {@link java.io.OutputStream}
+     * without building all of it as a string first. Bytes are encoded as UTF-8. This is the same as
+     * calling {@code JSON.stringify} with the given value and writing the result. The output is
+     * flushed but not closed.
+     *
+     * @param value the value to write as JSON text
+     * @param output the writer or output stream to write to
+     * @throws IllegalArgumentException if output is neither a writer nor an output stream
+     * @throws java.io.UncheckedIOException if the text can't be written
+     * @throws IllegalStateException if there is no current script global, as when not called from script code
+     */
+    public static void stringifyJSON(final Object value, final Object output) {
+        checkGlobal();
+        final Writer writer;
+        if (output instanceof Writer) {
+            writer = (Writer)output;
+        } else if (output instanceof OutputStream) {
+            writer = new OutputStreamWriter((OutputStream)output, StandardCharsets.UTF_8);
+        } else {
+            throw new IllegalArgumentException();
+        }
+        NativeJSON.stringifyTo(unwrap(value), ScriptRuntime.UNDEFINED, ScriptRuntime.UNDEFINED, writer);
+    }
+
+    private static void checkGlobal() {
+        if (Context.getGlobal() == null) {
+            throw new IllegalStateException("No current script global; JSON methods of ScriptUtils must be called from script code");
+        }
+    }
+
     /**
      * Method which converts javascript types to java types for the
      * String.format method (jrunscript function sprintf).
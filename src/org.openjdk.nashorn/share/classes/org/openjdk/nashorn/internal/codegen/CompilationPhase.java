@@ -28,12 +28,15 @@ package org.openjdk.nashorn.internal.codegen;
 import static org.openjdk.nashorn.internal.runtime.logging.DebugLogger.quote;
 
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 import org.openjdk.nashorn.internal.codegen.Compiler.CompilationPhases;
 import org.openjdk.nashorn.internal.ir.Block;
 import org.openjdk.nashorn.internal.ir.FunctionNode;
@@ -437,29 +440,38 @@ abstract class CompilationPhase {
                 throw new AssertionError("Failed generating bytecode for " + fn.getSourceName() + ":" + codegen.getLastLineNumber(), e);
             }
 
+            final List<CompileUnit> usedUnits = new ArrayList<>();
             for (final CompileUnit compileUnit : compiler.getCompileUnits()) {
-                final ClassEmitter classEmitter = compileUnit.getClassEmitter();
-                classEmitter.end();
+                compileUnit.getClassEmitter().end();
 
                 if (!compileUnit.isUsed()) {
                     compiler.getLogger().fine("Skipping unused compile unit ", compileUnit);
                     continue;
                 }
+                usedUnits.add(compileUnit);
+            }
 
-                final byte[] bytecode = classEmitter.toByteArray();
+            // Class files of the compile units are independent of each other, so they can be produced and
+            // verified in parallel.
+            final byte[][] classBytes = new byte[usedUnits.size()][];
+            forEachClass(senv, classBytes.length, i -> {
+                final byte[] bytecode = usedUnits.get(i).getClassEmitter().toByteArray();
                 assert bytecode != null;
 
-                final String className = compileUnit.getUnitClassName();
-                compiler.addClass(className, bytecode); //classes are only added to the bytecode map if compile unit is used
-
-                CompileUnit.increaseEmitCount();
-
                 // should we verify the generated code?
                 if (senv._verify_code) {
                     compiler.getCodeInstaller().verify(bytecode);
                 }
+                classBytes[i] = bytecode;
+            });
 
-                DumpBytecode.dumpBytecode(senv, compiler.getLogger(), bytecode, className);
+            for (int i = 0; i < classBytes.length; i++) {
+                final String className = usedUnits.get(i).getUnitClassName();
+                compiler.addClass(className, classBytes[i]); //classes are only added to the bytecode map if compile unit is used
+
+                CompileUnit.increaseEmitCount();
+
+                DumpBytecode.dumpBytecode(senv, compiler.getLogger(), classBytes[i], className);
             }
 
             return newFunctionNode;
@@ -485,28 +497,26 @@ abstract class CompilationPhase {
 
             final Map<String, Class<?>> installedClasses = new LinkedHashMap<>();
 
-            boolean first = true;
-            Class<?> rootClass = null;
             long length = 0L;
 
             final CodeInstaller origCodeInstaller = compiler.getCodeInstaller();
             final Map<String, byte[]> bytecode = compiler.getBytecode();
             final CodeInstaller codeInstaller = bytecode.size() > 1 ? origCodeInstaller.getMultiClassCodeInstaller() : origCodeInstaller;
 
-            for (final Entry<String, byte[]> entry : bytecode.entrySet()) {
-                final String className = entry.getKey();
-                //assert !first || className.equals(compiler.getFirstCompileUnit().getUnitClassName()) : "first=" + first + " className=" + className + " != " + compiler.getFirstCompileUnit().getUnitClassName();
-                final byte[] code = entry.getValue();
-                length += code.length;
+            // Defining a class doesn't resolve the classes it references, so the classes can be installed in
+            // any order. The first one is the root class.
+            final String[] classNames = bytecode.keySet().toArray(new String[0]);
+            final Class<?>[] classes = new Class<?>[classNames.length];
+            forEachClass(compiler.getScriptEnvironment(), classNames.length,
+                    i -> classes[i] = codeInstaller.install(classNames[i], bytecode.get(classNames[i])));
 
-                final Class<?> clazz = codeInstaller.install(className, code);
-                if (first) {
-                    rootClass = clazz;
-                    first = false;
-                }
-                installedClasses.put(className, clazz);
+            for (int i = 0; i < classNames.length; i++) {
+                length += bytecode.get(classNames[i]).length;
+                installedClasses.put(classNames[i], classes[i]);
             }
 
+            final Class<?> rootClass = classes.length > 0 ? classes[0] : null;
+
             if (rootClass == null) {
                 throw new CompilationException("Internal compiler error: root class not found!");
             }
@@ -618,6 +628,24 @@ abstract class CompilationPhase {
         return (FunctionNode) fn.accept(visitor);
     }
 
+    /**
+     * Perform an action for the classes of a compilation, in parallel on the common fork/join pool if
+     * {@code --parallel-class-generation} is set and there is more than one class.
+     *
+     * @param senv   script environment
+     * @param count  number of classes
+     * @param action action to perform with the index of each class
+     */
+    private static void forEachClass(final ScriptEnvironment senv, final int count, final IntConsumer action) {
+        if (senv._parallel_class_generation && count > 1) {
+            IntStream.range(0, count).parallel().forEach(action);
+        } else {
+            for (int i = 0; i < count; i++) {
+                action.accept(i);
+            }
+        }
+    }
+
     private static CompileUnit createNewCompileUnit(final Compiler compiler, final CompilationPhases phases) {
         final StringBuilder sb = new StringBuilder(compiler.nextCompileUnitName());
         if (phases.isRestOfCompilation()) {
@@ -727,7 +727,7 @@ public final class Compiler implements Loggable {
      * @param functionNode function node
      */
     public void persistClassInfo(final String cacheKey, final FunctionNode functionNode) {
-        if (cacheKey != null && env._persistent_cache) {
+        if (cacheKey != null && installer.canStoreScripts()) {
             // If this is an on-demand compilation create a function initializer for the function being compiled.
             // Otherwise use function initializer map generated by codegen.
             final Map<Integer, FunctionInitializer> initializers = new HashMap<>();
@@ -200,7 +200,8 @@ final class FindScopeDepths extends SimpleNodeVisitor implements Loggable {
         final RecompilableScriptFunctionData data = new RecompilableScriptFunctionData(
                 newFunctionNode,
                 compiler.getCodeInstaller(),
-                ObjectClassGenerator.createAllocationStrategy(newFunctionNode.getThisProperties(), compiler.getContext().useDualFields()),
+                ObjectClassGenerator.createAllocationStrategy(newFunctionNode.getThisProperties(),
+                        compiler.getContext().useDualFields(), compiler.getContext().useAdaptiveFields()),
                 nestedFunctions,
                 externalSymbolDepths.get(fnId),
                 internalSymbols.get(fnId));
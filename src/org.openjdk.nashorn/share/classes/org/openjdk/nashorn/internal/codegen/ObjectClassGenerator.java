@@ -793,7 +793,7 @@ public final class ObjectClassGenerator implements Loggable {
      * @param count the field count
      * @return the padded field count
      */
-    static int getPaddedFieldCount(final int count) {
+    public static int getPaddedFieldCount(final int count) {
         return count / FIELD_PADDING * FIELD_PADDING + FIELD_PADDING;
     }
 
@@ -805,10 +805,12 @@ public final class ObjectClassGenerator implements Loggable {
      * Creates the allocator class name and property map for a constructor function with the specified
      * number of "this" properties that it initializes.
      * @param thisProperties number of properties assigned to "this"
+     * @param dualFields whether to use dual field representation
+     * @param adaptiveFields whether to start with dual fields and switch to object fields if properties are mostly non-numeric
      * @return the allocation strategy
      */
-    static AllocationStrategy createAllocationStrategy(final int thisProperties, final boolean dualFields) {
+    static AllocationStrategy createAllocationStrategy(final int thisProperties, final boolean dualFields, final boolean adaptiveFields) {
         final int paddedFieldCount = getPaddedFieldCount(thisProperties);
-        return new AllocationStrategy(paddedFieldCount, dualFields);
+        return new AllocationStrategy(paddedFieldCount, dualFields, adaptiveFields);
     }
 }
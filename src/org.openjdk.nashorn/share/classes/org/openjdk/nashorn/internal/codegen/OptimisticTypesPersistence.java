@@ -29,9 +29,7 @@ import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
@@ -39,19 +37,31 @@ import java.io.StringWriter;
 import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.AccessController;
 import java.security.MessageDigest;
 import java.security.PrivilegedAction;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
@@ -78,18 +88,24 @@ import org.openjdk.nashorn.internal.runtime.options.Options;
  * property is specified with a value greater than 0, it is enabled and operates in an operating-system
  * specific per-user cache directory. You can override the directory by specifying it in the
  * {@code nashorn.typeInfo.cacheDir} directory. The maximum number of files is softly enforced by a task that
- * cleans up the directory periodically on a separate thread. It is run after some delay after a new file is
- * added to the cache. The default delay is 20 seconds, and can be set using the
+ * cleans up the least recently used files periodically on a separate thread. It is run after some delay after
+ * a new file is added to the cache. The default delay is 20 seconds, and can be set using the
  * {@code nashorn.typeInfo.cleanupDelaySeconds} system property. You can also specify the word
  * {@code unlimited} as the value for {@code nashorn.typeInfo.maxFiles} in which case the type info cache is
  * allowed to grow without limits.
+ * </p><p>
+ * Type information of all functions of a source is kept in a single file named after the digest of the
+ * source. The file is read the first time type information for any function of the source is loaded, and kept
+ * in memory for the most recently used sources. It is written asynchronously on the cleanup thread, batching
+ * together all updates made within the delay specified by the {@code nashorn.typeInfo.writeDelaySeconds}
+ * system property (1 second by default). The file is rewritten under an exclusive file lock, merging in any
+ * updates another process may have written in the meantime. Updates that fail to be written are retried.
  * </p>
  */
 public final class OptimisticTypesPersistence {
     // Default is 0, for disabling the feature when not specified. A reasonable default when enabled is
-    // dependent on the application; setting it to e.g. 20000 is probably good enough for most uses and will
-    // usually cap the cache directory to about 80MB presuming a 4kB filesystem allocation unit. There is one
-    // file per JavaScript function.
+    // dependent on the application; setting it to e.g. 20000 is probably good enough for most uses. There is
+    // one file per JavaScript source.
     private static final int DEFAULT_MAX_FILES = 0;
     // Constants for signifying that the cache should not be limited
     private static final int UNLIMITED_FILES = -1;
@@ -99,6 +115,16 @@ public final class OptimisticTypesPersistence {
     private static final int DEFAULT_CLEANUP_DELAY = 20;
     private static final int CLEANUP_DELAY = Math.max(0, Options.getIntProperty(
             "nashorn.typeInfo.cleanupDelaySeconds", DEFAULT_CLEANUP_DELAY));
+    // Number of seconds to wait between updating type info and writing it to the cache
+    private static final int DEFAULT_WRITE_DELAY = 1;
+    private static final int WRITE_DELAY = Math.max(0, Options.getIntProperty(
+            "nashorn.typeInfo.writeDelaySeconds", DEFAULT_WRITE_DELAY));
+    // Magic number and version of the type info file format
+    private static final int FILE_MAGIC = 0x4e544950; // "NTIP"
+    private static final int FILE_FORMAT_VERSION = 1;
+    private static final String FILE_SUFFIX = ".types";
+    // Maximum number of sources whose type info is kept in memory
+    private static final int MAX_SOURCE_TYPE_INFOS = 256;
     // The name of the default subdirectory within the system cache directory where we store type info.
     private static final String DEFAULT_CACHE_SUBDIR_NAME = "com.oracle.java.NashornTypeInfo";
     // The directory where we cache type info
@@ -106,19 +132,31 @@ public final class OptimisticTypesPersistence {
     private static final File cacheDir = createCacheDir(baseCacheDir);
     // In-process locks to make sure we don't have a cross-thread race condition manipulating any file.
     private static final Object[] locks = cacheDir == null ? null : createLockArray();
+    // Type info with updates not yet written to the cache.
+    private static final Set<SourceTypeInfo> dirtyTypeInfos = ConcurrentHashMap.newKeySet();
+    // Type info of the most recently used sources, keyed by their type info file. Type info with updates not
+    // yet written is not evicted, so that it is not read back from an outdated file.
+    private static final Map<File, SourceTypeInfo> sourceTypeInfos = new LinkedHashMap<File, SourceTypeInfo>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<File, SourceTypeInfo> eldest) {
+            return size() > MAX_SOURCE_TYPE_INFOS && !dirtyTypeInfos.contains(eldest.getValue());
+        }
+    };
     // Only report one read/write error every minute
     private static final long ERROR_REPORT_THRESHOLD = 60000L;
 
     private static volatile long lastReportedError;
-    private static final AtomicBoolean scheduledCleanup;
+    private static final AtomicBoolean scheduledCleanup = new AtomicBoolean();
+    private static final AtomicBoolean scheduledWrite = new AtomicBoolean();
     private static final Timer cleanupTimer;
     static {
-        if (baseCacheDir == null || MAX_FILES == UNLIMITED_FILES) {
-            scheduledCleanup = null;
+        if (cacheDir == null) {
             cleanupTimer = null;
         } else {
-            scheduledCleanup = new AtomicBoolean();
             cleanupTimer = new Timer(true);
+            addShutdownHook();
         }
     }
     /**
@@ -134,63 +172,48 @@ public final class OptimisticTypesPersistence {
         if(cacheDir == null) {
             return null;
         }
-        final StringBuilder b = new StringBuilder(48);
-        // Base64-encode the digest of the source, and append the function id.
-        b.append(source.getDigest()).append('-').append(functionId);
-        // Finally, if this is a parameter-type specialized version of the function, add the parameter types
-        // to the file name.
+        final StringBuilder b = new StringBuilder(16);
+        // The function id, and if this is a parameter-type specialized version of the function, the parameter
+        // types identify the function within the type info file of the source.
+        b.append(functionId);
         if(paramTypes != null && paramTypes.length > 0) {
             b.append('-');
             for(final Type t: paramTypes) {
                 b.append(Type.getShortSignatureDescriptor(t));
             }
         }
-        return new LocationDescriptor(new File(cacheDir, b.toString()));
+        // Base64-encoded digest of the source is the file name.
+        return new LocationDescriptor(new File(cacheDir, source.getDigest() + FILE_SUFFIX), b.toString());
     }
 
     private static final class LocationDescriptor {
         private final File file;
+        private final String functionKey;
 
-        LocationDescriptor(final File file) {
+        LocationDescriptor(final File file, final String functionKey) {
             this.file = file;
+            this.functionKey = functionKey;
         }
     }
 
 
     /**
-     * Stores the map of optimistic types for a given function.
+     * Stores the map of optimistic types for a given function. The types are written to the cache
+     * asynchronously.
      * @param locationDescriptor the opaque persistence location descriptor, retrieved by calling
      * {@link #getLocationDescriptor(Source, int, Type[])}.
      * @param optimisticTypes the map of optimistic types.
      */
-    @SuppressWarnings("resource")
     public static void store(final Object locationDescriptor, final Map<Integer, Type> optimisticTypes) {
         if(locationDescriptor == null || optimisticTypes.isEmpty()) {
             return;
         }
-        final File file = ((LocationDescriptor)locationDescriptor).file;
-
-        AccessController.doPrivileged(new PrivilegedAction<Void>() {
-            @Override
-            public Void run() {
-                synchronized(getFileLock(file)) {
-                    if (!file.exists()) {
-                        // If the file already exists, we aren't increasing the number of cached files, so
-                        // don't schedule cleanup.
-                        scheduleCleanup();
-                    }
-                    try (final FileOutputStream out = new FileOutputStream(file)) {
-                        out.getChannel().lock(); // lock exclusive
-                        final DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(out));
-                        Type.writeTypeMap(optimisticTypes, dout);
-                        dout.flush();
-                    } catch(final Exception e) {
-                        reportError("write", file, e);
-                    }
-                }
-                return null;
-            }
-        });
+        final LocationDescriptor ld = (LocationDescriptor)locationDescriptor;
+        final SourceTypeInfo typeInfo = getSourceTypeInfo(ld.file);
+        if (typeInfo.put(ld.functionKey, optimisticTypes)) {
+            dirtyTypeInfos.add(typeInfo);
+            scheduleWrite();
+        }
     }
 
     /**
@@ -199,32 +222,260 @@ public final class OptimisticTypesPersistence {
      * {@link #getLocationDescriptor(Source, int, Type[])}.
      * @return the map of optimistic types, or null if persisted type information could not be retrieved.
      */
-    @SuppressWarnings("resource")
     public static Map<Integer, Type> load(final Object locationDescriptor) {
         if (locationDescriptor == null) {
             return null;
         }
-        final File file = ((LocationDescriptor)locationDescriptor).file;
-        return AccessController.doPrivileged(new PrivilegedAction<Map<Integer, Type>>() {
-            @Override
-            public Map<Integer, Type> run() {
-                try {
-                    if(!file.isFile()) {
-                        return null;
+        final LocationDescriptor ld = (LocationDescriptor)locationDescriptor;
+        return getSourceTypeInfo(ld.file).get(ld.functionKey);
+    }
+
+    private static SourceTypeInfo getSourceTypeInfo(final File file) {
+        synchronized (sourceTypeInfos) {
+            return sourceTypeInfos.computeIfAbsent(file, SourceTypeInfo::new);
+        }
+    }
+
+    /**
+     * Type info of all functions of a source. It is read from its file the first time it is accessed.
+     */
+    private static final class SourceTypeInfo {
+        private final File file;
+        // function key to program point types; null until read from the file
+        private Map<String, Map<Integer, Type>> functionTypes;
+        // keys of functions updated since the last write
+        private final Set<String> updatedKeys = new HashSet<>();
+
+        SourceTypeInfo(final File file) {
+            this.file = file;
+        }
+
+        synchronized Map<Integer, Type> get(final String functionKey) {
+            ensureRead();
+            final Map<Integer, Type> types = functionTypes.get(functionKey);
+            // callers add to the map they get, so they must get a copy
+            return types == null ? null : new TreeMap<>(types);
+        }
+
+        synchronized boolean put(final String functionKey, final Map<Integer, Type> types) {
+            ensureRead();
+            final Map<Integer, Type> copy = new TreeMap<>(types);
+            if (copy.equals(functionTypes.get(functionKey))) {
+                return false;
+            }
+            functionTypes.put(functionKey, copy);
+            updatedKeys.add(functionKey);
+            return true;
+        }
+
+        private void ensureRead() {
+            if (functionTypes == null) {
+                functionTypes = AccessController.doPrivileged((PrivilegedAction<Map<String, Map<Integer, Type>>>) () -> {
+                    final Map<String, Map<Integer, Type>> read = readFile();
+                    if (!read.isEmpty()) {
+                        // Mark the file as recently used, so cleanup removes least recently used files first.
+                        file.setLastModified(System.currentTimeMillis());
                     }
-                    synchronized(getFileLock(file)) {
-                        try (final FileInputStream in = new FileInputStream(file)) {
-                            in.getChannel().lock(0, Long.MAX_VALUE, true); // lock shared
-                            final DataInputStream din = new DataInputStream(new BufferedInputStream(in));
-                            return Type.readTypeMap(din);
+                    return read;
+                });
+            }
+        }
+
+        // Called on the cleanup thread. Returns false if the updates could not be written.
+        synchronized boolean write() {
+            if (updatedKeys.isEmpty()) {
+                return true;
+            }
+            return AccessController.doPrivileged((PrivilegedAction<Boolean>) () -> {
+                final boolean isNewFile = !file.exists();
+                boolean written = false;
+                synchronized (getFileLock(file)) {
+                    try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+                        // Hold an exclusive lock while merging, so that concurrent processes don't overwrite each
+                        // other's updates.
+                        channel.lock();
+                        // Merge with what other processes may have written since we read the file.
+                        final Map<String, Map<Integer, Type>> merged = readTypeInfo(channel);
+                        for (final String key : updatedKeys) {
+                            merged.put(key, functionTypes.get(key));
                         }
+                        channel.truncate(0).position(0);
+                        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+                        writeTypeInfo(merged, out);
+                        out.flush();
+                        functionTypes = merged;
+                        updatedKeys.clear();
+                        written = true;
+                    } catch (final Exception e) {
+                        reportError("write", file, e);
+                    }
+                }
+                if (isNewFile) {
+                    // If the file already existed, we aren't increasing the number of cached files, so
+                    // don't schedule cleanup.
+                    scheduleCleanup();
+                }
+                return written;
+            });
+        }
+
+        private Map<String, Map<Integer, Type>> readFile() {
+            if (file.isFile()) {
+                synchronized (getFileLock(file)) {
+                    try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                        channel.lock(0, Long.MAX_VALUE, true); // lock shared
+                        return readTypeInfo(channel);
+                    } catch (final Exception e) {
+                        reportError("read", file, e);
                     }
-                } catch (final Exception e) {
-                    reportError("read", file, e);
-                    return null;
                 }
             }
-        });
+            return new HashMap<>();
+        }
+
+        private Map<String, Map<Integer, Type>> readTypeInfo(final FileChannel channel) throws IOException {
+            if (channel.size() == 0) {
+                return new HashMap<>();
+            }
+            // Not closed, as that would close the channel
+            return OptimisticTypesPersistence.readTypeInfo(new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel))));
+        }
+    }
+
+    /**
+     * Writes the type info of a source. The format is the magic number and format version, followed by the
+     * number of functions, and for each function its key, the number of program points, and for each program
+     * point the difference to the previous program point and the type character. Counts and differences are
+     * written as variable length integers.
+     */
+    private static void writeTypeInfo(final Map<String, Map<Integer, Type>> functionTypes, final DataOutputStream out) throws IOException {
+        out.writeInt(FILE_MAGIC);
+        out.writeByte(FILE_FORMAT_VERSION);
+        writeVarInt(functionTypes.size(), out);
+        for (final Map.Entry<String, Map<Integer, Type>> entry : functionTypes.entrySet()) {
+            out.writeUTF(entry.getKey());
+            final Map<Integer, Type> types = entry.getValue();
+            writeVarInt(types.size(), out);
+            int previous = 0;
+            // maps are TreeMaps, so program points are ascending
+            for (final Map.Entry<Integer, Type> typeEntry : types.entrySet()) {
+                final int programPoint = typeEntry.getKey();
+                writeVarInt(programPoint - previous, out);
+                previous = programPoint;
+                final Type type = typeEntry.getValue();
+                if (type == Type.OBJECT) {
+                    out.writeByte('L');
+                } else if (type == Type.NUMBER) {
+                    out.writeByte('D');
+                } else if (type == Type.LONG) {
+                    out.writeByte('J');
+                } else {
+                    throw new AssertionError();
+                }
+            }
+        }
+    }
+
+    private static Map<String, Map<Integer, Type>> readTypeInfo(final DataInputStream in) throws IOException {
+        final Map<String, Map<Integer, Type>> functionTypes = new HashMap<>();
+        if (in.readInt() != FILE_MAGIC || in.readByte() != FILE_FORMAT_VERSION) {
+            // unknown format, it will be overwritten
+            return functionTypes;
+        }
+        final int functionCount = readVarInt(in);
+        for (int i = 0; i < functionCount; i++) {
+            final String key = in.readUTF();
+            final int typeCount = readVarInt(in);
+            final Map<Integer, Type> types = new TreeMap<>();
+            int programPoint = 0;
+            for (int j = 0; j < typeCount; j++) {
+                programPoint += readVarInt(in);
+                final Type type;
+                switch (in.readByte()) {
+                    case 'L': type = Type.OBJECT; break;
+                    case 'D': type = Type.NUMBER; break;
+                    case 'J': type = Type.LONG; break;
+                    default: continue;
+                }
+                types.put(programPoint, type);
+            }
+            functionTypes.put(key, types);
+        }
+        return functionTypes;
+    }
+
+    private static void writeVarInt(final int value, final DataOutputStream out) throws IOException {
+        int v = value;
+        while ((v & ~0x7f) != 0) {
+            out.writeByte((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarInt(final DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    private static void scheduleWrite() {
+        if (scheduledWrite.compareAndSet(false, true)) {
+            cleanupTimer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    scheduledWrite.set(false);
+                    writeDirtyTypeInfos();
+                }
+            }, TimeUnit.SECONDS.toMillis(WRITE_DELAY));
+        }
+    }
+
+    private static void writeDirtyTypeInfos() {
+        final List<SourceTypeInfo> failed = new ArrayList<>();
+        for (final Iterator<SourceTypeInfo> it = dirtyTypeInfos.iterator(); it.hasNext(); ) {
+            final SourceTypeInfo typeInfo = it.next();
+            it.remove();
+            if (!typeInfo.write()) {
+                failed.add(typeInfo);
+            }
+        }
+        if (!failed.isEmpty()) {
+            // Retry with the next write.
+            dirtyTypeInfos.addAll(failed);
+            scheduleWrite();
+        }
+    }
+
+    private static Object[] createLockArray() {
+        final Object[] lockArray = new Object[Runtime.getRuntime().availableProcessors() * 2];
+        for (int i = 0; i < lockArray.length; ++i) {
+            lockArray[i] = new Object();
+        }
+        return lockArray;
+    }
+
+    // File locks are held by the JVM, so threads of this process must not lock the same file concurrently.
+    private static Object getFileLock(final File file) {
+        return locks[(file.hashCode() & Integer.MAX_VALUE) % locks.length];
+    }
+
+    private static void addShutdownHook() {
+        // Write pending updates when the JVM exits, as the timer thread is a daemon thread.
+        try {
+            AccessController.doPrivileged((PrivilegedAction<Void>) () -> {
+                Runtime.getRuntime().addShutdownHook(new Thread(OptimisticTypesPersistence::writeDirtyTypeInfos, "Nashorn type info writer"));
+                return null;
+            });
+        } catch (final SecurityException e) {
+            // Updates made shortly before exit may be lost.
+        }
     }
 
     private static void reportError(final String msg, final File file, final Exception e) {
@@ -437,18 +688,6 @@ public final class OptimisticTypesPersistence {
         return false;
     }
 
-    private static Object[] createLockArray() {
-        final Object[] lockArray = new Object[Runtime.getRuntime().availableProcessors() * 2];
-        for (int i = 0; i < lockArray.length; ++i) {
-            lockArray[i] = new Object();
-        }
-        return lockArray;
-    }
-
-    private static Object getFileLock(final File file) {
-        return locks[(file.hashCode() & Integer.MAX_VALUE) % locks.length];
-    }
-
     private static DebugLogger getLogger() {
         try {
             return Context.getContext().getLogger(RecompilableScriptFunctionData.class);
@@ -44,6 +44,7 @@ import org.openjdk.nashorn.internal.objects.NativeReferenceError;
 import org.openjdk.nashorn.internal.runtime.ECMAException;
 import org.openjdk.nashorn.internal.runtime.FindProperty;
 import org.openjdk.nashorn.internal.runtime.JSType;
+import org.openjdk.nashorn.internal.runtime.LazySpillProperty;
 import org.openjdk.nashorn.internal.runtime.Property;
 import org.openjdk.nashorn.internal.runtime.RecompilableScriptFunctionData;
 import org.openjdk.nashorn.internal.runtime.ScriptFunction;
@@ -129,8 +130,9 @@ final class TypeEvaluator {
         }
 
         final ScriptObject owner = find.getOwner();
-        if (property.hasGetterFunction(owner)) {
+        if (property.hasGetterFunction(owner) || property instanceof LazySpillProperty) {
             // Can have side effects, so we can't safely evaluate it; since !propertyClass.isPrimitive(), it's Object.
+            // Reading a lazy property may create its value, which must not be done just to compile code.
             return Type.OBJECT;
         }
 
@@ -191,8 +193,8 @@ final class TypeEvaluator {
         }
         final Property     property = find.getProperty();
         final ScriptObject owner    = find.getOwner();
-        if (property.hasGetterFunction(owner)) {
-            // Possible side effects; can't evaluate safely
+        if (property.hasGetterFunction(owner) || property instanceof LazySpillProperty) {
+            // Possible side effects, or creation of a lazy value; can't evaluate safely
             return null;
         }
         try {
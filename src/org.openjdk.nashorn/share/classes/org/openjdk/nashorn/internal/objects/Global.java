@@ -96,6 +96,9 @@ public final class Global extends Scope {
 
     private static final String PACKAGE_PREFIX = "org.openjdk.nashorn.internal.objects.";
 
+    // No-arg constructors of nasgen generated built-in classes, keyed by class name
+    private static final Map<String, MethodHandle> builtinFactories = new ConcurrentHashMap<>();
+
     private InvokeByName TO_STRING;
     private InvokeByName VALUE_OF;
 
@@ -1092,6 +1095,9 @@ public final class Global extends Scope {
     // ES6 global lexical scope.
     private final LexicalScope lexicalScope;
 
+    // Factory for linking the properties of this global as constant method handles.
+    private final GlobalConstants globalConstants;
+
     // Switchpoint for non-constant global callsites in the presence of ES6 lexical scope.
     private SwitchPoint lexicalScopeSwitchPoint;
 
@@ -1164,6 +1170,7 @@ public final class Global extends Scope {
         super(checkAndGetMap(context));
         this.context = context;
         this.lexicalScope = isES6() ? new LexicalScope(this) : null;
+        this.globalConstants = new GlobalConstants(context);
     }
 
     /**
@@ -2405,6 +2412,14 @@ public final class Global extends Scope {
         return lexicalScope;
     }
 
+    /**
+     * Return the factory for constant method handles for the properties of this global.
+     * @return the global constants of this global.
+     */
+    public final GlobalConstants getGlobalConstants() {
+        return globalConstants;
+    }
+
     @Override
     public void addBoundProperties(final ScriptObject source, final org.openjdk.nashorn.internal.runtime.Property[] properties) {
         PropertyMap ownMap = getMap();
@@ -2872,8 +2887,7 @@ public final class Global extends Scope {
             sb.append(name);
             sb.append("$Constructor");
 
-            final Class<?> funcClass = Class.forName(sb.toString());
-            final T res = clazz.cast(funcClass.getDeclaredConstructor().newInstance());
+            final T res = clazz.cast(newBuiltinInstance(sb.toString()));
 
             if (res instanceof ScriptFunction) {
                 // All global constructor prototypes are not-writable,
@@ -2903,8 +2917,7 @@ public final class Global extends Scope {
             // Assuming class name pattern for JS prototypes
             final String className = PACKAGE_PREFIX + name + "$Prototype";
 
-            final Class<?> funcClass = Class.forName(className);
-            final ScriptObject res = (ScriptObject) funcClass.getDeclaredConstructor().newInstance();
+            final ScriptObject res = (ScriptObject) newBuiltinInstance(className);
 
             res.setIsBuiltin();
             res.setInitialProto(prototype);
@@ -2918,6 +2931,29 @@ public final class Global extends Scope {
         }
     }
 
+    /**
+     * Creates an instance of a nasgen generated built-in constructor or prototype class. The constructor
+     * handles are looked up once and shared by all globals.
+     * @param className name of the class
+     * @return new instance
+     * @throws Exception if the class can't be found or instantiated
+     */
+    private static Object newBuiltinInstance(final String className) throws Exception {
+        MethodHandle factory = builtinFactories.get(className);
+        if (factory == null) {
+            final Class<?> clazz = Class.forName(className);
+            factory = MethodHandles.lookup().findConstructor(clazz, MethodType.methodType(void.class)).asType(MethodType.methodType(Object.class));
+            builtinFactories.putIfAbsent(className, factory);
+        }
+        try {
+            return factory.invokeExact();
+        } catch (final Exception | Error e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
     private List<org.openjdk.nashorn.internal.runtime.Property> extractBuiltinProperties(final String name, final ScriptObject func) {
         final List<org.openjdk.nashorn.internal.runtime.Property> list = new ArrayList<>();
 
@@ -45,6 +45,7 @@ import org.openjdk.nashorn.internal.runtime.ScriptRuntime;
 import org.openjdk.nashorn.internal.runtime.events.RuntimeEvent;
 import org.openjdk.nashorn.internal.runtime.linker.LinkerCallSite;
 import org.openjdk.nashorn.internal.runtime.linker.NashornCallSiteDescriptor;
+import org.openjdk.nashorn.internal.runtime.regexp.RegExpFactory;
 
 /**
  * Nashorn specific debug utils. This is meant for Nashorn developers.
@@ -271,12 +272,20 @@ public final class NativeDebug extends ScriptObject {
         out.println("PropertyMap proto invalidations " + PropertyMap.getProtoInvalidations());
         out.println("PropertyMap proto history hit " + PropertyMap.getProtoHistoryHit());
         out.println("PropertyMap setProtoNewMapCount " + PropertyMap.getSetProtoNewMapCount());
+        out.println("RegExp cache hits " + RegExpFactory.getCacheHitCount());
+        out.println("RegExp cache misses " + RegExpFactory.getCacheMissCount());
+        out.println("RegExp cache evictions " + RegExpFactory.getCacheEvictionCount());
+        out.println("RegExp cache size " + RegExpFactory.getCacheSize());
         out.println("Callsite count " + LinkerCallSite.getCount());
         out.println("Callsite misses " + LinkerCallSite.getMissCount());
         out.println("Callsite misses by site at " + LinkerCallSite.getMissSamplingPercentage() + "%");
 
         LinkerCallSite.getMissCounts(out);
 
+        out.println("Callsite map dispatch hits by site");
+
+        LinkerCallSite.getDispatchCounts(out);
+
         return UNDEFINED;
     }
 
@@ -28,9 +28,11 @@ package org.openjdk.nashorn.internal.objects;
 import static org.openjdk.nashorn.internal.runtime.ECMAErrors.typeError;
 import static org.openjdk.nashorn.internal.runtime.ScriptRuntime.UNDEFINED;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.lang.invoke.MethodHandle;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -48,6 +50,7 @@ import org.openjdk.nashorn.internal.runtime.JSType;
 import org.openjdk.nashorn.internal.runtime.PropertyMap;
 import org.openjdk.nashorn.internal.runtime.ScriptObject;
 import org.openjdk.nashorn.internal.runtime.arrays.ArrayLikeIterator;
+import org.openjdk.nashorn.internal.runtime.doubleconv.DoubleConversion;
 import org.openjdk.nashorn.internal.runtime.linker.Bootstrap;
 import org.openjdk.nashorn.internal.runtime.linker.InvokeByName;
 
@@ -116,6 +119,58 @@ public final class NativeJSON extends ScriptObject {
      */
     @Function(attributes = Attribute.NOT_ENUMERABLE, where = Where.CONSTRUCTOR)
     public static Object stringify(final Object self, final Object value, final Object replacer, final Object space) {
+        final StringifyState state = createState(replacer, space, null);
+        if (!str("", wrap(value), state)) {
+            return UNDEFINED;
+        }
+        return state.out.toString();
+    }
+
+    /**
+     * Nashorn extension: like {@code JSON.stringify}, but writes the JSON text to a writer
+     * instead of returning it, so that large texts need not be held in memory as a whole.
+     * Nothing is written if the value has no JSON representation. The writer is flushed
+     * but not closed.
+     *
+     * @param value    ECMA script value (usually object or array)
+     * @param replacer either a function or an array of strings and numbers
+     * @param space    optional parameter - allows result to have whitespace injection
+     * @param writer   the writer to write the JSON text to
+     *
+     * @throws UncheckedIOException if the text can't be written
+     */
+    public static void stringifyTo(final Object value, final Object replacer, final Object space, final Writer writer) {
+        final StringifyState state = createState(replacer, space, writer);
+        str("", wrap(value), state);
+        flush(state);
+        try {
+            writer.flush();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // -- Internals only below this point
+
+    // stringify helpers.
+
+    // Size of the output buffered before it is written to the writer
+    private static final int FLUSH_SIZE = 8192;
+
+    private static class StringifyState {
+        final Map<Object, Object> stack = new IdentityHashMap<>();
+
+        // output is appended here, and written to the writer from time to time if there is one
+        final StringBuilder out = new StringBuilder();
+        Writer         writer = null;
+        int            depth = 0;
+        String         gap = "";
+        String[]       propertyList = null;
+        Object         replacerFunction = null;
+        InvokeByName   toJSONInvoker = getTO_JSON();
+    }
+
+    private static StringifyState createState(final Object replacer, final Object space, final Writer writer) {
         // The stringify method takes a value and an optional replacer, and an optional
         // space parameter, and returns a JSON text. The replacer can be a function
         // that can replace values, or an array of strings that will select the keys.
@@ -124,6 +179,7 @@ public final class NativeJSON extends ScriptObject {
         // produce text that is more easily readable.
 
         final StringifyState state = new StringifyState();
+        state.writer = writer;
 
         // If there is a replacer, it must be a function or an array.
         if (Bootstrap.isCallable(replacer)) {
@@ -133,7 +189,7 @@ public final class NativeJSON extends ScriptObject {
                 replacer instanceof Iterable ||
                 (replacer != null && replacer.getClass().isArray())) {
 
-            state.propertyList = new ArrayList<>();
+            final List<String> propertyList = new ArrayList<>();
 
             final Iterator<Object> iter = ArrayLikeIterator.arrayLikeIterator(replacer);
 
@@ -152,9 +208,11 @@ public final class NativeJSON extends ScriptObject {
                 }
 
                 if (item != null) {
-                    state.propertyList.add(item);
+                    propertyList.add(item);
                 }
             }
+
+            state.propertyList = propertyList.toArray(new String[0]);
         }
 
         // If the space parameter is a number, make an indent
@@ -186,33 +244,34 @@ public final class NativeJSON extends ScriptObject {
 
         state.gap = gap;
 
+        return state;
+    }
+
+    private static ScriptObject wrap(final Object value) {
         final ScriptObject wrapper = Global.newEmptyInstance();
         wrapper.set("", value, 0);
-
-        return str("", wrapper, state);
+        return wrapper;
     }
 
-    // -- Internals only below this point
-
-    // stringify helpers.
-
-    private static class StringifyState {
-        final Map<Object, Object> stack = new IdentityHashMap<>();
-
-        StringBuilder  indent = new StringBuilder();
-        String         gap = "";
-        List<String>   propertyList = null;
-        Object         replacerFunction = null;
+    // Spec: The abstract operation Str(key, holder). The result is appended to the output.
+    // Returns false and appends nothing if the value has no JSON representation.
+    private static boolean str(final Object key, final Object holder, final StringifyState state) {
+        final Object value = toJSONValue(key, holder, state);
+        if (!isSerializable(value)) {
+            return false;
+        }
+        append(value, state);
+        return true;
     }
 
-    // Spec: The abstract operation Str(key, holder).
-    private static Object str(final Object key, final Object holder, final StringifyState state) {
+    // The value of the property to serialize, after applying toJSON and the replacer function
+    private static Object toJSONValue(final Object key, final Object holder, final StringifyState state) {
         assert holder instanceof ScriptObject || holder instanceof JSObject;
 
         Object value = getProperty(holder, key);
         try {
             if (value instanceof ScriptObject) {
-                final InvokeByName toJSONInvoker = getTO_JSON();
+                final InvokeByName toJSONInvoker = state.toJSONInvoker;
                 final ScriptObject svalue = (ScriptObject)value;
                 final Object toJSON = toJSONInvoker.getGetter().invokeExact(svalue);
                 if (Bootstrap.isCallable(toJSON)) {
@@ -244,178 +303,182 @@ public final class NativeJSON extends ScriptObject {
                 value = ((NativeBoolean)value).booleanValue();
             }
         }
+        return value;
+    }
 
-        if (value == null) {
-            return "null";
-        } else if (Boolean.TRUE.equals(value)) {
-            return "true";
-        } else if (Boolean.FALSE.equals(value)) {
-            return "false";
+    private static boolean isSerializable(final Object value) {
+        if (value == null || value instanceof Boolean || JSType.isString(value) || value instanceof Number) {
+            return true;
         }
+        return JSType.of(value) == JSType.OBJECT &&
+                (isArray(value) || isJSObjectArray(value) || value instanceof ScriptObject || value instanceof JSObject);
+    }
 
-        if (value instanceof String) {
-            return JSONFunctions.quote((String)value);
+    // Appends a value for which isSerializable is true
+    private static void append(final Object value, final StringifyState state) {
+        final StringBuilder out = state.out;
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof Boolean) {
+            out.append(((Boolean)value).booleanValue());
+        } else if (value instanceof String) {
+            JSONFunctions.quote((String)value, out);
         } else if (value instanceof ConsString) {
-            return JSONFunctions.quote(value.toString());
-        }
-
-        if (value instanceof Number) {
-            return JSType.isFinite(((Number)value).doubleValue()) ? JSType.toString(value) : "null";
+            JSONFunctions.quote(value.toString(), out);
+        } else if (value instanceof Number) {
+            appendNumber((Number)value, out);
+        } else if (isArray(value) || isJSObjectArray(value)) {
+            JA(value, state);
+        } else {
+            JO(value, state);
         }
+    }
 
-        final JSType type = JSType.of(value);
-        if (type == JSType.OBJECT) {
-            if (isArray(value) || isJSObjectArray(value)) {
-                return JA(value, state);
-            } else if (value instanceof ScriptObject || value instanceof JSObject) {
-                return JO(value, state);
+    private static void appendNumber(final Number value, final StringBuilder out) {
+        if (value instanceof Integer) {
+            out.append(value.intValue());
+        } else if (value instanceof Double) {
+            final double d = value.doubleValue();
+            if (!JSType.isFinite(d)) {
+                out.append("null");
+            } else if (JSType.isRepresentableAsInt(d)) {
+                out.append((int)d);
+            } else {
+                DoubleConversion.appendShortestString(d, out);
             }
+        } else {
+            out.append(JSType.isFinite(value.doubleValue()) ? JSType.toString(value) : "null");
         }
-
-        return UNDEFINED;
     }
 
     // Spec: The abstract operation JO(value) serializes an object.
-    private static String JO(final Object value, final StringifyState state) {
+    private static void JO(final Object value, final StringifyState state) {
         assert value instanceof ScriptObject || value instanceof JSObject;
 
-        if (state.stack.containsKey(value)) {
-            throw typeError("JSON.stringify.cyclic");
+        enter(value, state);
+
+        final StringBuilder out = state.out;
+        final boolean hasGap = !state.gap.isEmpty();
+        final String[] keys;
+        // member prefixes, i.e. the quoted keys followed by a colon, if cached by the property map
+        String[] prefixes = null;
+        if (state.propertyList != null) {
+            keys = state.propertyList;
+        } else if (value instanceof ScriptObject && ((ScriptObject)value).getArray().length() == 0) {
+            // own enumerable keys of an object without array elements are those of its map
+            final PropertyMap map = ((ScriptObject)value).getMap();
+            keys = map.getEnumerableKeys();
+            prefixes = map.getJSONKeyPrefixes();
+        } else {
+            keys = getOwnKeys(value);
         }
 
-        state.stack.put(value, value);
-        final StringBuilder stepback = new StringBuilder(state.indent.toString());
-        state.indent.append(state.gap);
+        boolean empty = true;
+        for (int i = 0; i < keys.length; i++) {
+            final String key = keys[i];
+            final Object member = toJSONValue(key, value, state);
+            if (!isSerializable(member)) {
+                continue;
+            }
 
-        final StringBuilder finalStr = new StringBuilder();
-        final List<Object>  partial  = new ArrayList<>();
-        final List<String>  k        = state.propertyList == null ?
-                Arrays.asList(getOwnKeys(value)) : state.propertyList;
+            out.append(empty ? '{' : ',');
+            if (hasGap) {
+                newLine(state, state.depth);
+            }
+            if (prefixes != null) {
+                out.append(prefixes[i]);
+            } else {
+                JSONFunctions.quote(key, out);
+                out.append(':');
+            }
+            if (hasGap) {
+                out.append(' ');
+            }
+            append(member, state);
+            empty = false;
+            flushIfNeeded(state);
+        }
 
-        for (final Object p : k) {
-            final Object strP = str(p, value, state);
+        if (empty) {
+            out.append("{}");
+        } else {
+            if (hasGap) {
+                newLine(state, state.depth - 1);
+            }
+            out.append('}');
+        }
 
-            if (strP != UNDEFINED) {
-                final StringBuilder member = new StringBuilder();
+        exit(value, state);
+    }
 
-                member.append(JSONFunctions.quote(p.toString())).append(':');
-                if (!state.gap.isEmpty()) {
-                    member.append(' ');
-                }
+    // Spec: The abstract operation JA(value) serializes an array.
+    private static void JA(final Object value, final StringifyState state) {
+        assert value instanceof ScriptObject || value instanceof JSObject;
 
-                member.append(strP);
-                partial.add(member);
-            }
-        }
+        enter(value, state);
+
+        final StringBuilder out = state.out;
+        final boolean hasGap = !state.gap.isEmpty();
+        final int length = JSType.toInteger(getLength(value));
 
-        if (partial.isEmpty()) {
-            finalStr.append("{}");
+        if (length == 0) {
+            out.append("[]");
         } else {
-            final int size = partial.size();
-            int index = 0;
-            if (state.gap.isEmpty()) {
-
-                finalStr.append('{');
-
-                for (final Object str : partial) {
-                    finalStr.append(str);
-                    if (index < size - 1) {
-                        finalStr.append(',');
-                    }
-                    index++;
+            for (int index = 0; index < length; index++) {
+                out.append(index == 0 ? '[' : ',');
+                if (hasGap) {
+                    newLine(state, state.depth);
                 }
-
-            } else {
-                finalStr.append("{\n");
-                finalStr.append(state.indent);
-
-                for (final Object str : partial) {
-                    finalStr.append(str);
-                    if (index < size - 1) {
-                        finalStr.append(",\n");
-                        finalStr.append(state.indent);
-                    }
-                    index++;
+                if (!str(index, value, state)) {
+                    out.append("null");
                 }
+                flushIfNeeded(state);
+            }
 
-                finalStr.append('\n');
-                finalStr.append(stepback);
+            if (hasGap) {
+                newLine(state, state.depth - 1);
             }
-            finalStr.append('}');
+            out.append(']');
         }
 
-        state.stack.remove(value);
-        state.indent = stepback;
-
-        return finalStr.toString();
+        exit(value, state);
     }
 
-    // Spec: The abstract operation JA(value) serializes an array.
-    private static Object JA(final Object value, final StringifyState state) {
-        assert value instanceof ScriptObject || value instanceof JSObject;
-
+    private static void enter(final Object value, final StringifyState state) {
         if (state.stack.containsKey(value)) {
             throw typeError("JSON.stringify.cyclic");
         }
 
         state.stack.put(value, value);
-        final StringBuilder stepback = new StringBuilder(state.indent.toString());
-        state.indent.append(state.gap);
-        final List<Object> partial = new ArrayList<>();
+        state.depth++;
+    }
 
-        final int length = JSType.toInteger(getLength(value));
-        int index = 0;
+    private static void exit(final Object value, final StringifyState state) {
+        state.stack.remove(value);
+        state.depth--;
+    }
 
-        while (index < length) {
-            Object strP = str(index, value, state);
-            if (strP == UNDEFINED) {
-                strP = "null";
-            }
-            partial.add(strP);
-            index++;
+    private static void newLine(final StringifyState state, final int depth) {
+        final StringBuilder out = state.out;
+        out.append('\n');
+        for (int i = 0; i < depth; i++) {
+            out.append(state.gap);
         }
+    }
 
-        final StringBuilder finalStr = new StringBuilder();
-        if (partial.isEmpty()) {
-            finalStr.append("[]");
-        } else {
-            if (state.gap.isEmpty()) {
-                final int size = partial.size();
-                index = 0;
-                finalStr.append('[');
-                for (final Object str : partial) {
-                    finalStr.append(str);
-                    if (index < size - 1) {
-                        finalStr.append(',');
-                    }
-                    index++;
-                }
-
-                finalStr.append(']');
-            } else {
-                final int size = partial.size();
-                index = 0;
-                finalStr.append("[\n");
-                finalStr.append(state.indent);
-                for (final Object str : partial) {
-                    finalStr.append(str);
-                    if (index < size - 1) {
-                        finalStr.append(",\n");
-                        finalStr.append(state.indent);
-                    }
-                    index++;
-                }
-
-                finalStr.append('\n');
-                finalStr.append(stepback);
-                finalStr.append(']');
-            }
+    private static void flushIfNeeded(final StringifyState state) {
+        if (state.writer != null && state.out.length() >= FLUSH_SIZE) {
+            flush(state);
         }
+    }
 
-        state.stack.remove(value);
-        state.indent = stepback;
-
-        return finalStr.toString();
+    private static void flush(final StringifyState state) {
+        try {
+            state.writer.append(state.out);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        state.out.setLength(0);
     }
 
     private static String[] getOwnKeys(final Object obj) {
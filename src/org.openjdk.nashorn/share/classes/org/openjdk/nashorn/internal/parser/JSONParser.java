@@ -25,14 +25,21 @@
 
 package org.openjdk.nashorn.internal.parser;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import org.openjdk.nashorn.api.scripting.ScriptObjectMirror;
 import org.openjdk.nashorn.internal.codegen.ObjectClassGenerator;
 import org.openjdk.nashorn.internal.objects.Global;
 import org.openjdk.nashorn.internal.runtime.ECMAErrors;
 import org.openjdk.nashorn.internal.runtime.ErrorManager;
 import org.openjdk.nashorn.internal.runtime.JSErrorType;
 import org.openjdk.nashorn.internal.runtime.JSType;
+import org.openjdk.nashorn.internal.runtime.LazySpillProperty;
+import org.openjdk.nashorn.internal.runtime.LazySpillProperty.LazyValue;
 import org.openjdk.nashorn.internal.runtime.ParserException;
 import org.openjdk.nashorn.internal.runtime.Property;
 import org.openjdk.nashorn.internal.runtime.PropertyMap;
@@ -51,17 +58,58 @@ import static org.openjdk.nashorn.internal.parser.TokenType.STRING;
  * the objectLiteral production of the main parser.
  *
  * See: 15.12.1.2 The JSON Syntactic Grammar
+ * <p>
+ * The text is either given as a string, or read from a {@link Reader} through a fixed size
+ * buffer so that large texts need not be held in memory as a whole.
+ * <p>
+ * A string can also be parsed lazily, see {@link #parseLazily()}.
  */
 public class JSONParser {
 
     final private String source;
     final private Global global;
     final private boolean dualFields;
-    final int length;
+
+    /** Reader of the text, or null if the text is given as a string. */
+    final private Reader reader;
+    /** Buffer holding the text read from reader. */
+    private char[] buffer;
+    /** Position in the text of the first character in buffer. */
+    private int bufferStart;
+    /** Position in the text of the first character that must be retained when buffer is refilled, or -1. */
+    private int mark = -1;
+    /** Number of line terminators in the text discarded from buffer. */
+    private int discardedLines;
+    /** Number of characters after the last line terminator in the text discarded from buffer. */
+    private int discardedColumn;
+    /** Whether the end of the text has been read. */
+    private boolean eof;
+
+    /** Transitions from the initial property map taken by the objects parsed so far. */
+    private final Transition rootTransition;
+
+    /**
+     * Containers of the text in the order they are opened, or null if the text is not parsed
+     * lazily. Each container takes three entries: the position of its opening bracket, the
+     * position after its closing bracket, and the index of the first container after it.
+     */
+    private int[] tape;
+    /** Number of containers on the tape. */
+    private int containers;
+    /** Index of the next container to be parsed from the tape. */
+    private int nextContainer;
+
+    /** Position in the text just after the last available character. */
+    int length;
     int pos = 0;
 
     private static final int EOF = -1;
 
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int TAPE_ENTRY_SIZE = 3;
+    private static final int TAPE_SIZE = 64 * TAPE_ENTRY_SIZE;
+
     private static final String TRUE  = "true";
     private static final String FALSE = "false";
     private static final String NULL  = "null";
@@ -82,6 +130,26 @@ public class JSONParser {
         this.global = global;
         this.length = source.length();
         this.dualFields = dualFields;
+        this.reader = null;
+        this.eof = true;
+        this.rootTransition = createRootTransition(dualFields);
+    }
+
+    /**
+     * Constructor for parsing text read from a reader. The reader is not closed by the parser.
+     *
+     * @param reader     the reader of the source
+     * @param global     the global object
+     * @param dualFields whether the parser should regard dual field representation
+     */
+    public JSONParser(final Reader reader, final Global global, final boolean dualFields) {
+        this.source = null;
+        this.global = global;
+        this.length = 0;
+        this.dualFields = dualFields;
+        this.reader = reader;
+        this.buffer = new char[BUFFER_SIZE];
+        this.rootTransition = createRootTransition(dualFields);
     }
 
     /**
@@ -94,13 +162,33 @@ public class JSONParser {
      * @return quoted and escaped string
      */
     public static String quote(final String value) {
+        final StringBuilder product = new StringBuilder(value.length() + 2);
+        quote(value, product);
+        return product.toString();
+    }
 
-        final StringBuilder product = new StringBuilder();
+    /**
+     * Implementation of the Quote(value) operation that appends the quoted
+     * and escaped string to a string builder.
+     *
+     * @param value string to quote
+     * @param product the string builder to append to
+     */
+    public static void quote(final String value, final StringBuilder product) {
+        product.append('"');
 
-        product.append("\"");
+        final int length = value.length();
+        // runs of characters that need no escaping are appended at once
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            final char ch = value.charAt(i);
+            if (ch >= ' ' && ch != '"' && ch != '\\') {
+                continue;
+            }
+
+            product.append(value, start, i);
+            start = i + 1;
 
-        for (final char ch : value.toCharArray()) {
-            // TODO: should use a table?
             switch (ch) {
             case '\\':
                 product.append("\\\\");
@@ -124,35 +212,172 @@ public class JSONParser {
                 product.append("\\t");
                 break;
             default:
-                if (ch < ' ') {
-                    product.append(Lexer.unicodeEscape(ch));
-                    break;
-                }
-
-                product.append(ch);
+                product.append(Lexer.unicodeEscape(ch));
                 break;
             }
         }
+        product.append(value, start, length);
 
-        product.append("\"");
-
-        return product.toString();
+        product.append('"');
     }
 
     /**
      * Public parse method. Parse a string into a JSON object.
      *
      * @return the parsed JSON Object
+     * @throws UncheckedIOException if the text can't be read from the reader
      */
     public Object parse() {
         final Object value = parseLiteral();
         skipWhiteSpace();
-        if (pos < length) {
+        if (hasMore()) {
+            throw expectedError(pos, "eof", toString(peek()));
+        }
+        return value;
+    }
+
+    /**
+     * Parse a string into a JSON object whose nested objects and arrays are only created when
+     * their property is first read. The whole text is validated before this method returns,
+     * and the positions of its objects and arrays are recorded so that each of them is parsed
+     * at most once. Elements of arrays and values of array index keys are not deferred.
+     * <p>
+     * The source string and this parser are retained as long as any deferred value is.
+     *
+     * @return the parsed JSON Object
+     */
+    public Object parseLazily() {
+        assert source != null : "lazy parsing requires a string source";
+        tape = new int[TAPE_SIZE];
+        skipLiteral();
+        skipWhiteSpace();
+        if (hasMore()) {
             throw expectedError(pos, "eof", toString(peek()));
         }
+        pos = 0;
+        nextContainer = 0;
+        return parseLiteral();
+    }
+
+    /**
+     * Create the script value of a tree of Java maps and lists as if it was parsed lazily from
+     * its JSON text. Maps become objects, with their keys converted to strings, and lists become
+     * arrays. Maps and lists that are values of object properties are converted when the
+     * properties are first read. Numbers become {@code int} or {@code double} values, character
+     * sequences become strings, mirrors are unwrapped, and other values are used as they are.
+     * <p>
+     * The maps and lists must not change until their values have been read, and are retained
+     * as long as any of them has not been.
+     *
+     * @param value the Java value
+     * @return the script value
+     */
+    public synchronized Object convertLazily(final Object value) {
+        if (value instanceof ScriptObjectMirror) {
+            return ScriptObjectMirror.unwrap(value, global);
+        } else if (value instanceof Map) {
+            return convertMap((Map<?, ?>) value);
+        } else if (value instanceof List) {
+            return convertList((List<?>) value);
+        } else if (value instanceof CharSequence) {
+            return value.toString();
+        } else if (value instanceof Number) {
+            final double d = ((Number) value).doubleValue();
+            if (JSType.isRepresentableAsInt(d)) {
+                return (int) d;
+            }
+            return d;
+        }
         return value;
     }
 
+    private Object convertMap(final Map<?, ?> map) {
+        Transition transition = rootTransition;
+        Transition firstTransition = null;
+        ArrayData arrayData = ArrayData.EMPTY_ARRAY;
+        Object[] values = null;
+
+        for (final Map.Entry<?, ?> entry : map.entrySet()) {
+            final String id = JSType.toString(entry.getKey());
+            final Object value = entry.getValue();
+            final Object propertyValue = (value instanceof Map || value instanceof List) && !(value instanceof ScriptObjectMirror) ?
+                    (LazyValue) () -> convertLazily(value) : convertLazily(value);
+            Transition next = predictTransition(transition, id, propertyValue);
+            if (next == null) {
+                final int index = ArrayIndex.getArrayIndex(id);
+                if (ArrayIndex.isValidArrayIndex(index)) {
+                    arrayData = addArrayElement(arrayData, index, convertLazily(value));
+                    continue;
+                }
+                next = addObjectProperty(transition, id, propertyValue);
+            }
+            if (firstTransition == null) {
+                firstTransition = next;
+                values = new Object[next.objectSize > 0 ? next.objectSize : 8];
+            }
+            // distinct keys of a map may convert to the same string
+            values = setValue(values, next.slot, toPropertyValue(next, propertyValue));
+            transition = next;
+        }
+
+        final PropertyMap propertyMap = transition.map;
+        if (firstTransition != null) {
+            firstTransition.objectSize = propertyMap.size();
+        }
+        return createObject(propertyMap, values, arrayData);
+    }
+
+    private Object convertList(final List<?> list) {
+        ArrayData arrayData = ArrayData.EMPTY_ARRAY;
+        for (final Object element : list) {
+            final long index = arrayData.length();
+            arrayData = arrayData.ensure(index).set((int) index, convertLazily(element), true);
+        }
+        return global.wrapAsObject(arrayData);
+    }
+
+    /**
+     * Parse the object or array at the given index of the tape.
+     *
+     * @param index tape index of the container
+     * @return the parsed object or array
+     */
+    private synchronized Object materialize(final int index) {
+        final int savedPos = pos;
+        final int savedNextContainer = nextContainer;
+        pos = tape[index * TAPE_ENTRY_SIZE];
+        nextContainer = index;
+        try {
+            return parseLiteral();
+        } finally {
+            pos = savedPos;
+            nextContainer = savedNextContainer;
+        }
+    }
+
+    private Object parsePropertyValue(final String id) {
+        if (tape != null) {
+            skipWhiteSpace();
+            final int c = peek();
+            if ((c == '{' || c == '[') && !ArrayIndex.isValidArrayIndex(ArrayIndex.getArrayIndex(id))) {
+                // skip the container and its descendants, which are parsed when the value is read
+                final int index = nextContainer;
+                assert tape[index * TAPE_ENTRY_SIZE] == pos;
+                pos = tape[index * TAPE_ENTRY_SIZE + 1];
+                nextContainer = tape[index * TAPE_ENTRY_SIZE + 2];
+                return new LazyContainer(this, index);
+            }
+        }
+        return parseLiteral();
+    }
+
+    private void enterContainer() {
+        if (tape != null) {
+            assert tape[nextContainer * TAPE_ENTRY_SIZE] == pos;
+            nextContainer++;
+        }
+    }
+
     private Object parseLiteral() {
         skipWhiteSpace();
 
@@ -185,15 +410,17 @@ public class JSONParser {
     }
 
     private Object parseObject() {
-        PropertyMap propertyMap = dualFields ? JD.getInitialMap() : JO.getInitialMap();
+        Transition transition = rootTransition;
+        Transition firstTransition = null;
         ArrayData arrayData = ArrayData.EMPTY_ARRAY;
-        final ArrayList<Object> values = new ArrayList<>();
+        Object[] values = null;
         int state = STATE_EMPTY;
 
         assert peek() == '{';
+        enterContainer();
         pos++;
 
-        while (pos < length) {
+        while (hasMore()) {
             skipWhiteSpace();
             final int c = peek();
 
@@ -204,13 +431,23 @@ public class JSONParser {
                 }
                 final String id = parseString();
                 expectColon();
-                final Object value = parseLiteral();
-                final int index = ArrayIndex.getArrayIndex(id);
-                if (ArrayIndex.isValidArrayIndex(index)) {
-                    arrayData = addArrayElement(arrayData, index, value);
-                } else {
-                    propertyMap = addObjectProperty(propertyMap, values, id, value);
+                final Object value = parsePropertyValue(id);
+                Transition next = predictTransition(transition, id, value);
+                if (next == null) {
+                    final int index = ArrayIndex.getArrayIndex(id);
+                    if (ArrayIndex.isValidArrayIndex(index)) {
+                        arrayData = addArrayElement(arrayData, index, value);
+                        state = STATE_ELEMENT_PARSED;
+                        break;
+                    }
+                    next = addObjectProperty(transition, id, value);
+                }
+                if (firstTransition == null) {
+                    firstTransition = next;
+                    values = new Object[next.objectSize > 0 ? next.objectSize : 8];
                 }
+                values = setValue(values, next.slot, tape != null ? toPropertyValue(next, value) : value);
+                transition = next;
                 state = STATE_ELEMENT_PARSED;
                 break;
             case ',':
@@ -225,6 +462,10 @@ public class JSONParser {
                     throw error(AbstractParser.message("trailing.comma.in.json"), pos);
                 }
                 pos++;
+                final PropertyMap propertyMap = transition.map;
+                if (firstTransition != null) {
+                    firstTransition.objectSize = propertyMap.size();
+                }
                 return createObject(propertyMap, values, arrayData);
             default:
                 throw expectedError(pos, ", or }", toString(c));
@@ -246,40 +487,78 @@ public class JSONParser {
         return newArrayData.set(index, value, false);
     }
 
-    private PropertyMap addObjectProperty(final PropertyMap propertyMap, final List<Object> values,
-                                                 final String id, final Object value) {
-        final Property oldProperty = propertyMap.findProperty(id);
-        final PropertyMap newMap;
-        final Class<?> type;
-        final int flags;
-        if (dualFields) {
-            type = getType(value);
-            flags = Property.DUAL_FIELDS;
-        } else {
-            type = Object.class;
-            flags = 0;
+    private static Transition createRootTransition(final boolean dualFields) {
+        return new Transition(null, null, dualFields ? JD.getInitialMap() : JO.getInitialMap(), 0);
+    }
+
+    // Returns the transition taken by the last object that added a property with this key and
+    // type to the same map, or null if it is not known to be taken by the current object.
+    private Transition predictTransition(final Transition transition, final String id, final Object value) {
+        final Transition next = transition.next;
+        if (next != null && next.type == getPropertyType(value) && next.key.equals(id)) {
+            return next;
         }
+        return null;
+    }
+
+    private Transition addObjectProperty(final Transition transition, final String id, final Object value) {
+        final PropertyMap propertyMap = transition.map;
+        final Property oldProperty = propertyMap.findProperty(id);
+        final Class<?> type = getPropertyType(value);
+        final int flags = dualFields ? Property.DUAL_FIELDS : 0;
 
         if (oldProperty != null) {
-            values.set(oldProperty.getSlot(), value);
-            newMap = propertyMap.replaceProperty(oldProperty, new SpillProperty(id, flags, oldProperty.getSlot(), type));
-        } else {
-            values.add(value);
-            newMap = propertyMap.addProperty(new SpillProperty(id, flags, propertyMap.size(), type));
+            // duplicate keys are rare, so this transition is not remembered for other objects
+            final int slot = oldProperty.getSlot();
+            // the replacement must be of the same property class, see toPropertyValue
+            final Class<?> newType = oldProperty instanceof LazySpillProperty ? LazyValue.class : type == LazyValue.class ? Object.class : type;
+            return new Transition(id, newType, propertyMap.replaceProperty(oldProperty, newProperty(id, flags, slot, newType)), slot);
         }
 
-        return newMap;
+        final int slot = propertyMap.size();
+        final Transition next = new Transition(id, type, propertyMap.addProperty(newProperty(id, flags, slot, type)), slot);
+        transition.next = next;
+        return next;
     }
 
-    private Object createObject(final PropertyMap propertyMap, final List<Object> values, final ArrayData arrayData) {
-        final long[] primitiveSpill = dualFields ? new long[values.size()] : null;
-        final Object[] objectSpill = new Object[values.size()];
+    private static Property newProperty(final String id, final int flags, final int slot, final Class<?> type) {
+        return type == LazyValue.class ? new LazySpillProperty(id, flags, slot) : new SpillProperty(id, flags, slot, type);
+    }
 
-        for (final Property property : propertyMap.getProperties()) {
-            if (!dualFields || property.getType() == Object.class) {
-                objectSpill[property.getSlot()] = values.get(property.getSlot());
-            } else {
-                primitiveSpill[property.getSlot()] = ObjectClassGenerator.pack((Number) values.get(property.getSlot()));
+    // Adapt the value of a duplicate key in a lazily parsed text to the class of the property
+    // it replaces. For other keys, the value is returned as is.
+    private static Object toPropertyValue(final Transition transition, final Object value) {
+        if (transition.type == LazyValue.class) {
+            return value instanceof LazyValue ? value : (LazyValue) () -> value;
+        }
+        return value instanceof LazyValue ? ((LazyValue) value).materialize() : value;
+    }
+
+    private static Object[] setValue(final Object[] values, final int slot, final Object value) {
+        final Object[] newValues = slot < values.length ? values : Arrays.copyOf(values, Math.max(slot + 1, values.length * 2));
+        newValues[slot] = value;
+        return newValues;
+    }
+
+    private Object createObject(final PropertyMap propertyMap, final Object[] values, final ArrayData arrayData) {
+        final int size = propertyMap.size();
+        final long[] primitiveSpill;
+        final Object[] objectSpill;
+
+        if (!dualFields) {
+            primitiveSpill = null;
+            objectSpill = size == 0 ? new Object[0] : values.length == size ? values : Arrays.copyOf(values, size);
+        } else {
+            primitiveSpill = new long[size];
+            objectSpill = new Object[size];
+            for (int slot = 0; slot < size; slot++) {
+                // a property has the type of the value it was added or replaced with
+                final Object value = values[slot];
+                if (getType(value) == Object.class) {
+                    objectSpill[slot] = value;
+                } else {
+                    primitiveSpill[slot] = ObjectClassGenerator.pack((Number) value);
+                }
             }
         }
 
@@ -290,6 +569,14 @@ public class JSONParser {
         return object;
     }
 
+    private Class<?> getPropertyType(final Object value) {
+        if (value instanceof LazyValue) {
+            // deferred values need a property that parses them when read
+            return LazyValue.class;
+        }
+        return dualFields ? getType(value) : Object.class;
+    }
+
     private static Class<?> getType(final Object value) {
         if (value instanceof Integer) {
             return int.class;
@@ -313,9 +600,10 @@ public class JSONParser {
         int state = STATE_EMPTY;
 
         assert peek() == '[';
+        enterContainer();
         pos++;
 
-        while (pos < length) {
+        while (hasMore()) {
             skipWhiteSpace();
             final int c = peek();
 
@@ -351,8 +639,9 @@ public class JSONParser {
         // String buffer is only instantiated if string contains escape sequences.
         int start = ++pos;
         StringBuilder sb = null;
+        mark = start;
 
-        while (pos < length) {
+        while (hasMore()) {
             final int c = next();
             if (c <= 0x1f) {
                 // Characters < 0x1f are not allowed in JSON strings.
@@ -362,16 +651,18 @@ public class JSONParser {
                 if (sb == null) {
                     sb = new StringBuilder(pos - start + 16);
                 }
-                sb.append(source, start, pos - 1);
+                append(sb, start, pos - 1);
                 sb.append(parseEscapeSequence());
                 start = pos;
+                mark = start;
 
             } else if (c == '"') {
+                mark = -1;
                 if (sb != null) {
-                    sb.append(source, start, pos - 1);
+                    append(sb, start, pos - 1);
                     return sb.toString();
                 }
-                return source.substring(start, pos - 1);
+                return substring(start, pos - 1);
             }
         }
 
@@ -425,7 +716,7 @@ public class JSONParser {
     }
 
     private void skipDigits() {
-        while (pos < length) {
+        while (hasMore()) {
             final int c = peek();
             if (!isDigit(c)) {
                 break;
@@ -435,6 +726,19 @@ public class JSONParser {
     }
 
     private Number parseNumber() {
+        final int start = pos;
+        mark = start;
+        skipNumber();
+
+        final double d = Double.parseDouble(substring(start, pos));
+        mark = -1;
+        if (JSType.isRepresentableAsInt(d)) {
+            return (int) d;
+        }
+        return d;
+    }
+
+    private void skipNumber() {
         final int start = pos;
         int c = next();
 
@@ -471,27 +775,176 @@ public class JSONParser {
             }
             skipDigits();
         }
+    }
 
-        final double d = Double.parseDouble(source.substring(start, pos));
-        if (JSType.isRepresentableAsInt(d)) {
-            return (int) d;
+    // The skip methods validate the text like the corresponding parse methods, recording the
+    // positions of objects and arrays on the tape instead of creating them.
+
+    private void skipLiteral() {
+        skipWhiteSpace();
+
+        final int c = peek();
+        if (c == EOF) {
+            throw expectedError(pos, "json literal", "eof");
+        }
+        switch (c) {
+        case '{':
+            skipObject();
+            break;
+        case '[':
+            skipArray();
+            break;
+        case '"':
+            skipString();
+            break;
+        case 'f':
+            parseKeyword(FALSE, null);
+            break;
+        case 't':
+            parseKeyword(TRUE, null);
+            break;
+        case 'n':
+            parseKeyword(NULL, null);
+            break;
+        default:
+            if (isDigit(c) || c == '-') {
+                skipNumber();
+            } else if (c == '.') {
+                throw numberError(pos);
+            } else {
+                throw expectedError(pos, "json literal", toString(c));
+            }
         }
-        return d;
+    }
+
+    private void skipObject() {
+        final int index = startContainer();
+        int state = STATE_EMPTY;
+
+        assert peek() == '{';
+        pos++;
+
+        while (hasMore()) {
+            skipWhiteSpace();
+            final int c = peek();
+
+            switch (c) {
+            case '"':
+                if (state == STATE_ELEMENT_PARSED) {
+                    throw expectedError(pos - 1, ", or }", toString(c));
+                }
+                skipString();
+                expectColon();
+                skipLiteral();
+                state = STATE_ELEMENT_PARSED;
+                break;
+            case ',':
+                if (state != STATE_ELEMENT_PARSED) {
+                    throw error(AbstractParser.message("trailing.comma.in.json"), pos);
+                }
+                state = STATE_COMMA_PARSED;
+                pos++;
+                break;
+            case '}':
+                if (state == STATE_COMMA_PARSED) {
+                    throw error(AbstractParser.message("trailing.comma.in.json"), pos);
+                }
+                pos++;
+                endContainer(index);
+                return;
+            default:
+                throw expectedError(pos, ", or }", toString(c));
+            }
+        }
+        throw expectedError(pos, ", or }", "eof");
+    }
+
+    private void skipArray() {
+        final int index = startContainer();
+        int state = STATE_EMPTY;
+
+        assert peek() == '[';
+        pos++;
+
+        while (hasMore()) {
+            skipWhiteSpace();
+            final int c = peek();
+
+            switch (c) {
+            case ',':
+                if (state != STATE_ELEMENT_PARSED) {
+                    throw error(AbstractParser.message("trailing.comma.in.json"), pos);
+                }
+                state = STATE_COMMA_PARSED;
+                pos++;
+                break;
+            case ']':
+                if (state == STATE_COMMA_PARSED) {
+                    throw error(AbstractParser.message("trailing.comma.in.json"), pos);
+                }
+                pos++;
+                endContainer(index);
+                return;
+            default:
+                if (state == STATE_ELEMENT_PARSED) {
+                    throw expectedError(pos, ", or ]", toString(c));
+                }
+                skipLiteral();
+                state = STATE_ELEMENT_PARSED;
+                break;
+            }
+        }
+
+        throw expectedError(pos, ", or ]", "eof");
+    }
+
+    private void skipString() {
+        pos++;
+
+        while (hasMore()) {
+            final int c = next();
+            if (c <= 0x1f) {
+                throw syntaxError(pos, "String contains control character");
+            } else if (c == '\\') {
+                parseEscapeSequence();
+            } else if (c == '"') {
+                return;
+            }
+        }
+
+        throw error(Lexer.message("missing.close.quote"), pos, length);
+    }
+
+    private int startContainer() {
+        final int index = containers++;
+        if (containers * TAPE_ENTRY_SIZE > tape.length) {
+            tape = Arrays.copyOf(tape, tape.length * 2);
+        }
+        tape[index * TAPE_ENTRY_SIZE] = pos;
+        return index;
+    }
+
+    private void endContainer(final int index) {
+        tape[index * TAPE_ENTRY_SIZE + 1] = pos;
+        tape[index * TAPE_ENTRY_SIZE + 2] = containers;
     }
 
     private Object parseKeyword(final String keyword, final Object value) {
-        if (!source.regionMatches(pos, keyword, 0, keyword.length())) {
-            throw expectedError(pos, "json literal", "ident");
+        final int start = pos;
+        for (int i = 0; i < keyword.length(); i++) {
+            if (peek() != keyword.charAt(i)) {
+                throw expectedError(start, "json literal", "ident");
+            }
+            pos++;
         }
-        pos += keyword.length();
         return value;
     }
 
     private int peek() {
-        if (pos >= length) {
-            return -1;
+        if (!hasMore()) {
+            return EOF;
         }
-        return source.charAt(pos);
+        return source != null ? source.charAt(pos) : buffer[pos - bufferStart];
     }
 
     private int next() {
@@ -501,7 +954,7 @@ public class JSONParser {
     }
 
     private void skipWhiteSpace() {
-        while (pos < length) {
+        while (hasMore()) {
             switch (peek()) {
             case '\t':
             case '\r':
@@ -515,11 +968,83 @@ public class JSONParser {
         }
     }
 
+    private boolean hasMore() {
+        return pos < length || fill();
+    }
+
+    /**
+     * Read more text into the buffer, discarding the characters before the current position
+     * and the mark, and growing the buffer if all of its characters must be retained.
+     *
+     * @return true if at least one character was read, false at the end of the text
+     */
+    private boolean fill() {
+        if (eof) {
+            return false;
+        }
+
+        final int keep = mark >= 0 ? Math.min(mark, pos) : pos;
+        if (keep > bufferStart) {
+            countDiscardedLines(keep - bufferStart);
+            System.arraycopy(buffer, keep - bufferStart, buffer, 0, length - keep);
+            bufferStart = keep;
+        }
+        if (length - bufferStart == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+
+        try {
+            final int offset = length - bufferStart;
+            int read;
+            // a reader may return no characters without being at the end of its input
+            do {
+                read = reader.read(buffer, offset, buffer.length - offset);
+            } while (read == 0);
+            if (read < 0) {
+                eof = true;
+                return false;
+            }
+            length += read;
+            return true;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void countDiscardedLines(final int count) {
+        for (int i = 0; i < count; i++) {
+            final char ch = buffer[i];
+            if (ch == '\n') {
+                discardedLines++;
+            }
+            if (ch == '\n' || ch == '\r') {
+                discardedColumn = 0;
+            } else {
+                discardedColumn++;
+            }
+        }
+    }
+
+    private String substring(final int start, final int end) {
+        return source != null ? source.substring(start, end) : new String(buffer, start - bufferStart, end - start);
+    }
+
+    private void append(final StringBuilder sb, final int start, final int end) {
+        if (source != null) {
+            sb.append(source, start, end);
+        } else {
+            sb.append(buffer, start - bufferStart, end - start);
+        }
+    }
+
     private static String toString(final int c) {
         return c == EOF ? "eof" : String.valueOf((char) c);
     }
 
     ParserException error(final String message, final int start, final int length) throws ParserException {
+        if (source == null) {
+            return bufferError(message, start, length);
+        }
         final long token     = Token.toDesc(STRING, start, length);
         final int  pos       = Token.descPosition(token);
         final Source src     = Source.sourceFor("<json>", source);
@@ -529,6 +1054,20 @@ public class JSONParser {
         return new ParserException(JSErrorType.SYNTAX_ERROR, formatted, src, lineNum, columnNum, token);
     }
 
+    // The text read from a reader is no longer available as a whole, so the error refers
+    // to the buffered text, with line and column numbers relative to the whole text.
+    private ParserException bufferError(final String message, final int start, final int length) {
+        final int    bufferPos = Math.max(0, Math.min(start, this.length) - bufferStart);
+        final long   token     = Token.toDesc(STRING, bufferPos, length);
+        final Source src       = Source.sourceFor("<json>", new String(buffer, 0, this.length - bufferStart));
+        final int    lineNum   = discardedLines + src.getLine(bufferPos);
+        final int    column    = src.getColumn(bufferPos);
+        // add the part of the line that was discarded from the buffer
+        final int    columnNum = column == bufferPos ? discardedColumn + column : column;
+        final String formatted = ErrorManager.format(message, src, lineNum, columnNum, token);
+        return new ParserException(JSErrorType.SYNTAX_ERROR, formatted, src, lineNum, columnNum, token);
+    }
+
     private ParserException error(final String message, final int start) {
         return error(message, start, length);
     }
@@ -545,4 +1084,49 @@ public class JSONParser {
         final String message = ECMAErrors.getMessage("syntax.error.invalid.json", reason);
         return error(message, start);
     }
+
+    /**
+     * An object or array of a lazily parsed text that is parsed when its property is first read.
+     */
+    private static final class LazyContainer implements LazyValue {
+        private final JSONParser parser;
+        private final int index;
+
+        LazyContainer(final JSONParser parser, final int index) {
+            this.parser = parser;
+            this.index = index;
+        }
+
+        @Override
+        public Object materialize() {
+            return parser.materialize(index);
+        }
+    }
+
+    /**
+     * A property map transition taken while parsing an object. Objects of the same shape take
+     * the same path of transitions from the initial map, so the transition last taken from a
+     * map predicts the next key of the following objects. The prediction is verified with a
+     * key comparison and the map it leads to is reused without looking up the property or the
+     * map's transition history.
+     */
+    private static final class Transition {
+        final String key;
+        final Class<?> type;
+        final PropertyMap map;
+        final int slot;
+
+        /** Transition last taken from map. */
+        Transition next;
+
+        /** Number of properties of the last object that started with this transition. */
+        int objectSize;
+
+        Transition(final String key, final Class<?> type, final PropertyMap map, final int slot) {
+            this.key = key;
+            this.type = type;
+            this.map = map;
+            this.slot = slot;
+        }
+    }
 }
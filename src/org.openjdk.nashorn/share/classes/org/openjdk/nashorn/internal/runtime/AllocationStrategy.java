@@ -29,50 +29,102 @@ import static org.openjdk.nashorn.internal.lookup.Lookup.MH;
 import java.io.Serializable;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.openjdk.nashorn.internal.codegen.Compiler;
 import org.openjdk.nashorn.internal.codegen.CompilerConstants;
 import org.openjdk.nashorn.internal.codegen.ObjectClassGenerator;
+import org.openjdk.nashorn.internal.runtime.options.Options;
 
 /**
  * Encapsulates the allocation strategy for a function when used as a constructor.
+ * <p>
+ * The number of fields of allocated objects is initially derived from the properties the
+ * constructor assigns to {@code this}. Properties added conditionally or after construction
+ * end up in spill storage. To avoid this, the strategy samples the last few of the first objects
+ * it allocates: once a number of them have been allocated, the field count is increased to cover
+ * the spilled properties of a typical sampled object, and later objects are allocated as instances
+ * of the larger structure class.
+ * <p>
+ * In adaptive field mode, objects start out with dual fields, which store numbers without boxing
+ * them. When the field count is adjusted, the property values of the sampled objects are counted
+ * as well, and unless most of them are numbers, later objects are allocated as instances of the
+ * smaller object-only structure class. Starting out with object-only fields instead would leave
+ * the first objects with boxed numbers, and call sites that see objects of both structure classes
+ * could not avoid boxing for either of them.
  */
 final public class AllocationStrategy implements Serializable {
     private static final long serialVersionUID = 1L;
 
     private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
 
-    /** Number of fields in the allocated object */
-    private final int fieldCount;
+    /** Number of allocations after which the field count is adjusted, or 0 to never adjust it */
+    private static final int TRACKED_ALLOCATIONS = Math.max(0, Options.getIntProperty("nashorn.allocation.tracking", 16));
 
-    /** Whether to use dual field representation */
-    private final boolean dualFields;
+    /** Maximum number of tracked objects sampled when the field count is adjusted */
+    private static final int SAMPLE_SIZE = 8;
 
-    /** Name of class where allocator function resides */
-    private transient String allocatorClassName;
+    /** Index of the first sampled allocation. The last tracked allocation is not sampled, as it is not initialized yet. */
+    private static final int FIRST_SAMPLE = Math.max(0, TRACKED_ALLOCATIONS - 1 - SAMPLE_SIZE);
 
-    /** lazily generated allocator */
-    private transient MethodHandle allocator;
+    /** Maximum number of fields the field count is adjusted to */
+    private static final int MAX_FIELD_COUNT = 64;
 
-    /** Last used allocator map */
-    private transient AllocatorMap lastMap;
+    /** Maximum number of fields added when the field count is adjusted */
+    private static final int MAX_FIELD_GROWTH = 32;
+
+    private static final VarHandle ALLOCATIONS;
+    static {
+        try {
+            ALLOCATIONS = LOOKUP.findVarHandle(AllocationStrategy.class, "allocations", int.class);
+        } catch (final ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Number of fields in the allocated object, only changed while holding the lock */
+    private int fieldCount;
+
+    /** Whether to use dual field representation, only changed while holding the lock */
+    private boolean dualFields;
+
+    /** Whether to switch to object field representation if allocated objects have mostly non-numeric properties */
+    private final boolean adaptiveFields;
+
+    /** Structure class, allocator and last allocator map currently in use, lazily created */
+    private transient volatile Structure structure;
+
+    /** Number of objects allocated while tracking allocations */
+    private transient volatile int allocations;
+
+    /** Objects allocated while tracking allocations, sampled when the field count is adjusted. Guarded by the lock. */
+    private transient List<WeakReference<ScriptObject>> samples;
 
     /**
      * Construct an allocation strategy with the given map and class name.
      * @param fieldCount number of fields in the allocated object
      * @param dualFields whether to use dual field representation
+     * @param adaptiveFields whether to start with dual fields and switch to object fields if properties are mostly non-numeric
      */
-    public AllocationStrategy(final int fieldCount, final boolean dualFields) {
+    public AllocationStrategy(final int fieldCount, final boolean dualFields, final boolean adaptiveFields) {
         this.fieldCount = fieldCount;
-        this.dualFields = dualFields;
+        this.dualFields = dualFields || adaptiveFields;
+        this.adaptiveFields = adaptiveFields && !dualFields;
     }
 
-    private String getAllocatorClassName() {
-        if (allocatorClassName == null) {
-            // These classes get loaded, so an interned variant of their name is most likely around anyway.
-            allocatorClassName = Compiler.binaryName(ObjectClassGenerator.getClassName(fieldCount, dualFields)).intern();
+    private Structure getStructure() {
+        final Structure s = structure;
+        return s != null ? s : initStructure();
+    }
+
+    private synchronized Structure initStructure() {
+        if (structure == null) {
+            structure = new Structure(fieldCount, dualFields, null);
         }
-        return allocatorClassName;
+        return structure;
     }
 
     /**
@@ -83,6 +135,8 @@ final public class AllocationStrategy implements Serializable {
     synchronized PropertyMap getAllocatorMap(final ScriptObject prototype) {
         assert prototype != null;
         final PropertyMap protoMap = prototype.getMap();
+        final Structure s = getStructure();
+        final AllocatorMap lastMap = s.lastMap;
 
         if (lastMap != null) {
             if (!lastMap.hasSharedProtoMap()) {
@@ -92,23 +146,26 @@ final public class AllocationStrategy implements Serializable {
                 if (lastMap.hasSameProtoMap(protoMap) && lastMap.hasUnchangedProtoMap()) {
                     // Convert to shared prototype map. Allocated objects will use the same property map
                     // that can be used as long as none of the prototypes modify the shared proto map.
-                    final PropertyMap allocatorMap = PropertyMap.newMap(null, getAllocatorClassName(), 0, fieldCount, 0);
+                    final PropertyMap allocatorMap = PropertyMap.newMap(null, s.allocatorClassName, 0, s.fieldCount, 0);
                     final SharedPropertyMap sharedProtoMap = new SharedPropertyMap(protoMap);
                     allocatorMap.setSharedProtoMap(sharedProtoMap);
                     prototype.setMap(sharedProtoMap);
-                    lastMap = new AllocatorMap(prototype, protoMap, allocatorMap);
+                    structure = s.withLastMap(new AllocatorMap(prototype, protoMap, allocatorMap));
                     return allocatorMap;
                 }
             }
 
             if (lastMap.hasValidSharedProtoMap() && lastMap.hasSameProtoMap(protoMap)) {
+                // The shared map does not share the switchpoints of the current prototype map, so
+                // objects inheriting from the prototype must look up a new prototype chain switchpoint.
+                protoMap.invalidateProtoChainSwitchPoints();
                 prototype.setMap(lastMap.getSharedProtoMap());
                 return lastMap.allocatorMap;
             }
         }
 
-        final PropertyMap allocatorMap = PropertyMap.newMap(null, getAllocatorClassName(), 0, fieldCount, 0);
-        lastMap = new AllocatorMap(prototype, protoMap, allocatorMap);
+        final PropertyMap allocatorMap = PropertyMap.newMap(null, s.allocatorClassName, 0, s.fieldCount, 0);
+        structure = s.withLastMap(new AllocatorMap(prototype, protoMap, allocatorMap));
 
         return allocatorMap;
     }
@@ -119,22 +176,163 @@ final public class AllocationStrategy implements Serializable {
      * @return the allocated object
      */
     ScriptObject allocate(final PropertyMap map) {
+        // Threads racing past the check may push the counter beyond the limit, but only one gets the last tracked index
+        final int allocation = allocations < TRACKED_ALLOCATIONS ? (int)ALLOCATIONS.getAndAdd(this, 1) : TRACKED_ALLOCATIONS;
+        if (allocation == TRACKED_ALLOCATIONS - 1) {
+            adjustStructure();
+        }
+        final ScriptObject object;
         try {
-            if (allocator == null) {
-                allocator = MH.findStatic(LOOKUP, Context.forStructureClass(getAllocatorClassName()),
-                        CompilerConstants.ALLOCATE.symbolName(), MH.type(ScriptObject.class, PropertyMap.class));
-            }
-            return (ScriptObject)allocator.invokeExact(map);
+            final Structure s = getStructure();
+            final String className = map.getClassName();
+            // Maps allocated before the structure was adjusted use the previous structure class
+            final MethodHandle allocator = className == s.allocatorClassName ? s.allocator : findAllocator(className);
+            object = (ScriptObject)allocator.invokeExact(map);
         } catch (final RuntimeException | Error e) {
             throw e;
         } catch (final Throwable t) {
             throw new RuntimeException(t);
         }
+        if (allocation >= FIRST_SAMPLE && allocation < TRACKED_ALLOCATIONS - 1) {
+            // The constructor will have initialized this object by the time the structure is adjusted
+            addSample(object);
+        }
+        return object;
+    }
+
+    private static MethodHandle findAllocator(final String className) throws ClassNotFoundException {
+        return MH.findStatic(LOOKUP, Context.forStructureClass(className),
+                CompilerConstants.ALLOCATE.symbolName(), MH.type(ScriptObject.class, PropertyMap.class));
+    }
+
+    /**
+     * Check whether a property map returned by {@link #getAllocatorMap(ScriptObject)} is still the one
+     * to use for newly allocated objects, or whether it was created before the structure was adjusted.
+     *
+     * @param map the property map
+     * @return true if the map uses the current structure class
+     */
+    boolean isCurrentAllocatorMap(final PropertyMap map) {
+        return map.getClassName() == getStructure().allocatorClassName;
+    }
+
+    private synchronized void addSample(final ScriptObject object) {
+        // Don't keep samples arriving after the structure was adjusted
+        if (allocations < TRACKED_ALLOCATIONS) {
+            if (samples == null) {
+                samples = new ArrayList<>(SAMPLE_SIZE);
+            }
+            samples.add(new WeakReference<>(object));
+        }
+    }
+
+    /**
+     * Increase the field count to cover the spilled properties that at least half of the sampled objects
+     * have, by no more than {@link #MAX_FIELD_GROWTH} fields. In adaptive field mode, also switch to object
+     * fields unless the sampled objects have mostly numeric properties.
+     */
+    private synchronized void adjustStructure() {
+        final List<ScriptObject> sampled = new ArrayList<>();
+        if (samples != null) {
+            for (final WeakReference<ScriptObject> sample : samples) {
+                final ScriptObject object = sample.get();
+                if (object != null) {
+                    sampled.add(object);
+                }
+            }
+            samples = null;
+        }
+        if (sampled.isEmpty()) {
+            return;
+        }
+        final Structure s = getStructure();
+        final int spilled = Math.min(getMedianSpillCount(sampled), MAX_FIELD_GROWTH);
+        final int newFieldCount = spilled == 0 || s.fieldCount >= MAX_FIELD_COUNT ? s.fieldCount :
+                Math.min(ObjectClassGenerator.getPaddedFieldCount(s.fieldCount + spilled), MAX_FIELD_COUNT);
+        final boolean newDualFields = s.dualFields && (!adaptiveFields || shouldKeepDualFields(sampled));
+        if (newFieldCount == s.fieldCount && newDualFields == s.dualFields) {
+            return;
+        }
+        fieldCount = newFieldCount;
+        dualFields = newDualFields;
+        structure = new Structure(newFieldCount, newDualFields, null);
+    }
+
+    // A single object with many added properties must not inflate all later objects.
+    private static int getMedianSpillCount(final List<ScriptObject> sampled) {
+        final int[] counts = new int[sampled.size()];
+        for (int i = 0; i < counts.length; i++) {
+            for (final Property property : sampled.get(i).getMap().getProperties()) {
+                if (property.isSpill()) {
+                    counts[i]++;
+                }
+            }
+        }
+        Arrays.sort(counts);
+        return counts[(counts.length - 1) / 2];
+    }
+
+    // Dual fields pay off if most properties of the sampled objects are numbers.
+    private static boolean shouldKeepDualFields(final List<ScriptObject> sampled) {
+        int numeric = 0;
+        int other = 0;
+        for (final ScriptObject object : sampled) {
+            for (final Property property : object.getMap().getProperties()) {
+                // Don't invoke user defined getters
+                if (property.isAccessorProperty()) {
+                    continue;
+                }
+                if (property.getObjectValue(object, object) instanceof Number) {
+                    numeric++;
+                } else {
+                    other++;
+                }
+            }
+        }
+        return numeric > 0 && numeric >= other;
     }
 
     @Override
     public String toString() {
-        return "AllocationStrategy[fieldCount=" + fieldCount + "]";
+        final Structure s = getStructure();
+        return "AllocationStrategy[fieldCount=" + s.fieldCount + ", dualFields=" + s.dualFields + "]";
+    }
+
+    /**
+     * Immutable snapshot of the structure class used for allocated objects, so that unsynchronized
+     * allocations never see a class name, allocator and allocator map that don't belong together.
+     */
+    private static final class Structure {
+        final int fieldCount;
+        final boolean dualFields;
+        final String allocatorClassName;
+        final MethodHandle allocator;
+        final AllocatorMap lastMap;
+
+        Structure(final int fieldCount, final boolean dualFields, final AllocatorMap lastMap) {
+            this.fieldCount = fieldCount;
+            this.dualFields = dualFields;
+            // These classes get loaded, so an interned variant of their name is most likely around anyway.
+            this.allocatorClassName = Compiler.binaryName(ObjectClassGenerator.getClassName(fieldCount, dualFields)).intern();
+            try {
+                this.allocator = findAllocator(allocatorClassName);
+            } catch (final ClassNotFoundException e) {
+                throw new RuntimeException(e);
+            }
+            this.lastMap = lastMap;
+        }
+
+        private Structure(final Structure structure, final AllocatorMap lastMap) {
+            this.fieldCount = structure.fieldCount;
+            this.dualFields = structure.dualFields;
+            this.allocatorClassName = structure.allocatorClassName;
+            this.allocator = structure.allocator;
+            this.lastMap = lastMap;
+        }
+
+        Structure withLastMap(final AllocatorMap map) {
+            return new Structure(this, map);
+        }
     }
 
     static class AllocatorMap {
@@ -24,6 +24,7 @@
  */
 package org.openjdk.nashorn.internal.runtime;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
@@ -40,8 +41,9 @@ final class AstDeserializer {
     static FunctionNode deserialize(final byte[] serializedAst) {
         return AccessController.doPrivileged((PrivilegedAction<FunctionNode>) () -> {
             try {
-                return (FunctionNode)new ObjectInputStream(new InflaterInputStream(
-                    new ByteArrayInputStream(serializedAst))).readObject();
+                // ObjectInputStream reads object headers a byte at a time, so buffer the inflated stream
+                return (FunctionNode)new ObjectInputStream(new BufferedInputStream(new InflaterInputStream(
+                    new ByteArrayInputStream(serializedAst)))).readObject();
             } catch (final ClassNotFoundException | IOException e) {
                 // This is internal, can't happen
                 throw new AssertionError("Unexpected exception deserializing function", e);
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.openjdk.nashorn.internal.runtime;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.nashorn.internal.runtime.logging.DebugLogger;
+import org.openjdk.nashorn.internal.runtime.logging.Loggable;
+import org.openjdk.nashorn.internal.runtime.logging.Logger;
+
+/**
+ * Cache for compiled script classes of a {@link Context}.
+ * <p>
+ * The cache is bounded both by the number of entries and by the total size of the class
+ * files installed for the cached scripts. Lookups and insertions don't take any locks.
+ * Eviction uses a TinyLFU policy: the access frequency of every source looked up in the
+ * cache is recorded in a compact, periodically aged count-min sketch, and a newly compiled
+ * script is only admitted to a full cache if it has been requested at least as often as
+ * the victim it would replace. Victims are picked from a random sample of entries as the
+ * least frequently and then least recently used one. A burst of one-off scripts therefore
+ * competes for the least valuable slots only and does not flush frequently used scripts.
+ * <p>
+ * Classes are held through soft references, so entries can also disappear on memory pressure.
+ */
+@Logger(name="classcache")
+final class ClassCache implements Loggable {
+    private final int maxEntries;
+    private final long maxWeight;
+    private final ConcurrentHashMap<Source, Entry> map;
+    private final ReferenceQueue<Class<?>> queue = new ReferenceQueue<>();
+    private final FrequencySketch sketch;
+    private final AtomicLong weight = new AtomicLong();
+    private final AtomicLong clock = new AtomicLong();
+    private final SampledEviction<Entry> eviction;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder loadTime = new LongAdder();
+
+    private final DebugLogger log;
+
+    /**
+     * Constructor.
+     *
+     * @param context the context
+     * @param maxEntries maximum number of cached classes
+     * @param maxWeight maximum total size of class files of cached classes in bytes
+     */
+    ClassCache(final Context context, final int maxEntries, final long maxWeight) {
+        this.maxEntries = maxEntries;
+        this.maxWeight  = maxWeight;
+        this.map        = new ConcurrentHashMap<>(Math.min(maxEntries, 1024));
+        this.sketch     = new FrequencySketch(maxEntries);
+        // entries whose class has been collected go first
+        this.eviction   = new SampledEviction<>(entry -> entry.get() == null ? -1 : sketch.frequency(entry.source.hashCode()), entry -> entry.lastAccess);
+        this.log        = initLogger(context);
+    }
+
+    /**
+     * Look up the class compiled for a source and record the access.
+     *
+     * @param source the source
+     * @return the cached class, or null if there is none
+     */
+    Class<?> get(final Source source) {
+        expungeClearedEntries();
+        sketch.increment(source.hashCode());
+
+        final Entry entry = map.get(source);
+        final Class<?> clazz = entry == null ? null : entry.get();
+        if (clazz == null) {
+            misses.increment();
+            return null;
+        }
+
+        entry.lastAccess = clock.incrementAndGet();
+        hits.increment();
+        if (log.isEnabled()) {
+            log.info("Retrieved class reference for ", source, " from class cache");
+        }
+        return clazz;
+    }
+
+    /**
+     * Cache the class compiled for a source.
+     *
+     * @param source the source
+     * @param clazz the compiled class
+     * @param classBytes total size of the class files installed for the script
+     * @param loadNanos time it took to compile or load the script in nanoseconds
+     */
+    void cache(final Source source, final Class<?> clazz, final long classBytes, final long loadNanos) {
+        loadTime.add(loadNanos);
+
+        if (classBytes > maxWeight) {
+            rejections.increment();
+            if (log.isEnabled()) {
+                log.info("Not caching ", source, " as its ", classBytes, " class bytes exceed the class cache size");
+            }
+            return;
+        }
+
+        if (isFull(classBytes)) {
+            final Entry victim = eviction.sampleVictim(map);
+            if (victim != null && sketch.frequency(source.hashCode()) < sketch.frequency(victim.source.hashCode())) {
+                rejections.increment();
+                if (log.isEnabled()) {
+                    log.info("Not caching ", source, " as it is used less frequently than ", victim.source);
+                }
+                return;
+            }
+        }
+
+        if (log.isEnabled()) {
+            log.info("Caching ", source, " in class cache");
+        }
+
+        final Entry entry = new Entry(clazz, queue, source, classBytes, clock.incrementAndGet());
+        final Entry previous = map.put(source, entry);
+        weight.addAndGet(previous == null ? classBytes : classBytes - previous.weight);
+        evictIfNeeded();
+    }
+
+    /**
+     * @return the number of lookups that found a cached class.
+     */
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that did not find a cached class.
+     */
+    long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of classes removed from the cache, either by the eviction policy or by the garbage collector.
+     */
+    long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of compiled classes not admitted to the cache.
+     */
+    long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    /**
+     * @return the total time spent compiling or loading scripts that were not found in the cache, in nanoseconds.
+     */
+    long getLoadTime() {
+        return loadTime.sum();
+    }
+
+    /**
+     * @return the estimated size of the cached classes in bytes.
+     */
+    long getWeight() {
+        return weight.get();
+    }
+
+    /**
+     * @return the number of cached classes.
+     */
+    int size() {
+        return map.size();
+    }
+
+    private boolean isFull(final long extraWeight) {
+        return map.size() >= maxEntries || weight.get() + extraWeight > maxWeight;
+    }
+
+    private void evictIfNeeded() {
+        eviction.evict(map, () -> map.size() > maxEntries || weight.get() > maxWeight, victim -> {
+            if (remove(victim) && log.isEnabled()) {
+                log.info("Evicting ", victim.source, " from class cache.");
+            }
+        });
+    }
+
+    private void expungeClearedEntries() {
+        for (Entry ref; (ref = (Entry)queue.poll()) != null; ) {
+            if (remove(ref) && log.isEnabled()) {
+                log.info("Evicting ", ref.source, " from class cache.");
+            }
+        }
+    }
+
+    private boolean remove(final Entry entry) {
+        if (map.remove(entry.source, entry)) {
+            weight.addAndGet(-entry.weight);
+            evictions.increment();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public DebugLogger initLogger(final Context context) {
+        return context.getLogger(getClass());
+    }
+
+    @Override
+    public DebugLogger getLogger() {
+        return log;
+    }
+
+    private static final class Entry extends SoftReference<Class<?>> {
+        final Source source;
+        final long weight;
+        volatile long lastAccess;
+
+        Entry(final Class<?> clazz, final ReferenceQueue<Class<?>> queue, final Source source, final long weight, final long lastAccess) {
+            super(clazz, queue);
+            this.source = source;
+            this.weight = weight;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /**
+     * A count-min sketch of 4-bit counters estimating how often a source has been requested.
+     * All counters are halved once the number of recorded accesses reaches ten times the
+     * table size, so that the frequencies reflect recent history. Updates are not atomic;
+     * an occasional lost increment only makes the estimate slightly less precise.
+     */
+    private static final class FrequencySketch {
+        private static final long RESET_MASK = 0x7777_7777_7777_7777L;
+        private static final int[] SEEDS = { 0x97cb3127, 0xc2b2ae35, 0x85ebca6b, 0x27d4eb2f };
+
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private final AtomicLong additions = new AtomicLong();
+
+        FrequencySketch(final int expectedEntries) {
+            // Sixteen counters per long; size the table so each expected entry gets a few longs' worth of counters.
+            final int length = Integer.highestOneBit(Math.max(16, Math.min(expectedEntries, 1 << 20)) - 1) << 1;
+            this.table = new long[length];
+            this.tableMask = length - 1;
+            this.sampleSize = length * 10;
+        }
+
+        int frequency(final int hash) {
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < SEEDS.length; i++) {
+                frequency = Math.min(frequency, counter(hash, i));
+            }
+            return frequency;
+        }
+
+        void increment(final int hash) {
+            for (int i = 0; i < SEEDS.length; i++) {
+                final int index = indexOf(hash, i);
+                final int offset = counterOffset(hash, i);
+                final long value = table[index];
+                if (((value >>> offset) & 0xfL) != 0xfL) {
+                    table[index] = value + (1L << offset);
+                }
+            }
+            if (additions.incrementAndGet() % sampleSize == 0) {
+                reset();
+            }
+        }
+
+        private int counter(final int hash, final int i) {
+            return (int)((table[indexOf(hash, i)] >>> counterOffset(hash, i)) & 0xfL);
+        }
+
+        private int indexOf(final int hash, final int i) {
+            int h = (hash + SEEDS[i]) * SEEDS[i];
+            h ^= h >>> 16;
+            return h & tableMask;
+        }
+
+        private static int counterOffset(final int hash, final int i) {
+            return (((hash >>> (i << 3)) & 0xf) << 2);
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+        }
+    }
+}
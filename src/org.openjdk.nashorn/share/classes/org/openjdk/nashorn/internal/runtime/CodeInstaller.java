@@ -92,6 +92,13 @@ public interface CodeInstaller {
     public void storeScript(final String cacheKey, final Source source, final String mainClassName, final Map<String, byte[]> classBytes,
             final Map<Integer, FunctionInitializer> initializers, final Object[] constants, final int compilationId);
 
+    /**
+     * Tell whether compiled scripts are stored for later reuse at all. If not, {@link #storeScript} does nothing.
+     *
+     * @return true if there is a code store scripts can be written to
+     */
+    public boolean canStoreScripts();
+
     /**
      * Load a previously compiled script
      * @param source the script source
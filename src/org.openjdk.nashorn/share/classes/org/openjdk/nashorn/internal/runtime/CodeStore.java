@@ -27,6 +27,9 @@ package org.openjdk.nashorn.internal.runtime;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -34,10 +37,26 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.AccessController;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.openjdk.nashorn.internal.codegen.OptimisticTypesPersistence;
 import org.openjdk.nashorn.internal.codegen.types.Type;
 import org.openjdk.nashorn.internal.runtime.logging.DebugLogger;
@@ -78,7 +97,9 @@ public abstract class CodeStore implements Loggable {
      */
     public static CodeStore newCodeStore(final Context context) {
         try {
-            final CodeStore store = new DirectoryCodeStore(context);
+            final CodeStore store = "log".equals(Options.getStringProperty("nashorn.persistent.code.cache.type", "directory"))
+                    ? new LogCodeStore(context)
+                    : new DirectoryCodeStore(context);
             store.initLogger(context);
             return store;
         } catch (final IOException e) {
@@ -87,6 +108,40 @@ public abstract class CodeStore implements Loggable {
         }
     }
 
+    /**
+     * Returns a code store shared with other contexts.
+     *
+     * @param context the current context
+     * @return The instance
+     */
+    public static CodeStore newSharedCodeStore(final Context context) {
+        final CodeStore store = new SharedCodeStore(context);
+        store.initLogger(context);
+        return store;
+    }
+
+    /**
+     * Returns a code store for a code archive. A code archive is a {@link LogCodeStore} holding scripts compiled
+     * ahead of time. As with the persistent code cache, the log file is kept in a subdirectory specific to the
+     * Nashorn version and to whether optimistic types are used, so an archive created by a different version, or
+     * with optimistic types set differently, is not found.
+     *
+     * @param context the current context
+     * @param path the archive directory
+     * @param readOnly true if scripts are only loaded from the archive, false if compiled scripts are stored in it
+     * @return The instance, or null if the archive could not be opened
+     */
+    public static CodeStore newCodeArchive(final Context context, final String path, final boolean readOnly) {
+        try {
+            final CodeStore store = new LogCodeStore(context, path, readOnly, 0);
+            store.initLogger(context);
+            return store;
+        } catch (final IOException e) {
+            context.getLogger(CodeStore.class).warning("failed to open code archive ", e);
+            return null;
+        }
+    }
+
 
     /**
      * Store a compiled script in the cache.
@@ -305,4 +360,553 @@ public abstract class CodeStore implements Loggable {
             return false;
         }
     }
+
+    /**
+     * A store keeping all compiled scripts in a single append-only log file. Every record holds the class files
+     * of a compiled script in raw form, followed by its serialized function initializers and constants. The log
+     * is memory mapped for reading, and an index from source digest and function key to record position is built
+     * by scanning the record headers when the store is opened. Records superseded by a later record with the same
+     * key are dropped by compaction, which happens when the store is opened and more than half of the log is
+     * superseded, or on request. All stores in a JVM using the same log file share it; appends from different
+     * processes are coordinated with file locks.
+     */
+    public static class LogCodeStore extends CodeStore {
+
+        private static final String LOG_FILE_NAME = "codestore.log";
+
+        private static final ConcurrentMap<File, CodeLog> logs = new ConcurrentHashMap<>();
+
+        private final CodeLog log;
+        private final boolean readOnly;
+        private final int minSize;
+
+        /**
+         * Constructor
+         *
+         * @param context the current context
+         * @throws IOException if there are read/write problems with the cache and cache directory
+         */
+        public LogCodeStore(final Context context) throws IOException {
+            this(context, Options.getStringProperty("nashorn.persistent.code.cache", "nashorn_code_cache"), false, DirectoryCodeStore.DEFAULT_MIN_SIZE);
+        }
+
+        /**
+         * Constructor
+         *
+         * @param context the current context
+         * @param path    directory to store the log file in
+         * @param readOnly is this a read only code store
+         * @param minSize minimum file size for caching scripts
+         * @throws IOException if there are read/write problems with the cache and cache directory
+         */
+        public LogCodeStore(final Context context, final String path, final boolean readOnly, final int minSize) throws IOException {
+            final File file = new File(DirectoryCodeStore.checkDirectory(path, context.getEnv(), readOnly), LOG_FILE_NAME);
+            this.log = openLog(file, readOnly);
+            this.readOnly = readOnly;
+            this.minSize = minSize;
+        }
+
+        private static CodeLog openLog(final File file, final boolean readOnly) throws IOException {
+            try {
+                return AccessController.doPrivileged((PrivilegedExceptionAction<CodeLog>) () -> {
+                    if (readOnly) {
+                        final CodeLog existing = logs.get(file);
+                        return existing != null ? existing : new CodeLog(file, true);
+                    }
+                    return logs.computeIfAbsent(file, f -> {
+                        try {
+                            return new CodeLog(f, false);
+                        } catch (final IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                });
+            } catch (final PrivilegedActionException e) {
+                throw (IOException) e.getException();
+            } catch (final UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        @Override
+        public StoredScript load(final Source source, final String functionKey) {
+            if (belowThreshold(source)) {
+                return null;
+            }
+
+            final String key = getKey(source, functionKey);
+            try {
+                final StoredScript storedScript = AccessController.doPrivileged((PrivilegedExceptionAction<StoredScript>) () -> log.read(key));
+                if (storedScript != null) {
+                    getLogger().info("loaded ", source, "-", functionKey);
+                }
+                return storedScript;
+            } catch (final PrivilegedActionException e) {
+                getLogger().warning("failed to load ", source, "-", functionKey, ": ", e.getException());
+                return null;
+            }
+        }
+
+        @Override
+        public StoredScript store(final String functionKey, final Source source, final StoredScript script) {
+            if (readOnly || script == null || belowThreshold(source)) {
+                return null;
+            }
+
+            final String key = getKey(source, functionKey);
+            try {
+                return AccessController.doPrivileged((PrivilegedExceptionAction<StoredScript>) () -> {
+                    log.append(key, script);
+                    getLogger().info("stored ", source, "-", functionKey);
+                    return script;
+                });
+            } catch (final PrivilegedActionException e) {
+                getLogger().warning("failed to store ", script, "-", functionKey, ": ", e.getException());
+                return null;
+            }
+        }
+
+        /**
+         * Rewrite the log file without superseded records.
+         *
+         * @throws IOException if the log file could not be rewritten
+         */
+        public void compact() throws IOException {
+            if (readOnly) {
+                return;
+            }
+            try {
+                AccessController.doPrivileged((PrivilegedExceptionAction<Void>) () -> {
+                    log.compact();
+                    return null;
+                });
+            } catch (final PrivilegedActionException e) {
+                throw (IOException) e.getException();
+            }
+        }
+
+        private static String getKey(final Source source, final String functionKey) {
+            return source.getDigest() + '-' + functionKey;
+        }
+
+        private boolean belowThreshold(final Source source) {
+            if (source.getLength() < minSize) {
+                getLogger().info("below size threshold ", source);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * The log file shared by all stores using it. The file starts with a header of a magic number and
+         * format version, followed by records each consisting of the record length and the record body:
+         * <pre>
+         * key                string
+         * compilation id     int
+         * main class name    string
+         * class count        int
+         * classes            (string name, int length, bytes) * class count
+         * metadata length    int
+         * metadata           serialized initializers map and constants array
+         * </pre>
+         * Strings are written as their length followed by their UTF-8 bytes. A truncated trailing record,
+         * left by a process that died while appending, is discarded when the log is opened.
+         */
+        private static final class CodeLog {
+            private static final int MAGIC = 0x4e534353; // "NSCS"
+            private static final int FORMAT_VERSION = 1;
+            private static final int HEADER_SIZE = 8;
+
+            private final File file;
+            private final boolean readOnly;
+            private final Map<String, Record> index = new ConcurrentHashMap<>();
+
+            // guarded by this
+            private FileChannel channel;
+            private Object fileKey;
+            private long end;
+            private long supersededBytes;
+
+            private volatile MappedByteBuffer mapped;
+
+            CodeLog(final File file, final boolean readOnly) throws IOException {
+                this.file = file;
+                this.readOnly = readOnly;
+                synchronized (this) {
+                    open();
+                    if (!readOnly && supersededBytes > (end - HEADER_SIZE) / 2) {
+                        try {
+                            compact();
+                        } catch (final IOException e) {
+                            // Compaction is an optimization only; keep using the log as it is.
+                        }
+                    }
+                }
+            }
+
+            private void open() throws IOException {
+                if (readOnly) {
+                    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                } else {
+                    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+                }
+                fileKey = Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+                index.clear();
+                supersededBytes = 0;
+                mapped = null;
+
+                if (readOnly) {
+                    if (!hasValidHeader()) {
+                        throw new IOException("Not a code store log: " + file.getPath());
+                    }
+                    scan(HEADER_SIZE, channel.size());
+                    return;
+                }
+
+                final FileLock lock = channel.lock();
+                try {
+                    if (!hasValidHeader()) {
+                        // new or incompatible log, start over
+                        channel.truncate(0);
+                        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION);
+                        header.flip();
+                        writeFully(header, 0);
+                    }
+                    final long size = channel.size();
+                    scan(HEADER_SIZE, size);
+                    if (end < size) {
+                        channel.truncate(end);
+                    }
+                } finally {
+                    lock.release();
+                }
+            }
+
+            private boolean hasValidHeader() throws IOException {
+                if (channel.size() < HEADER_SIZE) {
+                    return false;
+                }
+                final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                while (header.hasRemaining()) {
+                    if (channel.read(header, header.position()) < 0) {
+                        return false;
+                    }
+                }
+                return header.getInt(0) == MAGIC && header.getInt(4) == FORMAT_VERSION;
+            }
+
+            // Index the records in [from, to). Sets end to the end of the last complete record.
+            private void scan(final long from, final long to) throws IOException {
+                final ByteBuffer buf = map(to);
+                long pos = from;
+                while (pos + 4 <= to) {
+                    final int length = buf.getInt((int)pos);
+                    if (length <= 4 || pos + 4 + length > to) {
+                        break;
+                    }
+                    final ByteBuffer body = slice(buf, pos + 4, length);
+                    final String key = getString(body);
+                    final Record previous = index.put(key, new Record(pos + 4, length));
+                    if (previous != null) {
+                        supersededBytes += previous.length + 4;
+                    }
+                    pos += 4 + length;
+                }
+                end = pos;
+            }
+
+            StoredScript read(final String key) throws IOException, ClassNotFoundException {
+                final Record record;
+                final MappedByteBuffer buf;
+                // The record and the mapping must be of the same file, which compact() replaces. A mapping stays
+                // valid after its file is replaced, so the record is decoded outside of the lock.
+                synchronized (this) {
+                    record = index.get(key);
+                    if (record == null) {
+                        return null;
+                    }
+                    buf = map(record.offset + record.length);
+                }
+
+                return decode(slice(buf, record.offset, record.length));
+            }
+
+            // Decodes a record body. The initializers and constants are deserialized anew on every call.
+            private static StoredScript decode(final ByteBuffer body) throws IOException, ClassNotFoundException {
+                getString(body); // key
+                final int compilationId = body.getInt();
+                final String mainClassName = getString(body);
+                final int classCount = body.getInt();
+                final Map<String, byte[]> classBytes = new LinkedHashMap<>();
+                for (int i = 0; i < classCount; i++) {
+                    final String className = getString(body);
+                    final byte[] bytes = new byte[body.getInt()];
+                    body.get(bytes);
+                    classBytes.put(className, bytes);
+                }
+                final byte[] metadata = new byte[body.getInt()];
+                body.get(metadata);
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(metadata))) {
+                    @SuppressWarnings("unchecked")
+                    final Map<Integer, FunctionInitializer> initializers = (Map<Integer, FunctionInitializer>) in.readObject();
+                    final Object[] constants = (Object[]) in.readObject();
+                    return new StoredScript(compilationId, mainClassName, classBytes, initializers, constants);
+                }
+            }
+
+            void append(final String key, final StoredScript script) throws IOException {
+                final byte[] body = encode(key, script);
+                final ByteBuffer buf = ByteBuffer.allocate(4 + body.length).putInt(body.length).put(body);
+                buf.flip();
+
+                synchronized (this) {
+                    final FileLock lock = lockCurrentFile();
+                    try {
+                        // pick up records appended by other processes
+                        final long size = channel.size();
+                        if (size > end) {
+                            scan(end, size);
+                        }
+                        if (end + buf.remaining() > Integer.MAX_VALUE) {
+                            throw new IOException("Code store log is full: " + file.getPath());
+                        }
+                        final long offset = end;
+                        writeFully(buf, offset);
+                        final Record previous = index.put(key, new Record(offset + 4, body.length));
+                        if (previous != null) {
+                            supersededBytes += previous.length + 4;
+                        }
+                        end = offset + 4 + body.length;
+                    } finally {
+                        lock.release();
+                    }
+                }
+            }
+
+            synchronized void compact() throws IOException {
+                final File tmp = new File(file.getPath() + ".tmp");
+                final FileLock lock = lockCurrentFile();
+                try {
+                    // pick up records appended by other processes, or the rewrite would drop them
+                    final long size = channel.size();
+                    if (size > end) {
+                        scan(end, size);
+                    }
+                    final ByteBuffer buf = map(end);
+                    try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION);
+                        header.flip();
+                        out.write(header);
+                        // Write live records in log order, so that appends with the same key keep their order.
+                        final Record[] records = index.values().toArray(new Record[0]);
+                        Arrays.sort(records, (r1, r2) -> Long.compare(r1.offset, r2.offset));
+                        for (final Record record : records) {
+                            final ByteBuffer recordBuf = slice(buf, record.offset - 4, record.length + 4);
+                            while (recordBuf.hasRemaining()) {
+                                out.write(recordBuf);
+                            }
+                        }
+                    }
+                    Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    lock.release();
+                }
+                channel.close();
+                open();
+            }
+
+            // Lock the log file. Another process may have compacted the log, replacing the file we have open,
+            // so the file is checked while holding its lock and reopened until the lock is on the current file.
+            // guarded by this
+            private FileLock lockCurrentFile() throws IOException {
+                while (true) {
+                    final FileLock lock = channel.lock();
+                    final Object currentKey = file.exists() ? Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey() : null;
+                    if (currentKey != null && currentKey.equals(fileKey)) {
+                        return lock;
+                    }
+                    lock.release();
+                    channel.close();
+                    open();
+                }
+            }
+
+            // guarded by this
+            private MappedByteBuffer map(final long minSize) throws IOException {
+                MappedByteBuffer buf = mapped;
+                if (buf == null || buf.capacity() < minSize) {
+                    final long size = channel.size();
+                    if (size > Integer.MAX_VALUE) {
+                        throw new IOException("Code store log too large: " + file.getPath());
+                    }
+                    buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                    mapped = buf;
+                }
+                return buf;
+            }
+
+            private void writeFully(final ByteBuffer buf, final long offset) throws IOException {
+                long pos = offset;
+                while (buf.hasRemaining()) {
+                    pos += channel.write(buf, pos);
+                }
+            }
+
+            private static byte[] encode(final String key, final StoredScript script) throws IOException {
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                final DataOutputStream out = new DataOutputStream(bytes);
+                putString(out, key);
+                out.writeInt(script.getCompilationId());
+                putString(out, script.getMainClassName());
+                final Map<String, byte[]> classBytes = script.getClassBytes();
+                out.writeInt(classBytes.size());
+                for (final Map.Entry<String, byte[]> entry : classBytes.entrySet()) {
+                    putString(out, entry.getKey());
+                    out.writeInt(entry.getValue().length);
+                    out.write(entry.getValue());
+                }
+
+                final ByteArrayOutputStream metadata = new ByteArrayOutputStream();
+                try (ObjectOutputStream oout = new ObjectOutputStream(metadata)) {
+                    oout.writeObject(script.getInitializers());
+                    oout.writeObject(script.getConstants());
+                }
+                out.writeInt(metadata.size());
+                metadata.writeTo(out);
+                out.flush();
+                return bytes.toByteArray();
+            }
+
+            private static void putString(final DataOutputStream out, final String str) throws IOException {
+                final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            private static String getString(final ByteBuffer buf) {
+                final byte[] bytes = new byte[buf.getInt()];
+                buf.get(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            private static ByteBuffer slice(final ByteBuffer buf, final long offset, final int length) {
+                final ByteBuffer dup = buf.duplicate();
+                dup.position((int)offset).limit((int)offset + length);
+                return dup.slice();
+            }
+        }
+
+        private static final class Record {
+            final long offset;
+            final int length;
+
+            Record(final long offset, final int length) {
+                this.offset = offset;
+                this.length = length;
+            }
+        }
+    }
+
+    /**
+     * A store keeping compiled scripts in memory, shared by all contexts of the JVM that use it. Compiled scripts
+     * are kept in the same encoded form as in a {@link LogCodeStore} log, so every context loading a script gets
+     * its own copy of the function initializers and constants, and installs the classes in its own class loader.
+     * Scripts are only shared between contexts with the same compilation relevant options. Entries are held
+     * through soft references, so they can disappear on memory pressure.
+     */
+    public static class SharedCodeStore extends CodeStore {
+
+        private static final ConcurrentMap<String, Entry> scripts = new ConcurrentHashMap<>();
+        private static final ReferenceQueue<byte[]> queue = new ReferenceQueue<>();
+
+        private final String optionsKey;
+
+        /**
+         * Constructor
+         *
+         * @param context the current context
+         */
+        public SharedCodeStore(final Context context) {
+            this.optionsKey = getOptionsKey(context);
+        }
+
+        @Override
+        public StoredScript load(final Source source, final String functionKey) {
+            if (belowThreshold(source)) {
+                return null;
+            }
+
+            expungeClearedEntries();
+            final Entry entry = scripts.get(getKey(source, functionKey));
+            final byte[] body = entry == null ? null : entry.get();
+            if (body == null) {
+                return null;
+            }
+            try {
+                final StoredScript storedScript = LogCodeStore.CodeLog.decode(ByteBuffer.wrap(body));
+                getLogger().info("loaded ", source, "-", functionKey);
+                return storedScript;
+            } catch (final IOException | ClassNotFoundException e) {
+                getLogger().warning("failed to load ", source, "-", functionKey, ": ", e);
+                return null;
+            }
+        }
+
+        @Override
+        public StoredScript store(final String functionKey, final Source source, final StoredScript script) {
+            if (script == null || belowThreshold(source)) {
+                return null;
+            }
+
+            final String key = getKey(source, functionKey);
+            try {
+                scripts.put(key, new Entry(key, LogCodeStore.CodeLog.encode(key, script), queue));
+                getLogger().info("stored ", source, "-", functionKey);
+                return script;
+            } catch (final IOException e) {
+                getLogger().warning("failed to store ", script, "-", functionKey, ": ", e);
+                return null;
+            }
+        }
+
+        private String getKey(final Source source, final String functionKey) {
+            return optionsKey + source.getDigest() + '-' + functionKey;
+        }
+
+        private boolean belowThreshold(final Source source) {
+            if (source.getLength() < DirectoryCodeStore.DEFAULT_MIN_SIZE) {
+                getLogger().info("below size threshold ", source);
+                return true;
+            }
+            return false;
+        }
+
+        // The options affecting the code generated for a script.
+        private static String getOptionsKey(final Context context) {
+            final ScriptEnvironment env = context.getEnv();
+            final StringBuilder sb = new StringBuilder();
+            for (final boolean option : new boolean[] {
+                    env._const_as_var, env._debug_lines, env._debug_scopes, env._early_lvalue_error,
+                    env._empty_statements, env._es6, env._lazy_compilation, env._no_syntax_extensions,
+                    env._optimistic_types, env._scripting, env._strict, context.useDualFields(), context.useAdaptiveFields() }) {
+                sb.append(option ? '1' : '0');
+            }
+            return sb.append(env._function_statement.ordinal()).append('-').append(env._callsite_flags).append('-').toString();
+        }
+
+        private static void expungeClearedEntries() {
+            for (Entry ref; (ref = (Entry)queue.poll()) != null; ) {
+                scripts.remove(ref.key, ref);
+            }
+        }
+
+        private static final class Entry extends SoftReference<byte[]> {
+            final String key;
+
+            Entry(final String key, final byte[] body, final ReferenceQueue<byte[]> queue) {
+                super(body, queue);
+                this.key = key;
+            }
+        }
+    }
 }
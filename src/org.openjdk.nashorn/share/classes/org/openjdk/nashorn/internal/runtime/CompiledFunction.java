@@ -35,11 +35,17 @@ import java.lang.invoke.MethodType;
 import java.lang.invoke.MutableCallSite;
 import java.lang.invoke.SwitchPoint;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 import jdk.dynalink.linker.GuardedInvocation;
@@ -49,10 +55,12 @@ import org.openjdk.nashorn.internal.codegen.TypeMap;
 import org.openjdk.nashorn.internal.codegen.types.ArrayType;
 import org.openjdk.nashorn.internal.codegen.types.Type;
 import org.openjdk.nashorn.internal.ir.FunctionNode;
+import org.openjdk.nashorn.internal.objects.Global;
 import org.openjdk.nashorn.internal.objects.annotations.SpecializedFunction.LinkLogic;
 import org.openjdk.nashorn.internal.runtime.events.RecompilationEvent;
 import org.openjdk.nashorn.internal.runtime.linker.Bootstrap;
 import org.openjdk.nashorn.internal.runtime.logging.DebugLogger;
+import org.openjdk.nashorn.internal.runtime.options.Options;
 
 /**
  * An version of a JavaScript function, native or JavaScript.
@@ -65,6 +73,11 @@ final class CompiledFunction {
     private static final MethodHandle HANDLE_REWRITE_EXCEPTION = findOwnMH("handleRewriteException", MethodHandle.class, CompiledFunction.class, OptimismInfo.class, RewriteException.class);
     private static final MethodHandle RESTOF_INVOKER = MethodHandles.exactInvoker(MethodType.methodType(Object.class, RewriteException.class));
 
+    private static final ExecutorService recompilationExecutorService = createRecompilationExecutorService();
+
+    // maximum number of rest-of methods kept while a background recompilation is pending
+    private static final int MAX_REST_OF_METHODS = 32;
+
     private final DebugLogger log;
 
     static final Collection<CompiledFunction> NO_FUNCTIONS = Collections.emptySet();
@@ -78,6 +91,12 @@ final class CompiledFunction {
     private MethodHandle invoker;
     private MethodHandle constructor;
     private OptimismInfo optimismInfo;
+    // true while a background recompilation of this function is queued or running, see --background-recompilation
+    private boolean recompilationQueued;
+    // true if the invoker misses program points that are already invalidated, because a background recompilation failed
+    private boolean invokerStale;
+    // rest-of methods compiled while a background recompilation is pending, or null
+    private Map<RestOfKey, MethodHandle> restOfMethods;
     private final int flags; // from FunctionNode
     private final MethodType callSiteType;
 
@@ -681,7 +700,11 @@ final class CompiledFunction {
     }
 
     private MethodHandle createRewriteExceptionHandler() {
-        return MH.foldArguments(RESTOF_INVOKER, MH.insertArguments(HANDLE_REWRITE_EXCEPTION, 0, this, optimismInfo));
+        return createRewriteExceptionHandler(optimismInfo);
+    }
+
+    private MethodHandle createRewriteExceptionHandler(final OptimismInfo info) {
+        return MH.foldArguments(RESTOF_INVOKER, MH.insertArguments(HANDLE_REWRITE_EXCEPTION, 0, this, info));
     }
 
     private static MethodHandle changeReturnType(final MethodHandle mh, final Class<?> newReturnType) {
@@ -690,6 +713,9 @@ final class CompiledFunction {
 
     @SuppressWarnings("unused")
     private static MethodHandle handleRewriteException(final CompiledFunction function, final OptimismInfo oldOptimismInfo, final RewriteException re) {
+        if (oldOptimismInfo.data.useBackgroundRecompilation()) {
+            return function.handleRewriteExceptionInBackground(oldOptimismInfo, re);
+        }
         return function.handleRewriteException(oldOptimismInfo, re);
     }
 
@@ -768,12 +794,7 @@ final class CompiledFunction {
         }
 
         final MethodType type = type();
-
-        // Compiler needs a call site type as its input, which always has a callee parameter, so we must add it if
-        // this function doesn't have a callee parameter.
-        final MethodType ct = type.parameterType(0) == ScriptFunction.class ?
-                type :
-                type.insertParameterTypes(0, ScriptFunction.class);
+        final MethodType ct = getCompilerCallSiteType(type);
         final OptimismInfo currentOptInfo = optimismInfo;
         final boolean shouldRecompile = currentOptInfo != null && currentOptInfo.requestRecompile(re);
 
@@ -838,6 +859,237 @@ final class CompiledFunction {
         return restOf;
     }
 
+    /**
+     * Handles a {@link RewriteException} when running with {@code --background-recompilation}. Instead of
+     * recompiling the function before continuing, only the rest-of method needed to complete the current
+     * execution is compiled on the calling thread, and the deoptimizing recompilation is queued on a background
+     * thread. Until it completes, invocations keep using the current code; should they hit an invalidated
+     * program point, they too continue in a rest-of method. When the new code is installed, the optimistic
+     * assumptions switch point is invalidated so linked call sites relink to it. Program points invalidated
+     * while a recompilation is queued or running are picked up by it or by a subsequent one.
+     * @param oldOptInfo the optimism info of this function bound into the invoker.
+     * @param re the rewrite exception that was raised
+     * @return the method handle for the rest-of method, for folding composition.
+     */
+    private MethodHandle handleRewriteExceptionInBackground(final OptimismInfo oldOptInfo, final RewriteException re) {
+        if (log.isEnabled()) {
+            log.info(
+                    new RecompilationEvent(
+                        Level.INFO,
+                        re,
+                        re.getReturnValueNonDestructive()),
+                    "caught RewriteException ",
+                    re.getMessageShort());
+        }
+
+        final MethodType ct = getCompilerCallSiteType(type());
+        final OptimismInfo effectiveOptInfo;
+        final Map<Integer, Type> invalidatedProgramPoints;
+        final boolean canBeDeoptimized;
+        final boolean queueRecompilation;
+        final RestOfKey restOfKey;
+        MethodHandle restOf;
+        synchronized (this) {
+            final OptimismInfo currentOptInfo = optimismInfo;
+            // A program point that was already invalidated only triggers a recompilation if the last one failed
+            final boolean newlyInvalidated = currentOptInfo != null && currentOptInfo.addInvalidatedProgramPoint(re);
+            queueRecompilation = (newlyInvalidated || currentOptInfo != null && invokerStale) && !recompilationQueued;
+            if (queueRecompilation) {
+                recompilationQueued = true;
+                invokerStale = false;
+            }
+            effectiveOptInfo = currentOptInfo != null ? currentOptInfo : oldOptInfo;
+            // The background recompilation reads the map concurrently, so compile with a copy
+            invalidatedProgramPoints = new TreeMap<>(effectiveOptInfo.invalidatedProgramPoints);
+            canBeDeoptimized = currentOptInfo != null;
+            restOfKey = new RestOfKey(effectiveOptInfo, re, invalidatedProgramPoints, canBeDeoptimized);
+            restOf = restOfMethods == null ? null : restOfMethods.get(restOfKey);
+        }
+
+        if (queueRecompilation) {
+            // The rest-of method clears the runtime scope of the exception once it has run, and the compiler declares
+            // locals in the scope it is given, so the background compiler gets a scope of its own.
+            final ScriptObject runtimeScope = Global.newEmptyInstance();
+            runtimeScope.setProto(re.getRuntimeScope());
+            final int[] entryPoints = OptimismInfo.getEntryPoints(re);
+            log.info("Queueing background recompilation of '", effectiveOptInfo.data.getName(), "' (", Debug.id(this), ")");
+            recompilationExecutorService.execute(() -> recompileInBackground(effectiveOptInfo, ct, runtimeScope, entryPoints));
+        }
+
+        if (restOf != null) {
+            // Until the recompiled code is installed, invocations keep hitting the same program points, so the
+            // rest-of methods compiled for them are reused.
+            log.info("Reusing rest-of method of '", effectiveOptInfo.data.getName(), "' (", Debug.id(this), ") for program point ", re.getProgramPoint());
+            return restOf;
+        }
+
+        final FunctionNode fn = effectiveOptInfo.reparse();
+        final Compiler compiler = effectiveOptInfo.getCompiler(fn, ct, re, invalidatedProgramPoints);
+        logRecompile("Rest-of compilation [BACKGROUND RECOMPILATION] ", fn, ct, invalidatedProgramPoints);
+        restOf = restOfHandle(effectiveOptInfo, compiler.compile(fn, fn.isCached() ? CompilationPhases.COMPILE_CACHED_RESTOF : CompilationPhases.COMPILE_ALL_RESTOF), canBeDeoptimized);
+
+        synchronized (this) {
+            if (recompilationQueued) {
+                if (restOfMethods == null || restOfMethods.size() >= MAX_REST_OF_METHODS) {
+                    restOfMethods = new HashMap<>();
+                }
+                final MethodHandle existing = restOfMethods.putIfAbsent(restOfKey, restOf);
+                if (existing != null) {
+                    restOf = existing;
+                }
+            }
+        }
+        return restOf;
+    }
+
+    /**
+     * Identifies a rest-of method compiled while a background recompilation is pending. Rest-of methods are
+     * compiled for the continuation entry points and the invalidated program points, so a rest-of method can be
+     * reused for a rewrite exception with the same ones. The runtime scope of the exception only influences the
+     * optimistic types the rest-of method starts with, so it is not part of the key.
+     */
+    private static final class RestOfKey {
+        private final OptimismInfo optInfo;
+        private final int[] entryPoints;
+        private final Map<Integer, Type> invalidatedProgramPoints;
+        private final boolean canBeDeoptimized;
+
+        RestOfKey(final OptimismInfo optInfo, final RewriteException re, final Map<Integer, Type> invalidatedProgramPoints, final boolean canBeDeoptimized) {
+            this.optInfo = optInfo;
+            this.entryPoints = OptimismInfo.getEntryPoints(re);
+            // the compiler may add to the map it is given
+            this.invalidatedProgramPoints = new TreeMap<>(invalidatedProgramPoints);
+            this.canBeDeoptimized = canBeDeoptimized;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof RestOfKey)) {
+                return false;
+            }
+            final RestOfKey other = (RestOfKey)obj;
+            return optInfo == other.optInfo && canBeDeoptimized == other.canBeDeoptimized &&
+                    Arrays.equals(entryPoints, other.entryPoints) && invalidatedProgramPoints.equals(other.invalidatedProgramPoints);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(entryPoints) ^ invalidatedProgramPoints.hashCode();
+        }
+    }
+
+    /**
+     * Performs the deoptimizing recompilation queued by {@link #handleRewriteExceptionInBackground(OptimismInfo, RewriteException)}
+     * and installs the new code.
+     * @param optInfo the optimism info of this function
+     * @param ct the call site type to compile for
+     * @param runtimeScope the runtime scope of the rewrite exception that triggered the recompilation
+     * @param entryPoints the continuation entry points of the rewrite exception that triggered the recompilation
+     */
+    private void recompileInBackground(final OptimismInfo optInfo, final MethodType ct, final ScriptObject runtimeScope, final int[] entryPoints) {
+        boolean requeue = false;
+        try {
+            final Map<Integer, Type> invalidatedProgramPoints;
+            synchronized (this) {
+                invalidatedProgramPoints = new TreeMap<>(optInfo.invalidatedProgramPoints);
+            }
+
+            FunctionNode fn = optInfo.reparse();
+            final boolean cached = fn.isCached();
+            final Compiler compiler = optInfo.data.getCompiler(fn, ct, runtimeScope, invalidatedProgramPoints, entryPoints);
+            logRecompile("Background deoptimizing recompilation ", fn, ct, invalidatedProgramPoints);
+            fn = compiler.compile(fn, cached ? CompilationPhases.RECOMPILE_CACHED_UPTO_BYTECODE : CompilationPhases.COMPILE_UPTO_BYTECODE);
+            final FunctionNode normalFn = compiler.compile(fn, CompilationPhases.GENERATE_BYTECODE_AND_INSTALL);
+
+            if (optInfo.data.usePersistentCodeCache()) {
+                final RecompilableScriptFunctionData data = optInfo.data;
+                final int functionNodeId = data.getFunctionNodeId();
+                final TypeMap typeMap = data.typeMap(ct);
+                final Type[] paramTypes = typeMap == null ? null : typeMap.getParameterTypes(functionNodeId);
+                final String cacheKey = CodeStore.getCacheKey(functionNodeId, paramTypes);
+                compiler.persistClassInfo(cacheKey, normalFn);
+            }
+
+            final boolean canBeDeoptimized = normalFn.canBeDeoptimized();
+            final MethodHandle newInvoker = optInfo.data.lookup(fn);
+            final Map<Integer, Type> compiledProgramPoints = compiler.getInvalidatedProgramPoints();
+
+            synchronized (this) {
+                invoker     = newInvoker.asType(type().changeReturnType(newInvoker.type().returnType()));
+                constructor = null; // Will be regenerated when needed
+
+                // Keep invalidations the compiler made, and find out whether there were new ones in the meantime.
+                if (compiledProgramPoints != null) {
+                    for (final Map.Entry<Integer, Type> entry : compiledProgramPoints.entrySet()) {
+                        optInfo.invalidatedProgramPoints.putIfAbsent(entry.getKey(), entry.getValue());
+                    }
+                }
+                final boolean stale = compiledProgramPoints == null ?
+                        !optInfo.invalidatedProgramPoints.isEmpty() :
+                        !compiledProgramPoints.entrySet().containsAll(optInfo.invalidatedProgramPoints.entrySet());
+
+                // As in handleRewriteException, only invalidate the old switch point after setting the new invoker.
+                final SwitchPoint oldAssumptions = optInfo.optimisticAssumptions;
+                if (canBeDeoptimized) {
+                    optInfo.newOptimisticAssumptions();
+                } else {
+                    optimismInfo = null;
+                }
+                SwitchPoint.invalidateAll(new SwitchPoint[] { oldAssumptions });
+
+                requeue = stale && canBeDeoptimized;
+                recompilationQueued = requeue;
+                // invocations now run the new code, which needs rest-of methods for other program points
+                restOfMethods = null;
+                notifyAll();
+            }
+
+            log.info("Installed background recompilation of '", fn.getName(), "' (", Debug.id(this), ") ", canBeDeoptimized ? "can still be deoptimized." : " is completely deoptimized.");
+        } catch (final Throwable t) {
+            // Invocations keep using the current code; the next rewrite exception will try again.
+            synchronized (this) {
+                recompilationQueued = false;
+                invokerStale = true;
+                restOfMethods = null;
+            }
+            log.warning("Background recompilation of '", optInfo.data.getName(), "' failed: ", t);
+        }
+
+        if (requeue) {
+            recompilationExecutorService.execute(() -> recompileInBackground(optInfo, ct, runtimeScope, entryPoints));
+        }
+    }
+
+    /**
+     * Compiler needs a call site type as its input, which always has a callee parameter, so we must add it if
+     * this function doesn't have a callee parameter.
+     * @param type the type of this function
+     * @return the call site type to pass to the compiler
+     */
+    private static MethodType getCompilerCallSiteType(final MethodType type) {
+        return type.parameterType(0) == ScriptFunction.class ?
+                type :
+                type.insertParameterTypes(0, ScriptFunction.class);
+    }
+
+    /**
+     * Creates the executor service used for background recompilation of deoptimized functions. Like the AST
+     * serializer executor in {@link RecompilableScriptFunctionData}, it has an unbounded queue and daemon threads
+     * that time out when idle for a minute.
+     * @return an executor service for background recompilation.
+     */
+    private static ExecutorService createRecompilationExecutorService() {
+        final int threads = Math.max(1, Options.getIntProperty("nashorn.recompile.threads", Runtime.getRuntime().availableProcessors() / 2));
+        final ThreadPoolExecutor service = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES, new LinkedBlockingDeque<>(),
+            (r) -> {
+                final Thread t = new Thread(r, "Nashorn Recompiler");
+                t.setDaemon(true);
+                return t;
+            });
+        service.allowCoreThreadTimeOut(true);
+        return service;
+    }
+
     private MethodHandle restOfHandle(final OptimismInfo info, final FunctionNode restOfFunction, final boolean canBeDeoptimized) {
         assert info != null;
         assert restOfFunction.getCompileUnit().getUnitClassName().contains("restOf");
@@ -854,7 +1106,7 @@ final class CompiledFunction {
         }
 
         // If rest-of is itself optimistic, we must make sure that we can repeat a deoptimization if it, too hits an exception.
-        return MH.catchException(restOf, RewriteException.class, createRewriteExceptionHandler());
+        return MH.catchException(restOf, RewriteException.class, createRewriteExceptionHandler(info));
 
     }
 
@@ -877,6 +1129,21 @@ final class CompiledFunction {
         }
 
         boolean requestRecompile(final RewriteException e) {
+            if (!addInvalidatedProgramPoint(e)) {
+                return false;
+            }
+
+            SwitchPoint.invalidateAll(new SwitchPoint[] { optimisticAssumptions });
+
+            return true;
+        }
+
+        /**
+         * Records the program point invalidated by a rewrite exception.
+         * @param e the rewrite exception
+         * @return true if the program point was not invalidated to the same type before.
+         */
+        boolean addInvalidatedProgramPoint(final RewriteException e) {
             final Type retType            = e.getReturnType();
             final Type previousFailedType = invalidatedProgramPoints.put(e.getProgramPoint(), retType);
 
@@ -891,13 +1158,15 @@ final class CompiledFunction {
                 return false;
             }
 
-            SwitchPoint.invalidateAll(new SwitchPoint[] { optimisticAssumptions });
-
             return true;
         }
 
         Compiler getCompiler(final FunctionNode fn, final MethodType actualCallSiteType, final RewriteException e) {
-            return data.getCompiler(fn, actualCallSiteType, e.getRuntimeScope(), invalidatedProgramPoints, getEntryPoints(e));
+            return getCompiler(fn, actualCallSiteType, e, invalidatedProgramPoints);
+        }
+
+        Compiler getCompiler(final FunctionNode fn, final MethodType actualCallSiteType, final RewriteException e, final Map<Integer, Type> programPoints) {
+            return data.getCompiler(fn, actualCallSiteType, e.getRuntimeScope(), programPoints, getEntryPoints(e));
         }
 
         private static int[] getEntryPoints(final RewriteException e) {
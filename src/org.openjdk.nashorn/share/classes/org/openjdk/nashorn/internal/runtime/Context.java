@@ -30,7 +30,9 @@ import static org.openjdk.nashorn.internal.codegen.CompilerConstants.CONSTANTS;
 import static org.openjdk.nashorn.internal.codegen.CompilerConstants.CREATE_PROGRAM_FUNCTION;
 import static org.openjdk.nashorn.internal.codegen.CompilerConstants.SOURCE;
 import static org.openjdk.nashorn.internal.codegen.CompilerConstants.STRICT_MODE;
+import static org.openjdk.nashorn.internal.runtime.CodeStore.newCodeArchive;
 import static org.openjdk.nashorn.internal.runtime.CodeStore.newCodeStore;
+import static org.openjdk.nashorn.internal.runtime.CodeStore.newSharedCodeStore;
 import static org.openjdk.nashorn.internal.runtime.ECMAErrors.typeError;
 import static org.openjdk.nashorn.internal.runtime.ScriptRuntime.UNDEFINED;
 import static org.openjdk.nashorn.internal.runtime.Source.sourceFor;
@@ -43,8 +45,6 @@ import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.invoke.SwitchPoint;
-import java.lang.ref.ReferenceQueue;
-import java.lang.ref.SoftReference;
 import java.lang.module.Configuration;
 import java.lang.module.ModuleDescriptor;
 import java.lang.module.ModuleFinder;
@@ -66,14 +66,14 @@ import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
 import java.security.ProtectionDomain;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.LongAdder;
@@ -158,13 +158,15 @@ public final class Context {
     /**
      * Should scripts use only object slots for fields, or dual long/object slots? The default
      * behaviour is to couple this to optimistic types, using dual representation if optimistic types are enabled
-     * and single field representation otherwise. This can be overridden by setting either the "nashorn.fields.objects"
-     * or "nashorn.fields.dual" system property.
+     * and single field representation otherwise. Without optimistic types, objects allocated by constructors still
+     * start out with dual representation and only switch to single field representation if their properties turn
+     * out to be mostly non-numeric. This can be overridden by setting either the "nashorn.fields.objects" or
+     * "nashorn.fields.dual" system property.
      */
     private final FieldMode fieldMode;
 
     private static enum FieldMode {
-        /** Value for automatic field representation depending on optimistic types setting */
+        /** Value for automatic field representation depending on optimistic types setting and allocated objects */
         AUTO,
         /** Value for object field representation regardless of optimistic types setting */
         OBJECTS,
@@ -202,10 +204,13 @@ public final class Context {
     private abstract static class ContextCodeInstaller implements CodeInstaller {
         final Context context;
         final CodeSource codeSource;
+        // size of class files installed by this installer and the installers derived from it
+        final AtomicLong installedBytes;
 
-        ContextCodeInstaller(final Context context, final CodeSource codeSource) {
+        ContextCodeInstaller(final Context context, final CodeSource codeSource, final AtomicLong installedBytes) {
             this.context = context;
             this.codeSource = codeSource;
+            this.installedBytes = installedBytes;
         }
 
         @Override
@@ -251,14 +256,30 @@ public final class Context {
             if (context.codeStore != null) {
                 context.codeStore.store(cacheKey, source, mainClassName, classBytes, initializers, constants, compilationId);
             }
+            if (context.codeArchive != null && context.env._compile_only) {
+                context.codeArchive.store(cacheKey, source, mainClassName, classBytes, initializers, constants, compilationId);
+            }
+            if (context.sharedCodeStore != null) {
+                context.sharedCodeStore.store(cacheKey, source, mainClassName, classBytes, initializers, constants, compilationId);
+            }
+        }
+
+        @Override
+        public boolean canStoreScripts() {
+            // a code archive is only written to while compiling ahead of time
+            return context.codeStore != null || (context.codeArchive != null && context.env._compile_only) || context.sharedCodeStore != null;
         }
 
         @Override
         public StoredScript loadScript(final Source source, final String functionKey) {
+            StoredScript storedScript = null;
             if (context.codeStore != null) {
-                return context.codeStore.load(source, functionKey);
+                storedScript = context.codeStore.load(source, functionKey);
             }
-            return null;
+            if (storedScript == null && context.sharedCodeStore != null) {
+                storedScript = context.sharedCodeStore.load(source, functionKey);
+            }
+            return storedScript;
         }
 
         @Override
@@ -281,26 +302,33 @@ public final class Context {
         private final static int MAX_USAGES = 10;
         private final static int MAX_BYTES_DEFINED = 200_000;
 
-        private NamedContextCodeInstaller(final Context context, final CodeSource codeSource, final ScriptLoader loader) {
-            super(context, codeSource);
+        private NamedContextCodeInstaller(final Context context, final CodeSource codeSource, final AtomicLong installedBytes, final ScriptLoader loader) {
+            super(context, codeSource, installedBytes);
             this.loader = loader;
         }
 
         @Override
         public Class<?> install(final String className, final byte[] bytecode) {
-            usageCount++;
-            bytesDefined += bytecode.length;
+            // Classes of a compilation may be installed concurrently, see --parallel-class-generation.
+            synchronized (this) {
+                usageCount++;
+                bytesDefined += bytecode.length;
+            }
+            installedBytes.addAndGet(bytecode.length);
             NAMED_INSTALLED_SCRIPT_COUNT.increment();
+            if (context.env._parallel_class_generation) {
+                return loader.installClassConcurrently(Compiler.binaryName(className), bytecode, codeSource);
+            }
             return loader.installClass(Compiler.binaryName(className), bytecode, codeSource);
         }
 
         @Override
-        public CodeInstaller getOnDemandCompilationInstaller() {
+        public synchronized CodeInstaller getOnDemandCompilationInstaller() {
             // Reuse this installer if we're within our limits.
             if (usageCount < MAX_USAGES && bytesDefined < MAX_BYTES_DEFINED) {
                 return this;
             }
-            return new NamedContextCodeInstaller(context, codeSource, context.createNewLoader());
+            return new NamedContextCodeInstaller(context, codeSource, installedBytes, context.createNewLoader());
         }
 
         @Override
@@ -339,14 +367,15 @@ public final class Context {
             });
         }
 
-        private AnonymousContextCodeInstaller(final Context context, final CodeSource codeSource, final Class<?> hostClass) {
-            super(context, codeSource);
+        private AnonymousContextCodeInstaller(final Context context, final CodeSource codeSource, final AtomicLong installedBytes, final Class<?> hostClass) {
+            super(context, codeSource, installedBytes);
             this.hostClass = hostClass;
         }
 
         @Override
         public Class<?> install(final String className, final byte[] bytecode) {
             ANONYMOUS_INSTALLED_SCRIPT_COUNT.increment();
+            installedBytes.addAndGet(bytecode.length);
             try {
                 return (Class<?>)DEFINE_ANONYMOUS_CLASS.invokeExact(hostClass, bytecode, (Object[])null);
             } catch (RuntimeException | Error e) {
@@ -367,7 +396,7 @@ public final class Context {
             // This code loader can not be used to install multiple classes that reference each other, as they
             // would have no resolvable names. Therefore, in such situation we must revert to an installer that
             // produces named classes.
-            return new NamedContextCodeInstaller(context, codeSource, context.createNewLoader());
+            return new NamedContextCodeInstaller(context, codeSource, installedBytes, context.createNewLoader());
         }
 
         private static byte[] getAnonymousHostClassBytes() {
@@ -389,9 +418,24 @@ public final class Context {
     // persistent code store
     private CodeStore codeStore;
 
-    // A factory for linking global properties as constant method handles. It is created when the first Global
-    // is created, and invalidated forever once the second global is created.
-    private final AtomicReference<GlobalConstants> globalConstantsRef = new AtomicReference<>();
+    // archive of scripts compiled ahead of time
+    private CodeStore codeArchive;
+
+    // code store shared with other contexts
+    private CodeStore sharedCodeStore;
+
+    // compilations currently in progress, used to share the result of a compilation between threads
+    // compiling the same source in concurrent compilation mode
+    private final ConcurrentMap<Source, InFlightCompilation> inFlightCompilations = new ConcurrentHashMap<>();
+
+    // Every Global links its properties as constant method handles through its own GlobalConstants. As long as
+    // the Context has a single Global these linkages need no guard on the Global; this switch point invalidates
+    // them when the second Global is created, so that they are relinked with a guard on Global identity.
+    private final SwitchPoint singleGlobalSwitchPoint = new SwitchPoint();
+    private final AtomicInteger globalCount = new AtomicInteger();
+    // Switch points for global constant linkages of all Globals by name, invalidated once a global is reset again
+    // after the Context got more than one Global.
+    private final ConcurrentMap<Object, SwitchPoint> globalConstantSwitchPoints = new ConcurrentHashMap<>();
 
     // Are java.sql, java.sql.rowset modules found in the system?
     static final boolean javaSqlFound, javaSqlRowsetFound;
@@ -431,13 +475,6 @@ public final class Context {
         // This class in a package.access protected package.
         // Trusted code only can call this method.
         assert getGlobal() != global;
-        //same code can be cached between globals, then we need to invalidate method handle constants
-        if (global != null) {
-            final GlobalConstants globalConstants = getContext(global).getGlobalConstants();
-            if (globalConstants != null) {
-                globalConstants.invalidateAll();
-            }
-        }
         currentGlobal.set(global);
     }
 
@@ -656,13 +693,22 @@ public final class Context {
 
         final int cacheSize = env._class_cache_size;
         if (cacheSize > 0) {
-            classCache = new ClassCache(this, cacheSize);
+            classCache = new ClassCache(this, cacheSize, env._class_cache_max_bytes);
         }
 
         if (env._persistent_cache) {
             codeStore = newCodeStore(this);
         }
 
+        if (env._code_archive != null) {
+            // Compiling only is how archives are created
+            codeArchive = newCodeArchive(this, env._code_archive, !env._compile_only);
+        }
+
+        if (env._shared_code_cache) {
+            sharedCodeStore = newSharedCodeStore(this);
+        }
+
         // print version info if asked.
         if (env._version) {
             getErr().println("nashorn " + Version.version());
@@ -693,12 +739,30 @@ public final class Context {
     }
 
     /**
-     * Returns the factory for constant method handles for global properties. The returned factory can be
-     * invalidated if this Context has more than one Global.
-     * @return the factory for constant method handles for global properties.
+     * Returns the switch point for constant method handles of global properties that are linked without
+     * a guard on the Global. It is invalidated once this Context has more than one Global.
+     * @return the switch point guarding unguarded global constant linkages.
+     */
+    SwitchPoint getSingleGlobalSwitchPoint() {
+        return singleGlobalSwitchPoint;
+    }
+
+    /**
+     * Returns the number of Globals created so far in this Context.
+     * @return the number of Globals created.
+     */
+    int getGlobalCount() {
+        return globalCount.get();
+    }
+
+    /**
+     * Returns the switch point for constant method handles of a global property in all Globals of this Context.
+     * It is only used once this Context has more than one Global.
+     * @param name the name of the global property
+     * @return the switch point for the global property.
      */
-    GlobalConstants getGlobalConstants() {
-        return globalConstantsRef.get();
+    SwitchPoint getGlobalConstantSwitchPoint(final Object name) {
+        return globalConstantSwitchPoints.computeIfAbsent(name, k -> new SwitchPoint());
     }
 
     /**
@@ -741,6 +805,15 @@ public final class Context {
         return fieldMode == FieldMode.DUAL || (fieldMode == FieldMode.AUTO && env._optimistic_types);
     }
 
+    /**
+     * Should objects allocated by constructors start out with dual fields and switch to object-only
+     * fields if their properties turn out to be mostly non-numeric?
+     * @return true if constructors adapt the field representation of the objects they allocate
+     */
+    public boolean useAdaptiveFields() {
+        return fieldMode == FieldMode.AUTO && !env._optimistic_types;
+    }
+
     /**
      * Get the PropertyMap of the current global scope
      * @return the property map of the current global scope
@@ -1232,30 +1305,13 @@ public final class Context {
      * @return the global script object
      */
     public Global newGlobal() {
-        createOrInvalidateGlobalConstants();
-        return new Global(this);
-    }
-
-    private void createOrInvalidateGlobalConstants() {
-        for (;;) {
-            final GlobalConstants currentGlobalConstants = getGlobalConstants();
-            if (currentGlobalConstants != null) {
-                // Subsequent invocation; we're creating our second or later Global. GlobalConstants is not safe to use
-                // with more than one Global, as the constant method handle linkages it creates create a coupling
-                // between the Global and the call sites in the compiled code.
-                currentGlobalConstants.invalidateForever();
-                return;
-            }
-            final GlobalConstants newGlobalConstants = new GlobalConstants(getLogger(GlobalConstants.class));
-            if (globalConstantsRef.compareAndSet(null, newGlobalConstants)) {
-                // First invocation; we're creating the first Global in this Context. Create the GlobalConstants object
-                // for this Context.
-                return;
-            }
-
-            // If we reach here, then we started out as the first invocation, but another concurrent invocation won the
-            // CAS race. We'll just let the loop repeat and invalidate the CAS race winner.
+        if (globalCount.incrementAndGet() == 2) {
+            // We're creating our second Global. Constant linkages made for the first Global don't check
+            // the Global they're invoked with, so have them relinked.
+            getLogger(GlobalConstants.class).info("Second global created - relinking global constants with identity guards.");
+            SwitchPoint.invalidateAll(new SwitchPoint[] { singleGlobalSwitchPoint });
         }
+        return new Global(this);
     }
 
     /**
@@ -1451,7 +1507,125 @@ public final class Context {
         return getProgramFunction(compile(source, errMan, this._strict), scope);
     }
 
-    private synchronized Class<?> compile(final Source source, final ErrorManager errMan, final boolean strict) {
+    private Class<?> compile(final Source source, final ErrorManager errMan, final boolean strict) {
+        if (!env._concurrent_compilation) {
+            synchronized (this) {
+                return compileSource(source, errMan, strict);
+            }
+        }
+
+        // The caller's error manager may be shared with other threads, so each compilation counts its own errors
+        // and only forwards them.
+        final ErrorManager compilationErrors = new CompilationErrorManager(errMan);
+        final InFlightCompilation compilation = new InFlightCompilation(strict);
+        final InFlightCompilation existing = inFlightCompilations.putIfAbsent(source, compilation);
+        if (existing != null) {
+            if (existing.strict == strict) {
+                final Class<?> script = existing.result.join();
+                if (script != null) {
+                    return script;
+                }
+            }
+            // Either the strictness differs or the other compilation failed. In the latter case we compile on our
+            // own so that the errors are reported to our error manager.
+            return compileSource(source, compilationErrors, strict);
+        }
+
+        try {
+            final Class<?> script = compileSource(source, compilationErrors, strict);
+            compilation.result.complete(script);
+            return script;
+        } catch (final Throwable t) {
+            compilation.result.complete(null);
+            throw t;
+        } finally {
+            inFlightCompilations.remove(source, compilation);
+        }
+    }
+
+    /**
+     * A compilation in progress in concurrent compilation mode. Threads compiling the same source
+     * wait for its result instead of compiling the source again.
+     */
+    private static final class InFlightCompilation {
+        final boolean strict;
+        final CompletableFuture<Class<?>> result = new CompletableFuture<>();
+
+        InFlightCompilation(final boolean strict) {
+            this.strict = strict;
+        }
+    }
+
+    /**
+     * Error manager of a single compilation in concurrent compilation mode. It counts the errors and warnings of
+     * its compilation and forwards them to the caller's error manager, which is never reset by the compilation.
+     */
+    private static final class CompilationErrorManager extends ErrorManager {
+        private final ErrorManager target;
+        private int errors;
+        private int warnings;
+
+        CompilationErrorManager(final ErrorManager target) {
+            this.target = target;
+            setLimit(target.getLimit());
+            setWarningsAsErrors(target.isWarningsAsErrors());
+        }
+
+        @Override
+        public void error(final ParserException e) {
+            errors++;
+            synchronized (target) {
+                target.error(e);
+            }
+        }
+
+        @Override
+        public void error(final String message) {
+            errors++;
+            synchronized (target) {
+                target.error(message);
+            }
+        }
+
+        @Override
+        public void warning(final ParserException e) {
+            warnings++;
+            synchronized (target) {
+                target.warning(e);
+            }
+        }
+
+        @Override
+        public void warning(final String message) {
+            warnings++;
+            synchronized (target) {
+                target.warning(message);
+            }
+        }
+
+        @Override
+        public boolean hasErrors() {
+            return errors != 0;
+        }
+
+        @Override
+        public int getNumberOfErrors() {
+            return errors;
+        }
+
+        @Override
+        public int getNumberOfWarnings() {
+            return warnings;
+        }
+
+        @Override
+        void reset() {
+            errors = 0;
+            warnings = 0;
+        }
+    }
+
+    private Class<?> compileSource(final Source source, final ErrorManager errMan, final boolean strict) {
         // start with no errors, no warnings.
         errMan.reset();
 
@@ -1463,18 +1637,28 @@ public final class Context {
             }
             return script;
         }
+        final long startTime = System.nanoTime();
 
         StoredScript storedScript = null;
         FunctionNode functionNode = null;
         // Don't use code store if optimistic types is enabled but lazy compilation is not.
         // This would store a full script compilation with many wrong optimistic assumptions that would
         // do more harm than good on later runs with both optimistic types and lazy compilation enabled.
-        final boolean useCodeStore = codeStore != null && !env._parse_only && (!env._optimistic_types || env._lazy_compilation);
-        final String cacheKey = useCodeStore ? CodeStore.getCacheKey("script", null) : null;
+        final boolean storable = !env._parse_only && (!env._optimistic_types || env._lazy_compilation);
+        final boolean useCodeArchive = codeArchive != null && storable;
+        final boolean useCodeStore = codeStore != null && storable;
+        final boolean useSharedCodeStore = sharedCodeStore != null && storable;
+        final String cacheKey = useCodeArchive || useCodeStore || useSharedCodeStore ? CodeStore.getCacheKey("script", null) : null;
 
-        if (useCodeStore) {
+        if (useCodeArchive) {
+            storedScript = codeArchive.load(source, cacheKey);
+        }
+        if (storedScript == null && useCodeStore) {
             storedScript = codeStore.load(source, cacheKey);
         }
+        if (storedScript == null && useSharedCodeStore) {
+            storedScript = sharedCodeStore.load(source, cacheKey);
+        }
 
         if (storedScript == null) {
             if (env._dest_dir != null) {
@@ -1502,21 +1686,25 @@ public final class Context {
 
         final URL          url    = source.getURL();
         final CodeSource   cs     = new CodeSource(url, (CodeSigner[])null);
-        final CodeInstaller installer;
-        if (env._persistent_cache || !env._lazy_compilation || !env.useAnonymousClasses(source.getLength(), () -> AnonymousContextCodeInstaller.initFailure) ) {
-            // Persistent code cache, eager compilation, or inability to use Unsafe.defineAnonymousClass (typically, JDK 17+)
+        final AtomicLong installedBytes = new AtomicLong();
+        final ContextCodeInstaller installer;
+        if (env._persistent_cache || codeArchive != null || sharedCodeStore != null || !env._lazy_compilation || !env.useAnonymousClasses(source.getLength(), () -> AnonymousContextCodeInstaller.initFailure) ) {
+            // Persistent, archived or shared code, eager compilation, or inability to use Unsafe.defineAnonymousClass (typically, JDK 17+)
             // preclude use of VM anonymous classes
             final ScriptLoader loader = env._loader_per_compile ? createNewLoader() : scriptLoader;
-            installer = new NamedContextCodeInstaller(this, cs, loader);
+            installer = new NamedContextCodeInstaller(this, cs, installedBytes, loader);
         } else {
-            installer = new AnonymousContextCodeInstaller(this, cs,
-                    anonymousHostClasses.getOrCreate(cs, (key) ->
-                            createNewLoader().installClass(
-                                    // NOTE: we're defining these constants in AnonymousContextCodeInstaller so they are not
-                                    // initialized if we don't use AnonymousContextCodeInstaller. As this method is only ever
-                                    // invoked from AnonymousContextCodeInstaller, this is okay.
-                                    AnonymousContextCodeInstaller.ANONYMOUS_HOST_CLASS_NAME,
-                                    AnonymousContextCodeInstaller.ANONYMOUS_HOST_CLASS_BYTES, cs)));
+            final Class<?> hostClass;
+            synchronized (anonymousHostClasses) {
+                hostClass = anonymousHostClasses.getOrCreate(cs, (key) ->
+                        createNewLoader().installClass(
+                                // NOTE: we're defining these constants in AnonymousContextCodeInstaller so they are not
+                                // initialized if we don't use AnonymousContextCodeInstaller. As this method is only ever
+                                // invoked from AnonymousContextCodeInstaller, this is okay.
+                                AnonymousContextCodeInstaller.ANONYMOUS_HOST_CLASS_NAME,
+                                AnonymousContextCodeInstaller.ANONYMOUS_HOST_CLASS_BYTES, cs));
+            }
+            installer = new AnonymousContextCodeInstaller(this, cs, installedBytes, hostClass);
         }
 
         if (storedScript == null) {
@@ -1539,7 +1727,7 @@ public final class Context {
             script = storedScript.installScript(source, installer);
         }
 
-        cacheClass(source, script);
+        cacheClass(source, script, installedBytes.get(), System.nanoTime() - startTime);
         return script;
     }
 
@@ -1553,87 +1741,70 @@ public final class Context {
         return uniqueScriptId.getAndIncrement();
     }
 
-    /**
-     * Cache for compiled script classes.
-     */
-    @SuppressWarnings("serial")
-    @Logger(name="classcache")
-    private static class ClassCache extends LinkedHashMap<Source, ClassReference> implements Loggable {
-        private final int size;
-        private final ReferenceQueue<Class<?>> queue;
-        private final DebugLogger log;
-
-        ClassCache(final Context context, final int size) {
-            super(size, 0.75f, true);
-            this.size = size;
-            this.queue = new ReferenceQueue<>();
-            this.log   = initLogger(context);
-        }
-
-        void cache(final Source source, final Class<?> clazz) {
-            if (log.isEnabled()) {
-                log.info("Caching ", source, " in class cache");
-            }
-            put(source, new ClassReference(clazz, queue, source));
-        }
-
-        @Override
-        protected boolean removeEldestEntry(final Map.Entry<Source, ClassReference> eldest) {
-            return size() > size;
-        }
-
-        @Override
-        public ClassReference get(final Object key) {
-            for (ClassReference ref; (ref = (ClassReference)queue.poll()) != null; ) {
-                final Source source = ref.source;
-                if (log.isEnabled()) {
-                    log.info("Evicting ", source, " from class cache.");
-                }
-                remove(source);
-            }
-
-            final ClassReference ref = super.get(key);
-            if (ref != null && log.isEnabled()) {
-                log.info("Retrieved class reference for ", ref.source, " from class cache");
-            }
-            return ref;
-        }
+    // Class cache management
+    private Class<?> findCachedClass(final Source source) {
+        return classCache == null ? null : classCache.get(source);
+    }
 
-        @Override
-        public DebugLogger initLogger(final Context context) {
-            return context.getLogger(getClass());
+    private void cacheClass(final Source source, final Class<?> clazz, final long classBytes, final long loadNanos) {
+        if (classCache != null) {
+            classCache.cache(source, clazz, classBytes, loadNanos);
         }
+    }
 
-        @Override
-        public DebugLogger getLogger() {
-            return log;
-        }
+    /**
+     * Returns the number of class cache lookups that found a compiled class for the source.
+     * @return the number of class cache hits, or 0 if the class cache is disabled
+     */
+    public long getClassCacheHitCount() {
+        return classCache == null ? 0 : classCache.getHitCount();
+    }
 
+    /**
+     * Returns the number of class cache lookups that did not find a compiled class for the source.
+     * @return the number of class cache misses, or 0 if the class cache is disabled
+     */
+    public long getClassCacheMissCount() {
+        return classCache == null ? 0 : classCache.getMissCount();
     }
 
-    private static class ClassReference extends SoftReference<Class<?>> {
-        private final Source source;
+    /**
+     * Returns the number of classes removed from the class cache, either to make room for other
+     * classes or because they were garbage collected.
+     * @return the number of class cache evictions, or 0 if the class cache is disabled
+     */
+    public long getClassCacheEvictionCount() {
+        return classCache == null ? 0 : classCache.getEvictionCount();
+    }
 
-        ClassReference(final Class<?> clazz, final ReferenceQueue<Class<?>> queue, final Source source) {
-            super(clazz, queue);
-            this.source = source;
-        }
+    /**
+     * Returns the number of compiled classes that were not admitted to the class cache because they
+     * were too large, or less frequently used than the classes already cached.
+     * @return the number of class cache rejections, or 0 if the class cache is disabled
+     */
+    public long getClassCacheRejectionCount() {
+        return classCache == null ? 0 : classCache.getRejectionCount();
     }
 
-    // Class cache management
-    private Class<?> findCachedClass(final Source source) {
-        final ClassReference ref = classCache == null ? null : classCache.get(source);
-        return ref != null ? ref.get() : null;
+    /**
+     * Returns the total time spent compiling or loading scripts after a class cache miss.
+     * @return the class cache load time in nanoseconds, or 0 if the class cache is disabled
+     */
+    public long getClassCacheLoadTime() {
+        return classCache == null ? 0 : classCache.getLoadTime();
     }
 
-    private void cacheClass(final Source source, final Class<?> clazz) {
-        if (classCache != null) {
-            classCache.cache(source, clazz);
-        }
+    /**
+     * Returns the estimated size of the classes in the class cache, as the total size of the class files
+     * installed for them.
+     * @return the class cache size in bytes, or 0 if the class cache is disabled
+     */
+    public long getClassCacheWeight() {
+        return classCache == null ? 0 : classCache.getWeight();
     }
 
     // logging
-    private final Map<String, DebugLogger> loggers = new HashMap<>();
+    private final Map<String, DebugLogger> loggers = new ConcurrentHashMap<>();
 
     private void initLoggers() {
         ((Loggable)MethodHandleFactory.getFunctionality()).initLogger(this);
@@ -1666,7 +1837,10 @@ public final class Context {
             if (initHook != null) {
                 initHook.accept(logger);
             }
-            loggers.put(name, logger);
+            final DebugLogger existing = loggers.putIfAbsent(name, logger);
+            if (existing != null) {
+                return existing;
+            }
         }
         return logger;
     }
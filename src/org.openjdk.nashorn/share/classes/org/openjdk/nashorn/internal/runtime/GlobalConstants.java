@@ -38,7 +38,6 @@ import java.lang.invoke.SwitchPoint;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import jdk.dynalink.CallSiteDescriptor;
 import jdk.dynalink.DynamicLinker;
@@ -47,12 +46,13 @@ import jdk.dynalink.linker.LinkRequest;
 import org.openjdk.nashorn.internal.lookup.Lookup;
 import org.openjdk.nashorn.internal.lookup.MethodHandleFactory;
 import org.openjdk.nashorn.internal.runtime.linker.NashornCallSiteDescriptor;
+import org.openjdk.nashorn.internal.runtime.linker.NashornGuards;
 import org.openjdk.nashorn.internal.runtime.logging.DebugLogger;
 import org.openjdk.nashorn.internal.runtime.logging.Loggable;
 import org.openjdk.nashorn.internal.runtime.logging.Logger;
 
 /**
- * Each context owns one of these. This is basically table of accessors
+ * Each global owns one of these. This is basically table of accessors
  * for global properties. A global constant is evaluated to a MethodHandle.constant
  * for faster access and to avoid walking to proto chain looking for it.
  *
@@ -70,18 +70,27 @@ import org.openjdk.nashorn.internal.runtime.logging.Logger;
  * just end up relinking our way into megamorphism.
  *
  * Also it has to be noted that this kind of linking creates a coupling between a Global
- * and the call sites in compiled code belonging to the Context. For this reason, the
- * linkage becomes incorrect as soon as the Context has more than one Global. The
- * {@link #invalidateForever()} is invoked by the Context to invalidate all linkages and
- * turn off the functionality of this object as soon as the Context's {@link Context#newGlobal()} is invoked
- * for second time.
+ * and the call sites in compiled code belonging to the Context, which is shared by all
+ * Globals of the Context. As long as the Context has a single Global, constant linkages
+ * don't need any guard on the receiver. They are additionally bound to a switch point of
+ * the Context that is invalidated when {@link Context#newGlobal()} is invoked for the
+ * second time. From then on, constant getters and setters are linked with an identity
+ * guard on the Global they were linked for, so every Global of the Context gets its own
+ * constant linkage. As these linkages are chained at shared call sites, every relink is
+ * repeated for each Global and counts towards the unstable relink threshold of the call
+ * site. To keep call sites from becoming megamorphic, only as many Globals as half the
+ * unstable relink threshold link constants, later ones use the standard access strategy.
+ * Also, once the Context has more than one Global, a global that is reset while linked as
+ * a constant in any of them is not linked as a constant in any Global again. Such linkages
+ * are also bound to a switch point per name shared by all Globals of the Context, so that
+ * they are all dropped with a single relink of a call site.
  *
  * We can extend this to ScriptObjects in general (GLOBAL_ONLY=false), which requires
  * a receiver guard on the constant getter, but it currently leaks memory and its benefits
  * have not yet been investigated property.
  *
- * As long as all Globals in a Context share the same GlobalConstants instance, we need synchronization
- * whenever we access it.
+ * Globals may be used by several threads, so we need synchronization whenever we access
+ * this object.
  */
 @Logger(name="const")
 public final class GlobalConstants implements Loggable {
@@ -101,20 +110,30 @@ public final class GlobalConstants implements Loggable {
     /** Logger for constant getters */
     private final DebugLogger log;
 
+    /** Context of the global */
+    private final Context context;
+
     /**
      * Access map for this global - associates a symbol name with an Access object, with getter
      * and invalidation information
      */
     private final Map<Object, Access> map = new HashMap<>();
 
-    private final AtomicBoolean invalidatedForever = new AtomicBoolean(false);
+    /** Switch point of the Context, invalidated when it gets more than one Global */
+    private final SwitchPoint singleGlobalSwitchPoint;
+
+    /** Is constant linkage disabled because the Context has too many Globals? */
+    private final boolean disabled;
 
     /**
      * Constructor - used only by global
-     * @param log logger, or null if none
+     * @param context the context of the global
      */
-    public GlobalConstants(final DebugLogger log) {
-        this.log = log == null ? DebugLogger.DISABLED_LOGGER : log;
+    public GlobalConstants(final Context context) {
+        this.log = context.getLogger(GlobalConstants.class);
+        this.context = context;
+        this.singleGlobalSwitchPoint = context.getSingleGlobalSwitchPoint();
+        this.disabled = context.getGlobalCount() > Math.max(1, context.getEnv()._unstable_relink_threshold / 2);
     }
 
     @Override
@@ -143,6 +162,9 @@ public final class GlobalConstants implements Loggable {
         /** has a guard guarding this property getter failed? */
         private boolean guardFailed;
 
+        /** has a getter been linked with the current switchpoint? */
+        private boolean hasGetters;
+
         private static final int MAX_RETRIES = 2;
 
         private Access(final String name, final SwitchPoint sp) {
@@ -166,6 +188,15 @@ public final class GlobalConstants implements Loggable {
         private void newSwitchPoint() {
             assert hasBeenInvalidated();
             sp = new SwitchPoint();
+            hasGetters = false;
+        }
+
+        private boolean hasGetters() {
+            return hasGetters;
+        }
+
+        private void addGetter() {
+            hasGetters = true;
         }
 
         private void invalidate(final int count) {
@@ -175,13 +206,6 @@ public final class GlobalConstants implements Loggable {
             }
         }
 
-        /**
-         * Invalidate the access, but do not contribute to the invalidation count
-         */
-        private void invalidateUncounted() {
-            invalidate(0);
-        }
-
         /**
          * Invalidate the access, and contribute 1 to the invalidation count
          */
@@ -220,44 +244,6 @@ public final class GlobalConstants implements Loggable {
         }
     }
 
-    /**
-     * To avoid an expensive global guard "is this the same global", similar to the
-     * receiver guard on the ScriptObject level, we invalidate all getters once
-     * when we switch globals. This is used from the class cache. We _can_ reuse
-     * the same class for a new global, but the builtins and global scoped variables
-     * will have changed.
-     */
-    public void invalidateAll() {
-        if (!invalidatedForever.get()) {
-            log.info("New global created - invalidating all constant callsites without increasing invocation count.");
-            synchronized (this) {
-                for (final Access acc : map.values()) {
-                    acc.invalidateUncounted();
-                }
-            }
-        }
-    }
-
-    /**
-     * To avoid an expensive global guard "is this the same global", similar to the
-     * receiver guard on the ScriptObject level, we invalidate all getters when the
-     * second Global is created by the Context owning this instance. After this
-     * method is invoked, this GlobalConstants instance will both invalidate all the
-     * switch points it produced, and it will stop handing out new method handles
-     * altogether.
-     */
-    public void invalidateForever() {
-        if (invalidatedForever.compareAndSet(false, true)) {
-            log.info("New global created - invalidating all constant callsites.");
-            synchronized (this) {
-                for (final Access acc : map.values()) {
-                    acc.invalidateForever();
-                }
-                map.clear();
-            }
-        }
-    }
-
     /**
      * Invalidate the switchpoint of an access - we have written to
      * the property
@@ -272,6 +258,10 @@ public final class GlobalConstants implements Loggable {
         if (log.isEnabled()) {
             log.info("*** Invalidating switchpoint " + acc.getSwitchPoint() + " for receiver=" + obj + " access=" + acc);
         }
+        if (acc.hasGetters() && isMultiGlobal()) {
+            // the getters are relinked at call sites shared by all Globals, don't let each Global do it again
+            invalidateInAllGlobals(acc.getName());
+        }
         acc.invalidateOnce();
         if (acc.mayRetry()) {
             if (log.isEnabled()) {
@@ -301,14 +291,13 @@ public final class GlobalConstants implements Loggable {
      * that might be linked as MethodHandle.constant and force relink
      * @param name name of property
      */
-    void delete(final Object name) {
-        if (!invalidatedForever.get()) {
-            synchronized (this) {
-                final Access acc = map.get(name);
-                if (acc != null) {
-                    acc.invalidateForever();
-                }
-            }
+    synchronized void delete(final Object name) {
+        if (isMultiGlobal()) {
+            invalidateInAllGlobals(name);
+        }
+        final Access acc = map.get(name);
+        if (acc != null) {
+            acc.invalidateForever();
         }
     }
 
@@ -335,6 +324,51 @@ public final class GlobalConstants implements Loggable {
         return id;
     }
 
+    private boolean isMultiGlobal() {
+        return singleGlobalSwitchPoint.hasBeenInvalidated();
+    }
+
+    private void invalidateInAllGlobals(final Object name) {
+        final SwitchPoint sp = context.getGlobalConstantSwitchPoint(name);
+        if (!sp.hasBeenInvalidated()) {
+            log.info("Invalidating " + quote(name.toString()) + " in all globals");
+            SwitchPoint.invalidateAll(new SwitchPoint[] { sp });
+        }
+    }
+
+    private boolean isInvalidatedInAllGlobals(final Object name) {
+        return context.getGlobalConstantSwitchPoint(name).hasBeenInvalidated();
+    }
+
+    /**
+     * Switch points for a constant linkage. As long as the Context has a single Global, the
+     * linkage is not guarded on the Global and must also be invalidated when the second one
+     * is created. Otherwise it must also be invalidated when the property is invalidated in
+     * all Globals.
+     *
+     * @param acc         access
+     * @param multiGlobal does the Context have more than one Global
+     * @return the switch points of the linkage
+     */
+    private SwitchPoint[] getSwitchPoints(final Access acc, final boolean multiGlobal) {
+        if (multiGlobal) {
+            return new SwitchPoint[] { acc.getSwitchPoint(), context.getGlobalConstantSwitchPoint(acc.getName()) };
+        }
+        return new SwitchPoint[] { acc.getSwitchPoint(), singleGlobalSwitchPoint };
+    }
+
+    /**
+     * Guard for a constant linkage of a Global. As long as the Context has a single Global,
+     * no guard is needed.
+     *
+     * @param global      the global the linkage is made for
+     * @param multiGlobal does the Context have more than one Global
+     * @return the identity guard, or null if none is needed
+     */
+    private static MethodHandle getGlobalGuard(final ScriptObject global, final boolean multiGlobal) {
+        return multiGlobal ? NashornGuards.getIdentityGuard(global) : null;
+    }
+
     private static boolean isGlobalSetter(final ScriptObject receiver, final FindProperty find) {
         if (find == null) {
             return receiver.isScope();
@@ -353,20 +387,21 @@ public final class GlobalConstants implements Loggable {
      * @return null if failed to set up constant linkage
      */
     GuardedInvocation findSetMethod(final FindProperty find, final ScriptObject receiver, final GuardedInvocation inv, final CallSiteDescriptor desc, final LinkRequest request) {
-        if (invalidatedForever.get() || (GLOBAL_ONLY && !isGlobalSetter(receiver, find))) {
+        if (disabled || (GLOBAL_ONLY && !isGlobalSetter(receiver, find))) {
             return null;
         }
 
         final String name = NashornCallSiteDescriptor.getOperand(desc);
 
         synchronized (this) {
-            final Access acc  = getOrCreateSwitchPoint(name);
+            final Access  acc         = getOrCreateSwitchPoint(name);
+            final boolean multiGlobal = isMultiGlobal();
 
             if (log.isEnabled()) {
                 log.fine("Trying to link constant SETTER ", acc);
             }
 
-            if (!acc.mayRetry() || invalidatedForever.get()) {
+            if (!acc.mayRetry() || (multiGlobal && isInvalidatedInAllGlobals(name))) {
                 if (log.isEnabled()) {
                     log.fine("*** SET: Giving up on " + quote(name) + " - retry count has exceeded " + DynamicLinker.getLinkedCallSiteLocation());
                 }
@@ -387,9 +422,12 @@ public final class GlobalConstants implements Loggable {
             final MethodHandle invalidator      = MH.asType(boundInvalidator, boundInvalidator.type().changeParameterType(0, receiverType).changeReturnType(receiverType));
             final MethodHandle mh               = MH.filterArguments(inv.getInvocation(), 0, MH.insertArguments(invalidator, 1, acc));
 
+            // Globals can share their property maps, so the setter must not be invoked for another Global
+            final MethodHandle guard            = NashornGuards.combineGuards(inv.getGuard(), getGlobalGuard(receiver, multiGlobal));
+
             assert inv.getSwitchPoints() == null : Arrays.asList(inv.getSwitchPoints());
             log.info("Linked setter " + quote(name) + " " + acc.getSwitchPoint());
-            return new GuardedInvocation(mh, inv.getGuard(), acc.getSwitchPoint(), inv.getException());
+            return new GuardedInvocation(mh, guard, getSwitchPoints(acc, multiGlobal), inv.getException());
         }
     }
 
@@ -423,7 +461,7 @@ public final class GlobalConstants implements Loggable {
         // Only use constant getter for fast scope access, because the receiver may change between invocations
         // for slow-scope and non-scope callsites.
         // Also return null for user accessor properties as they may have side effects.
-        if (invalidatedForever.get() || !NashornCallSiteDescriptor.isFastScope(desc)
+        if (disabled || !NashornCallSiteDescriptor.isFastScope(desc)
                 || (GLOBAL_ONLY && !find.getOwner().isGlobal())
                 || find.getProperty() instanceof UserAccessorProperty) {
             return null;
@@ -435,7 +473,8 @@ public final class GlobalConstants implements Loggable {
         final String   name         = NashornCallSiteDescriptor.getOperand(desc);
 
         synchronized (this) {
-            final Access acc = getOrCreateSwitchPoint(name);
+            final Access  acc         = getOrCreateSwitchPoint(name);
+            final boolean multiGlobal = isMultiGlobal();
 
             log.fine("Starting to look up object value " + name);
             final Object c = find.getObjectValue();
@@ -444,7 +483,7 @@ public final class GlobalConstants implements Loggable {
                 log.fine("Trying to link constant GETTER " + acc + " value = " + c);
             }
 
-            if (acc.hasBeenInvalidated() || acc.guardFailed() || invalidatedForever.get()) {
+            if (acc.hasBeenInvalidated() || acc.guardFailed() || (multiGlobal && isInvalidatedInAllGlobals(name))) {
                 if (log.isEnabled()) {
                     log.info("*** GET: Giving up on " + quote(name) + " - retry count has exceeded " + DynamicLinker.getLinkedCallSiteLocation());
                 }
@@ -470,7 +509,7 @@ public final class GlobalConstants implements Loggable {
             }
 
             if (find.getOwner().isGlobal()) {
-                guard = null;
+                guard = getGlobalGuard(find.getOwner(), multiGlobal);
             } else {
                 guard = MH.insertArguments(RECEIVER_GUARD, 0, acc, receiver);
             }
@@ -480,7 +519,8 @@ public final class GlobalConstants implements Loggable {
                 mh = MethodHandleFactory.addDebugPrintout(log, Level.FINE, mh, "get const " + acc);
             }
 
-            return new GuardedInvocation(mh, guard, acc.getSwitchPoint(), null);
+            acc.addGetter();
+            return new GuardedInvocation(mh, guard, getSwitchPoints(acc, multiGlobal), null);
         }
     }
 }
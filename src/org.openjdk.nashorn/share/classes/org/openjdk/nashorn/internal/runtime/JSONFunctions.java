@@ -25,7 +25,14 @@
 
 package org.openjdk.nashorn.internal.runtime;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
 import org.openjdk.nashorn.internal.objects.Global;
 import org.openjdk.nashorn.internal.parser.JSONParser;
 import org.openjdk.nashorn.internal.runtime.arrays.ArrayIndex;
@@ -55,17 +62,31 @@ public final class JSONFunctions {
     }
 
     /**
-     * Parses the given JSON text string and returns object representation.
+     * Appends JSON-compatible quoted version of the given string to a string builder.
+     *
+     * @param str String to be quoted
+     * @param sb the string builder to append to
+     */
+    public static void quote(final String str, final StringBuilder sb) {
+        JSONParser.quote(str, sb);
+    }
+
+    /**
+     * Parses the given JSON text and returns object representation. The text is either
+     * converted to a string, or, if it is a {@link Reader}, an {@link InputStream} or a
+     * {@link ByteBuffer}, read and parsed incrementally without holding all of it in memory.
+     * Bytes are decoded as UTF-8. Readers and input streams are not closed, and the position
+     * of byte buffers is not changed.
      *
      * @param text JSON text to be parsed
      * @param reviver  optional value: function that takes two parameters (key, value)
      * @return Object representation of JSON text given
+     * @throws UncheckedIOException if the text can't be read
      */
     public static Object parse(final Object text, final Object reviver) {
-        final String     str    = JSType.toString(text);
         final Global     global = Context.getGlobal();
         final boolean    dualFields = ((ScriptObject) global).useDualFields();
-        final JSONParser parser = new JSONParser(str, global, dualFields);
+        final JSONParser parser = createParser(text, global, dualFields);
         final Object     value;
 
         try {
@@ -77,10 +98,88 @@ public final class JSONFunctions {
         return applyReviver(global, value, reviver);
     }
 
+    /**
+     * Parses the given JSON text and returns an object representation whose nested objects
+     * and arrays are only created when they are first read. The text is converted to a string
+     * and validated as a whole before this method returns. The string is retained as long as
+     * any of its values has not been read.
+     *
+     * @param text JSON text to be parsed
+     * @return Object representation of JSON text given
+     */
+    public static Object parseLazily(final Object text) {
+        final Global     global = Context.getGlobal();
+        final boolean    dualFields = ((ScriptObject) global).useDualFields();
+        final JSONParser parser = new JSONParser(JSType.toString(text), global, dualFields);
+
+        try {
+            return parser.parseLazily();
+        } catch (final ParserException e) {
+            throw ECMAErrors.syntaxError(e, "invalid.json", e.getMessage());
+        }
+    }
+
+    /**
+     * Converts a tree of Java maps and lists to script objects and arrays like {@link #parseLazily(Object)}
+     * would parse its JSON text. Maps and lists that are values of object properties are converted when
+     * the properties are first read.
+     *
+     * @param value the Java value to convert
+     * @return the script value
+     */
+    public static Object convertLazily(final Object value) {
+        final Global     global = Context.getGlobal();
+        final boolean    dualFields = ((ScriptObject) global).useDualFields();
+        return new JSONParser("", global, dualFields).convertLazily(value);
+    }
+
     // -- Internals only below this point
 
     // parse helpers
 
+    private static JSONParser createParser(final Object text, final Global global, final boolean dualFields) {
+        if (text instanceof Reader) {
+            return new JSONParser((Reader) text, global, dualFields);
+        } else if (text instanceof InputStream) {
+            return new JSONParser(new InputStreamReader((InputStream) text, UTF_8), global, dualFields);
+        } else if (text instanceof ByteBuffer) {
+            final InputStream in = new ByteBufferInputStream(((ByteBuffer) text).duplicate());
+            return new JSONParser(new InputStreamReader(in, UTF_8), global, dualFields);
+        }
+        return new JSONParser(JSType.toString(text), global, dualFields);
+    }
+
+    // input stream reading the remaining bytes of a byte buffer
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (len == 0) {
+                return 0;
+            } else if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            final int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
     // apply 'reviver' function if available
     private static Object applyReviver(final Global global, final Object unfiltered, final Object reviver) {
         if (Bootstrap.isCallable(reviver)) {
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.openjdk.nashorn.internal.runtime;
+
+import static org.openjdk.nashorn.internal.lookup.Lookup.MH;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Spill property whose value may be computed when it is first read. Until then, the spill
+ * slot holds a {@link LazyValue}, which the getter replaces with the value it computes.
+ * The replacement is a compare-and-set, so threads reading the property at the same time
+ * all get the value that was stored first. The property otherwise behaves like a
+ * {@link SpillProperty}.
+ */
+public final class LazySpillProperty extends SpillProperty {
+    private static final long serialVersionUID = -4139447010231839375L;
+
+    private static final MethodHandle GET_LAZY = MH.findStatic(MethodHandles.lookup(), LazySpillProperty.class, "getLazy",
+            MH.type(Object.class, Object.class, int.class));
+
+    private static final VarHandle SPILL_ELEMENT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    /**
+     * Placeholder for the value of a lazy spill property.
+     */
+    public interface LazyValue {
+        /**
+         * Compute the value of the property.
+         *
+         * @return the value
+         */
+        Object materialize();
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param key    the property key
+     * @param flags  the property flags
+     * @param slot   spill slot
+     */
+    public LazySpillProperty(final String key, final int flags, final int slot) {
+        super(key, flags, slot, Object.class);
+        objectGetter = lazyGetter(slot);
+    }
+
+    private LazySpillProperty(final LazySpillProperty property) {
+        super(property);
+    }
+
+    private LazySpillProperty(final LazySpillProperty property, final Class<?> newType) {
+        super(property, newType);
+    }
+
+    @Override
+    public Property copy() {
+        return new LazySpillProperty(this);
+    }
+
+    @Override
+    public Property copy(final Class<?> newType) {
+        return new LazySpillProperty(this, newType);
+    }
+
+    @Override
+    void initMethodHandles(final Class<?> structure) {
+        super.initMethodHandles(structure);
+        objectGetter = lazyGetter(getSlot());
+    }
+
+    private static MethodHandle lazyGetter(final int slot) {
+        return MH.insertArguments(GET_LAZY, 1, slot);
+    }
+
+    // Also used to materialize the values of an object before it is copied.
+    static Object getLazy(final Object self, final int slot) {
+        final Object[] spill = ((ScriptObject)self).objectSpill;
+        final Object value = SPILL_ELEMENT.getVolatile(spill, slot);
+        if (value instanceof LazyValue) {
+            final Object materialized = ((LazyValue)value).materialize();
+            // another thread may have stored its own materialization, or a new value, in the meantime
+            final Object witness = SPILL_ELEMENT.compareAndExchange(spill, slot, value, materialized);
+            return witness == value ? materialized : witness;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.openjdk.nashorn.internal.runtime;
+
+import java.lang.invoke.SwitchPoint;
+
+/**
+ * Property lookup cache of a megamorphic call site.
+ * <p>
+ * Once a call site has been relinked too often it is linked to a generic getter or setter
+ * that would otherwise look up the property on every access. This cache maps the property
+ * map of the receiver to the property found by that lookup and the length of the prototype
+ * chain between the receiver and the owner of the property, so that a lookup costs a probe
+ * of a small open addressed table rather than a walk of the prototype chain. The table starts
+ * small and grows when there is no free slot near the hash of a map, up to a fixed maximum
+ * size after which colliding entries replace each other.
+ * <p>
+ * Just like the getter linked for an inherited property, an entry for an inherited property
+ * is only valid as long as the prototype chain switch point of the receiver has not been
+ * invalidated. Entries are immutable, so the cache is updated without synchronization.
+ */
+final class MegamorphicCache {
+    /** Initial and maximum number of entries, must be powers of two. */
+    private static final int INITIAL_SIZE = 8;
+    private static final int MAX_SIZE     = 256;
+    /** Number of consecutive slots an entry may be stored in. */
+    private static final int PROBES       = 4;
+
+    private Entry[] entries = new Entry[INITIAL_SIZE];
+
+    /**
+     * Get the valid entry for a receiver map.
+     *
+     * @param map the property map of the receiver
+     * @return the entry, or null if there is none
+     */
+    Entry get(final PropertyMap map) {
+        final Entry[] table = entries;
+        final int mask = table.length - 1;
+        final int index = hash(map);
+        for (int i = 0; i < PROBES; i++) {
+            final Entry entry = table[(index + i) & mask];
+            if (entry == null) {
+                return null;
+            } else if (entry.map == map) {
+                return entry.isValid() ? entry : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cache the result of a property lookup.
+     *
+     * @param map the property map of the receiver
+     * @param find the property lookup result
+     * @param switchPoints prototype chain switch points of an inherited property, or null
+     */
+    void put(final PropertyMap map, final FindProperty find, final SwitchPoint[] switchPoints) {
+        final Entry entry = new Entry(map, find.getProperty(), find.getProtoChainLength(), switchPoints);
+        Entry[] table = entries;
+        while (!insert(table, entry)) {
+            if (table.length == MAX_SIZE) {
+                table[hash(map) & (MAX_SIZE - 1)] = entry;
+                return;
+            }
+            table = rehash(table, table.length * 2);
+        }
+    }
+
+    private static boolean insert(final Entry[] table, final Entry entry) {
+        final int mask = table.length - 1;
+        final int index = hash(entry.map);
+        for (int i = 0; i < PROBES; i++) {
+            final Entry existing = table[(index + i) & mask];
+            if (existing == null || existing.map == entry.map || !existing.isValid()) {
+                table[(index + i) & mask] = entry;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Entries lost to concurrent updates are simply looked up again.
+    private Entry[] rehash(final Entry[] table, final int length) {
+        final Entry[] newTable = new Entry[length];
+        for (final Entry entry : table) {
+            if (entry != null && entry.isValid()) {
+                insert(newTable, entry);
+            }
+        }
+        entries = newTable;
+        return newTable;
+    }
+
+    private static int hash(final PropertyMap map) {
+        final int hash = System.identityHashCode(map);
+        return hash ^ hash >>> 16;
+    }
+
+    static final class Entry {
+        final PropertyMap map;
+        final Property property;
+        private final int depth;
+        private final SwitchPoint[] switchPoints;
+
+        Entry(final PropertyMap map, final Property property, final int depth, final SwitchPoint[] switchPoints) {
+            this.map = map;
+            this.property = property;
+            this.depth = depth;
+            this.switchPoints = switchPoints;
+        }
+
+        private boolean isValid() {
+            if (switchPoints != null) {
+                for (final SwitchPoint switchPoint : switchPoints) {
+                    if (switchPoint.hasBeenInvalidated()) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Get the value of the cached property.
+         *
+         * @param self the receiver
+         * @return the property value
+         */
+        Object getObjectValue(final ScriptObject self) {
+            ScriptObject owner = self;
+            for (int i = 0; i < depth; i++) {
+                owner = owner.getProto();
+            }
+            return property.getObjectValue(property.isAccessorProperty() ? self : owner, owner);
+        }
+    }
+}
@@ -75,6 +75,9 @@ abstract class NashornLoader extends SecureClassLoader {
                 new RuntimePermission("accessClassInPackage." + SCRIPTS_PKG),
                 new RuntimePermission("accessClassInPackage." + RUNTIME_ARRAYS_PKG)
         };
+
+        // Allow subclasses to be parallel capable, see ScriptLoader.
+        ClassLoader.registerAsParallelCapable();
     }
 
     // addExport Method object on ModuleGraphManipulator
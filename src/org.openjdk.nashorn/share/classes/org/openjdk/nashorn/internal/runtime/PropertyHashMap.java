@@ -25,6 +25,8 @@
 
 package org.openjdk.nashorn.internal.runtime;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -50,9 +52,9 @@ import org.openjdk.nashorn.internal.runtime.options.Options;
  * of itself to optimize lookup performance.
  * <p>
  * A separate chronological list is kept for quick generation of keys and values, and,
- * for rehashing. For very small maps where the overhead of the hash table would
- * outweigh its benefits we deliberately avoid creating a hash structure and use the
- * chronological list alone for element storage.
+ * for rehashing. For small maps where the overhead of the hash table would
+ * outweigh its benefits we deliberately avoid creating a hash structure and use a
+ * compact array representation, or the chronological list alone, for element storage.
  * <p>
  * Details:
  * <p>
@@ -104,7 +106,13 @@ import org.openjdk.nashorn.internal.runtime.options.Options;
  * cloning an entire LinkedHashMap.  Plus removal is far more rare than addition.
  * <p>
  * One more optimization.  Maps with a small number of entries don't use the hash
- * map at all, the chronological list is used instead.
+ * map at all, they are stored in compact form instead: the key hash codes go into one
+ * array, and keys and properties into another one, in chronological order.  A search
+ * scans the hash codes.  The arrays have some spare capacity and are shared with the maps
+ * derived from a map by adding properties: the first map derived from a map takes the
+ * next free slot of its arrays, only later ones have to copy them.  A map never reads
+ * slots beyond its own size, so it doesn't see the properties of its descendants.  Maps
+ * built from larger maps by removing properties use the chronological list instead.
  * <p>
  * So the benefits from immutable arrays are; fewer objects and less copying.  For
  * immutable hash map, when no removal is involved, the number of elements per
@@ -120,6 +128,9 @@ public final class PropertyHashMap implements Map <Object, Property> {
     /** Threshold before using bins. */
     private static final int LIST_THRESHOLD = 8;
 
+    /** Maximum number of properties of a map in compact form. */
+    private static final int COMPACT_THRESHOLD = 16;
+
     /** Threshold before adding new elements to queue instead of directly adding to hash bins. */
     private static final int QUEUE_THRESHOLD = Options.getIntProperty("nashorn.propmap.queue.threshold", 500);
 
@@ -141,6 +152,9 @@ public final class PropertyHashMap implements Map <Object, Property> {
     /** Queue for adding elements to large maps with delayed hashing. */
     private ElementQueue queue;
 
+    /** Storage of a map in compact form, or null. */
+    private final CompactStorage compact;
+
     /** All properties as an array (lazy). */
     private Property[] properties;
 
@@ -148,11 +162,22 @@ public final class PropertyHashMap implements Map <Object, Property> {
      * Empty map constructor.
      */
     private PropertyHashMap() {
-        this.size      = 0;
+        this(CompactStorage.EMPTY, 0);
+    }
+
+    /**
+     * Constructor used internally to create new maps in compact form.
+     *
+     * @param compact the compact storage
+     * @param size the number of properties
+     */
+    private PropertyHashMap(final CompactStorage compact, final int size) {
+        this.size      = size;
         this.threshold = 0;
         this.bins      = null;
         this.queue     = null;
         this.list      = null;
+        this.compact   = compact;
     }
 
     /**
@@ -171,6 +196,7 @@ public final class PropertyHashMap implements Map <Object, Property> {
         }
         this.list      = map.list;
         this.threshold = map.bins != null ? threeQuarters(map.bins.length) : 0;
+        this.compact   = null;
     }
 
     /**
@@ -182,7 +208,10 @@ public final class PropertyHashMap implements Map <Object, Property> {
      */
     public PropertyHashMap immutableReplace(final Property property, final Property newProperty) {
         assert property.getKey().equals(newProperty.getKey()) : "replacing properties with different keys: '" + property.getKey() + "' != '" + newProperty.getKey() + "'";
-        assert findElement(property.getKey()) != null         : "replacing property that doesn't exist in map: '" + property.getKey() + "'";
+        assert find(property.getKey()) != null                : "replacing property that doesn't exist in map: '" + property.getKey() + "'";
+        if (compact != null) {
+            return new PropertyHashMap(compact.copyReplacing(size, compact.indexOf(property.getKey(), size), newProperty), size);
+        }
         final MapBuilder builder = newMapBuilder(size);
         builder.replaceProperty(property.getKey(), newProperty);
         return new PropertyHashMap(builder);
@@ -196,6 +225,14 @@ public final class PropertyHashMap implements Map <Object, Property> {
      * @return New {@link PropertyHashMap}.
      */
     public PropertyHashMap immutableAdd(final Property property) {
+        if (compact != null) {
+            final int index = compact.indexOf(property.getKey(), size);
+            if (index >= 0) {
+                return compactRemove(index).immutableAdd(property);
+            } else if (size < COMPACT_THRESHOLD) {
+                return new PropertyHashMap(compact.append(size, property), size + 1);
+            }
+        }
         final int newSize = size + 1;
         MapBuilder builder = newMapBuilder(newSize);
         builder.addProperty(property);
@@ -211,6 +248,13 @@ public final class PropertyHashMap implements Map <Object, Property> {
      */
     public PropertyHashMap immutableAdd(final Property... newProperties) {
         final int newSize = size + newProperties.length;
+        if (compact != null && newSize <= COMPACT_THRESHOLD) {
+            PropertyHashMap newMap = this;
+            for (final Property property : newProperties) {
+                newMap = newMap.immutableAdd(property);
+            }
+            return newMap;
+        }
         MapBuilder builder = newMapBuilder(newSize);
         for (final Property property : newProperties) {
             builder.addProperty(property);
@@ -228,6 +272,13 @@ public final class PropertyHashMap implements Map <Object, Property> {
     public PropertyHashMap immutableAdd(final Collection<Property> newProperties) {
         if (newProperties != null) {
             final int newSize = size + newProperties.size();
+            if (compact != null && newSize <= COMPACT_THRESHOLD) {
+                PropertyHashMap newMap = this;
+                for (final Property property : newProperties) {
+                    newMap = newMap.immutableAdd(property);
+                }
+                return newMap;
+            }
             MapBuilder builder = newMapBuilder(newSize);
             for (final Property property : newProperties) {
                 builder.addProperty(property);
@@ -245,6 +296,10 @@ public final class PropertyHashMap implements Map <Object, Property> {
      * @return New {@link PropertyHashMap}.
      */
     public PropertyHashMap immutableRemove(final Object key) {
+        if (compact != null) {
+            final int index = compact.indexOf(key, size);
+            return index >= 0 ? compactRemove(index) : this;
+        }
         MapBuilder builder = newMapBuilder(size);
         builder.removeProperty(key);
         if (builder.size < size) {
@@ -261,17 +316,32 @@ public final class PropertyHashMap implements Map <Object, Property> {
      * @return {@link Property} matching key or {@code null} if not found.
      */
     public Property find(final Object key) {
+        if (compact != null) {
+            return compact.find(key, size);
+        }
         final Element element = findElement(key);
         return element != null ? element.getProperty() : null;
     }
 
+    /**
+     * Remove the property at an index from a map in compact form.
+     *
+     * @param index the index of the property
+     * @return New {@link PropertyHashMap}.
+     */
+    private PropertyHashMap compactRemove(final int index) {
+        return size == 1 ? EMPTY_HASHMAP : new PropertyHashMap(compact.copyRemoving(size, index), size - 1);
+    }
+
     /**
      * Return an array of properties in chronological order of adding.
      *
      * @return Array of all properties.
      */
     Property[] getProperties() {
-        if (properties == null) {
+        if (properties == null && compact != null) {
+            properties = compact.getProperties(size);
+        } else if (properties == null) {
             final Property[] array = new Property[size];
             int i = size;
             for (Element element = list; element != null; element = element.getLink()) {
@@ -379,7 +449,12 @@ public final class PropertyHashMap implements Map <Object, Property> {
      * @return {@link MapBuilder} for the new size.
      */
     private MapBuilder newMapBuilder(final int newSize) {
-        if (bins == null && newSize < LIST_THRESHOLD) {
+        if (compact != null) {
+            // Only maps that outgrow the compact form get here
+            assert newSize > COMPACT_THRESHOLD;
+            final Element compactList = compact.toList(size);
+            return new MapBuilder(rehash(compactList, binsNeeded(newSize)), compactList, size, true);
+        } else if (bins == null && newSize < LIST_THRESHOLD) {
             return new MapBuilder(bins, list, size, false);
         } else if (newSize > threshold) {
             return new MapBuilder(rehash(list, binsNeeded(newSize)), list, size, true);
@@ -490,15 +565,14 @@ public final class PropertyHashMap implements Map <Object, Property> {
     @Override
     public boolean containsKey(final Object key) {
         assert key instanceof String || key instanceof Symbol;
-        return findElement(key) != null;
+        return find(key) != null;
     }
 
     @Override
     public boolean containsValue(final Object value) {
         if (value instanceof Property) {
-            final Property property = (Property) value;
-            final Element element = findElement(property.getKey());
-            return element != null && element.getProperty().equals(value);
+            final Property property = find(((Property) value).getKey());
+            return property != null && property.equals(value);
         }
         return false;
     }
@@ -506,8 +580,7 @@ public final class PropertyHashMap implements Map <Object, Property> {
     @Override
     public Property get(final Object key) {
         assert key instanceof String || key instanceof Symbol;
-        final Element element = findElement(key);
-        return element != null ? element.getProperty() : null;
+        return find(key);
     }
 
     @Override
@@ -533,7 +606,7 @@ public final class PropertyHashMap implements Map <Object, Property> {
     @Override
     public Set<Object> keySet() {
         final HashSet<Object> set = new HashSet<>();
-        for (Element element = list; element != null; element = element.getLink()) {
+        for (Element element = getList(); element != null; element = element.getLink()) {
             set.add(element.getKey());
         }
         return Collections.unmodifiableSet(set);
@@ -547,12 +620,16 @@ public final class PropertyHashMap implements Map <Object, Property> {
     @Override
     public Set<Entry<Object, Property>> entrySet() {
         final HashSet<Entry<Object, Property>> set = new HashSet<>();
-        for (Element element = list; element != null; element = element.getLink()) {
+        for (Element element = getList(); element != null; element = element.getLink()) {
             set.add(element);
         }
         return Collections.unmodifiableSet(set);
     }
 
+    private Element getList() {
+        return compact != null ? compact.toList(size) : list;
+    }
+
     /**
      * List map element.
      */
@@ -716,6 +793,136 @@ public final class PropertyHashMap implements Map <Object, Property> {
 
     }
 
+    /**
+     * Storage of maps in compact form. Slot {@code i} holds the hash code of the key of the
+     * {@code i}th property in {@code hashes[i]}, the key in {@code entries[2 * i]}, and the
+     * property in {@code entries[2 * i + 1]}. A storage is shared by a map and the maps derived
+     * from it by adding properties. The slots below {@code used} have been claimed, and the
+     * content of a slot doesn't change once it has been claimed and written.
+     */
+    private static final class CompactStorage {
+        /** Storage of the empty map, which isn't shared with other maps. */
+        static final CompactStorage EMPTY = new CompactStorage(0);
+
+        /** Capacity of a new storage for a map of up to this size. */
+        private static final int INITIAL_CAPACITY = 4;
+
+        private static final VarHandle USED;
+        static {
+            try {
+                USED = MethodHandles.lookup().findVarHandle(CompactStorage.class, "used", int.class);
+            } catch (final ReflectiveOperationException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private final int[] hashes;
+        private final Object[] entries;
+
+        /** Number of claimed slots. */
+        private volatile int used;
+
+        private CompactStorage(final int capacity) {
+            this.hashes  = new int[capacity];
+            this.entries = new Object[capacity << 1];
+        }
+
+        private static int capacityFor(final int size) {
+            return size <= INITIAL_CAPACITY ? INITIAL_CAPACITY : Math.min(Integer.highestOneBit(size - 1) << 1, COMPACT_THRESHOLD);
+        }
+
+        int indexOf(final Object key, final int size) {
+            final int hashCode = key.hashCode();
+            final int[] h = hashes;
+            for (int i = 0; i < size; i++) {
+                if (h[i] == hashCode) {
+                    final Object k = entries[i << 1];
+                    if (k == key || k.equals(key)) {
+                        return i;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        Property find(final Object key, final int size) {
+            final int index = indexOf(key, size);
+            return index >= 0 ? (Property)entries[(index << 1) + 1] : null;
+        }
+
+        /**
+         * Add a property after the first {@code size} ones, sharing this storage if its next slot is free.
+         *
+         * @param size the number of properties of the map to add to
+         * @param property the property to add
+         * @return the storage of the new map
+         */
+        CompactStorage append(final int size, final Property property) {
+            final CompactStorage storage;
+            if (size < hashes.length && USED.compareAndSet(this, size, size + 1)) {
+                storage = this;
+            } else {
+                storage = copy(size, capacityFor(size + 1));
+                storage.used = size + 1;
+            }
+            storage.set(size, property);
+            return storage;
+        }
+
+        CompactStorage copyReplacing(final int size, final int index, final Property property) {
+            final CompactStorage storage = copy(size, hashes.length);
+            storage.set(index, property);
+            storage.used = size;
+            return storage;
+        }
+
+        CompactStorage copyRemoving(final int size, final int index) {
+            final CompactStorage storage = new CompactStorage(capacityFor(size - 1));
+            System.arraycopy(hashes, 0, storage.hashes, 0, index);
+            System.arraycopy(hashes, index + 1, storage.hashes, index, size - index - 1);
+            System.arraycopy(entries, 0, storage.entries, 0, index << 1);
+            System.arraycopy(entries, (index + 1) << 1, storage.entries, index << 1, (size - index - 1) << 1);
+            storage.used = size - 1;
+            return storage;
+        }
+
+        private CompactStorage copy(final int size, final int capacity) {
+            final CompactStorage storage = new CompactStorage(capacity);
+            System.arraycopy(hashes, 0, storage.hashes, 0, size);
+            System.arraycopy(entries, 0, storage.entries, 0, size << 1);
+            return storage;
+        }
+
+        private void set(final int index, final Property property) {
+            final Object key = property.getKey();
+            hashes[index] = key.hashCode();
+            entries[index << 1] = key;
+            entries[(index << 1) + 1] = property;
+        }
+
+        Property[] getProperties(final int size) {
+            final Property[] array = new Property[size];
+            for (int i = 0; i < size; i++) {
+                array[i] = (Property)entries[(i << 1) + 1];
+            }
+            return array;
+        }
+
+        /**
+         * Create the reverse chronological list of the first {@code size} properties.
+         *
+         * @param size the number of properties
+         * @return the list
+         */
+        Element toList(final int size) {
+            Element list = null;
+            for (int i = 0; i < size; i++) {
+                list = new Element(list, (Property)entries[(i << 1) + 1]);
+            }
+            return list;
+        }
+    }
+
     /**
      * A builder class used for adding, replacing, or removing elements.
      */
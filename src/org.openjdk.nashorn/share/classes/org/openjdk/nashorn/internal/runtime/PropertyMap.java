@@ -33,8 +33,9 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
 import java.lang.invoke.SwitchPoint;
-import java.lang.ref.Reference;
+import java.lang.invoke.VarHandle;
 import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 import java.util.Arrays;
@@ -42,8 +43,7 @@ import java.util.BitSet;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
-import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
 import org.openjdk.nashorn.internal.runtime.options.Options;
 import org.openjdk.nashorn.internal.scripts.JO;
@@ -96,18 +96,51 @@ public class PropertyMap implements Iterable<Object>, Serializable {
     private transient SharedPropertyMap sharedProtoMap;
 
     /** History of maps, used to limit map duplication. */
-    private transient WeakHashMap<Property, Reference<PropertyMap>> history;
+    private transient volatile TransitionTable<Property> history;
 
     /** History of prototypes, used to limit map duplication. */
-    private transient WeakHashMap<ScriptObject, SoftReference<PropertyMap>> protoHistory;
+    private transient volatile TransitionTable<ScriptObject> protoHistory;
 
     /** SwitchPoints for properties inherited form this map */
     private transient PropertySwitchPoints propertySwitchPoints;
 
+    /** SwitchPoint for the prototype chain starting at an object with this map (lazy). */
+    private transient SwitchPoint protoChainSwitchPoint;
+
     private transient BitSet freeSlots;
 
+    /** Source of map ids. */
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    /** Unique id of this map, used to dispatch on maps without comparing them one by one. */
+    private transient int id = nextId.incrementAndGet();
+
+    /** Keys of the enumerable properties with string keys, in insertion order (lazy). */
+    private transient String[] enumerableKeys;
+
+    /** JSON quoted enumerable keys followed by a colon, as written by JSON.stringify (lazy). */
+    private transient String[] jsonKeyPrefixes;
+
+    /**
+     * Largest spill length of any map derived from the map that spilled the first property, shared
+     * by all these maps, or null if this map has no spill.
+     */
+    private transient AtomicInteger maxSpillLength;
+
     private static final long serialVersionUID = -7041836752008732533L;
 
+    private static final VarHandle HISTORY;
+    private static final VarHandle PROTO_HISTORY;
+    static {
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HISTORY = lookup.findVarHandle(PropertyMap.class, "history", TransitionTable.class);
+            PROTO_HISTORY = lookup.findVarHandle(PropertyMap.class, "protoHistory", TransitionTable.class);
+        } catch (final ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Constructs a new property map.
      *
@@ -125,6 +158,7 @@ public class PropertyMap implements Iterable<Object>, Serializable {
         this.spillLength  = spillLength;
         this.flags        = flags;
         this.softReferenceDerivationLimit = INITIAL_SOFT_REFERENCE_DERIVATION_LIMIT;
+        this.maxSpillLength = spillLength == 0 ? null : new AtomicInteger(spillLength);
 
         if (Context.DEBUG) {
             count.increment();
@@ -149,6 +183,19 @@ public class PropertyMap implements Iterable<Object>, Serializable {
         this.freeSlots    = propertyMap.freeSlots;
         this.sharedProtoMap = propertyMap.sharedProtoMap;
         this.softReferenceDerivationLimit = softReferenceDerivationLimit;
+        // Maps that spilled the same first property, and thus the same properties up to it, share the counter.
+        // Sharing it with maps that spilled other properties would make one large object, such as a dictionary
+        // built from an empty object, grow the spill of every object built from the same empty object.
+        if (spillLength == 0) {
+            this.maxSpillLength = null;
+        } else if (propertyMap.maxSpillLength == null) {
+            this.maxSpillLength = new AtomicInteger(spillLength);
+        } else {
+            this.maxSpillLength = propertyMap.maxSpillLength;
+            if (spillLength > maxSpillLength.get()) {
+                maxSpillLength.accumulateAndGet(spillLength, Math::max);
+            }
+        }
 
         if (Context.DEBUG) {
             count.increment();
@@ -175,6 +222,8 @@ public class PropertyMap implements Iterable<Object>, Serializable {
 
         final Property[] props = (Property[]) in.readObject();
         this.properties = EMPTY_HASHMAP.immutableAdd(props);
+        this.id = nextId.incrementAndGet();
+        this.maxSpillLength = spillLength == 0 ? null : new AtomicInteger(spillLength);
 
         assert className != null;
         final Class<?> structure = Context.forStructureClass(className);
@@ -262,6 +311,47 @@ public class PropertyMap implements Iterable<Object>, Serializable {
         propertySwitchPoints = PropertySwitchPoints.addSwitchPoint(propertySwitchPoints, key, switchPoint);
     }
 
+    /**
+     * Add a prototype chain switchpoint to this property map. It will be invalidated when any property
+     * of an object using this map or a map derived from it is created, modified, or deleted, or when the
+     * prototype of such an object is changed.
+     *
+     * @param switchPoint the switchpoint
+     */
+    void addProtoChainSwitchPoint(final SwitchPoint switchPoint) {
+        propertySwitchPoints = PropertySwitchPoints.addProtoChainSwitchPoint(propertySwitchPoints, switchPoint);
+    }
+
+    /**
+     * Get the valid SwitchPoint for the prototype chain starting at an object with this map, or null if
+     * there is none. See {@link ScriptObject#getProtoChainSwitchPoint()}.
+     *
+     * @return the prototype chain switchpoint, or null
+     */
+    SwitchPoint getProtoChainSwitchPoint() {
+        final SwitchPoint switchPoint = protoChainSwitchPoint;
+        return switchPoint == null || switchPoint.hasBeenInvalidated() ? null : switchPoint;
+    }
+
+    /**
+     * Set the SwitchPoint for the prototype chain starting at an object with this map.
+     *
+     * @param switchPoint the prototype chain switchpoint
+     */
+    void setProtoChainSwitchPoint(final SwitchPoint switchPoint) {
+        protoChainSwitchPoint = switchPoint;
+    }
+
+    /**
+     * Invalidate the prototype chain switchpoints added to this map. This is called when an object
+     * using this map is given a map that does not share its switchpoints.
+     */
+    void invalidateProtoChainSwitchPoints() {
+        if (propertySwitchPoints != null) {
+            propertySwitchPoints.invalidateProtoChain();
+        }
+    }
+
     /**
      * Method called when a property of an object using this property map is being created,
      * modified, or deleted. If a switchpoint for the property exists it will be invalidated.
@@ -295,17 +385,9 @@ public class PropertyMap implements Iterable<Object>, Serializable {
      * @param key Property key.
      * @return A {@link SwitchPoint} for the property, or null.
      */
-    public synchronized SwitchPoint getSwitchPoint(final String key) {
-        if (propertySwitchPoints != null) {
-            final Set<SwitchPoint> existingSwitchPoints = propertySwitchPoints.getSwitchPoints(key);
-            for (final SwitchPoint switchPoint : existingSwitchPoints) {
-                if (switchPoint != null && !switchPoint.hasBeenInvalidated()) {
-                    return switchPoint;
-                }
-            }
-        }
-
-        return null;
+    public SwitchPoint getSwitchPoint(final String key) {
+        final PropertySwitchPoints switchPoints = propertySwitchPoints;
+        return switchPoints == null ? null : switchPoints.getValidSwitchPoint(key);
     }
 
     /**
@@ -388,16 +470,10 @@ public class PropertyMap implements Iterable<Object>, Serializable {
      *
      * @return New {@link PropertyMap} with {@link Property} added.
      */
-    public final synchronized PropertyMap addProperty(final Property property) {
+    public final PropertyMap addProperty(final Property property) {
         propertyChanged(property);
-        PropertyMap newMap = checkHistory(property);
-
-        if (newMap == null) {
-            newMap = addPropertyInternal(property);
-            addToHistory(property, newMap);
-        }
-
-        return newMap;
+        final PropertyMap newMap = checkHistory(property);
+        return newMap != null ? newMap : addToHistory(property, addPropertyInternal(property));
     }
 
     private PropertyMap deriveMap(final PropertyHashMap newProperties, final int newFlags, final int newFieldCount, final int newSpillLength) {
@@ -418,7 +494,7 @@ public class PropertyMap implements Iterable<Object>, Serializable {
      *
      * @return New {@link PropertyMap} with {@link Property} removed or {@code null} if not found.
      */
-    public final synchronized PropertyMap deleteProperty(final Property property) {
+    public final PropertyMap deleteProperty(final Property property) {
         propertyChanged(property);
         PropertyMap newMap = checkHistory(property);
         final Object key = property.getKey();
@@ -439,7 +515,7 @@ public class PropertyMap implements Iterable<Object>, Serializable {
                 newMap = deriveMap(newProperties, flags, fieldCount, spillLength);
                 newMap.updateFreeSlots(property, null);
             }
-            addToHistory(property, newMap);
+            newMap = addToHistory(property, newMap);
         }
 
         return newMap;
@@ -548,6 +624,56 @@ public class PropertyMap implements Iterable<Object>, Serializable {
         return properties.getProperties();
     }
 
+    /**
+     * Return the keys of the enumerable properties with string keys in this map, in insertion order.
+     * As property maps are immutable, the array is computed once per map. It is shared and must not
+     * be modified.
+     *
+     * @return the enumerable string keys
+     */
+    public final String[] getEnumerableKeys() {
+        if (enumerableKeys == null) {
+            final Property[] props = getProperties();
+            int count = 0;
+            for (final Property property : props) {
+                if (property.isEnumerable() && property.getKey() instanceof String) {
+                    count++;
+                }
+            }
+            final String[] keys = new String[count];
+            int i = 0;
+            for (final Property property : props) {
+                if (property.isEnumerable() && property.getKey() instanceof String) {
+                    keys[i++] = (String)property.getKey();
+                }
+            }
+            enumerableKeys = keys;
+        }
+        return enumerableKeys;
+    }
+
+    /**
+     * Return the JSON member prefixes of the enumerable properties with string keys in this map: each
+     * key quoted as JSON string and followed by a colon, in the order of {@link #getEnumerableKeys()}.
+     * The array is computed once per map. It is shared and must not be modified.
+     *
+     * @return the JSON member prefixes
+     */
+    public final String[] getJSONKeyPrefixes() {
+        if (jsonKeyPrefixes == null) {
+            final String[] keys = getEnumerableKeys();
+            final String[] prefixes = new String[keys.length];
+            final StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < keys.length; i++) {
+                sb.setLength(0);
+                JSONFunctions.quote(keys[i], sb);
+                prefixes[i] = sb.append(':').toString();
+            }
+            jsonKeyPrefixes = prefixes;
+        }
+        return jsonKeyPrefixes;
+    }
+
     /**
      * Return the name of the class of objects using this property map.
      *
@@ -557,6 +683,27 @@ public class PropertyMap implements Iterable<Object>, Serializable {
         return className;
     }
 
+    /**
+     * Return the largest spill length reached by any map that spilled the same first property as
+     * this map. Objects that added the same properties up to that one, for example objects created
+     * by the same constructor function or object literal, are likely to need this spill length.
+     * For a map without spill, this is zero.
+     *
+     * @return the expected spill length of objects using this map
+     */
+    public final int getExpectedSpillLength() {
+        return maxSpillLength == null ? spillLength : maxSpillLength.get();
+    }
+
+    /**
+     * Return the unique id of this property map. Ids are assigned in order of creation.
+     *
+     * @return the id of this map
+     */
+    public final int getId() {
+        return id;
+    }
+
     /**
      * Prevents the map from having additional properties.
      *
@@ -646,13 +793,8 @@ public class PropertyMap implements Iterable<Object>, Serializable {
      * @return Existing {@link PropertyMap} or {@code null} if not found.
      */
     private PropertyMap checkProtoHistory(final ScriptObject proto) {
-        final PropertyMap cachedMap;
-        if (protoHistory != null) {
-            final SoftReference<PropertyMap> weakMap = protoHistory.get(proto);
-            cachedMap = (weakMap != null ? weakMap.get() : null);
-        } else {
-            cachedMap = null;
-        }
+        final TransitionTable<ScriptObject> table = protoHistory;
+        final PropertyMap cachedMap = table != null ? table.get(proto) : null;
 
         if (Context.DEBUG && cachedMap != null) {
             protoHistoryHit.increment();
@@ -662,31 +804,33 @@ public class PropertyMap implements Iterable<Object>, Serializable {
     }
 
     /**
-     * Add a map to the prototype history.
+     * Add a map to the prototype history, unless another thread has already added one.
      *
      * @param newProto Prototype to add (key.)
      * @param newMap   {@link PropertyMap} associated with prototype.
+     * @return the map in the prototype history
      */
-    private void addToProtoHistory(final ScriptObject newProto, final PropertyMap newMap) {
+    private PropertyMap addToProtoHistory(final ScriptObject newProto, final PropertyMap newMap) {
         if (protoHistory == null) {
-            protoHistory = new WeakHashMap<>();
+            PROTO_HISTORY.compareAndSet(this, null, new TransitionTable<ScriptObject>());
         }
 
-        protoHistory.put(newProto, new SoftReference<>(newMap));
+        return protoHistory.putIfAbsent(newProto, newMap, new SoftReference<>(newMap));
     }
 
     /**
-     * Track the modification of the map.
+     * Track the modification of the map, unless another thread has already made the same modification.
      *
      * @param property Mapping property.
      * @param newMap   Modified {@link PropertyMap}.
+     * @return the map in the history
      */
-    private void addToHistory(final Property property, final PropertyMap newMap) {
+    private PropertyMap addToHistory(final Property property, final PropertyMap newMap) {
         if (history == null) {
-            history = new WeakHashMap<>();
+            HISTORY.compareAndSet(this, null, new TransitionTable<Property>());
         }
 
-        history.put(property, softReferenceDerivationLimit == 0 ? new WeakReference<>(newMap) : new SoftReference<>(newMap));
+        return history.putIfAbsent(property, newMap, softReferenceDerivationLimit == 0 ? new WeakReference<>(newMap) : new SoftReference<>(newMap));
     }
 
     /**
@@ -697,10 +841,9 @@ public class PropertyMap implements Iterable<Object>, Serializable {
      * @return Existing map or {@code null} if not found.
      */
     private PropertyMap checkHistory(final Property property) {
-
-        if (history != null) {
-            final Reference<PropertyMap> ref = history.get(property);
-            final PropertyMap historicMap = ref == null ? null : ref.get();
+        final TransitionTable<Property> table = history;
+        if (table != null) {
+            final PropertyMap historicMap = table.get(property);
 
             if (historicMap != null) {
                 if (Context.DEBUG) {
@@ -838,7 +981,7 @@ public class PropertyMap implements Iterable<Object>, Serializable {
      * @param newProto New prototype object to replace oldProto.
      * @return New {@link PropertyMap} with prototype changed.
      */
-    public synchronized PropertyMap changeProto(final ScriptObject newProto) {
+    public PropertyMap changeProto(final ScriptObject newProto) {
         final PropertyMap nextMap = checkProtoHistory(newProto);
         if (nextMap != null) {
             return nextMap;
@@ -848,10 +991,7 @@ public class PropertyMap implements Iterable<Object>, Serializable {
             setProtoNewMapCount.increment();
         }
 
-        final PropertyMap newMap = makeUnsharedCopy();
-        addToProtoHistory(newProto, newMap);
-
-        return newMap;
+        return addToProtoHistory(newProto, makeUnsharedCopy());
     }
 
     /**
@@ -26,7 +26,6 @@
 package org.openjdk.nashorn.internal.runtime;
 
 import java.lang.invoke.SwitchPoint;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -42,6 +41,9 @@ public class PropertySwitchPoints {
 
     private final static SwitchPoint[] EMPTY_SWITCHPOINT_ARRAY = new SwitchPoint[0];
 
+    /** Key of the prototype chain switchpoints, which are invalidated when any property is changed. */
+    private final static Object PROTO_CHAIN = new Object();
+
     // These counters are updated in debug mode
     private static LongAdder switchPointsAdded;
     private static LongAdder switchPointsInvalidated;
@@ -111,7 +113,7 @@ public class PropertySwitchPoints {
      * @param switchPoint the switchpoint to be added
      * @return the new PropertySwitchPoints instance, or this instance if switchpoint was already contained
      */
-    static PropertySwitchPoints addSwitchPoint(final PropertySwitchPoints oldSwitchPoints, final String key, final SwitchPoint switchPoint) {
+    static PropertySwitchPoints addSwitchPoint(final PropertySwitchPoints oldSwitchPoints, final Object key, final SwitchPoint switchPoint) {
         if (oldSwitchPoints == null || !oldSwitchPoints.contains(key, switchPoint)) {
             final PropertySwitchPoints newSwitchPoints = new PropertySwitchPoints(oldSwitchPoints);
             newSwitchPoints.add(key, switchPoint);
@@ -120,6 +122,19 @@ public class PropertySwitchPoints {
         return oldSwitchPoints;
     }
 
+    /**
+     * Add a prototype chain {@code switchPoint} that is invalidated when any property is created, deleted,
+     * or modified, or when the prototype is changed, creating and returning a new {@code PropertySwitchPoints}
+     * instance if the switchpoint was not already contained.
+     *
+     * @param oldSwitchPoints the original PropertySwitchPoints instance. May be null
+     * @param switchPoint the switchpoint to be added
+     * @return the new PropertySwitchPoints instance, or this instance if switchpoint was already contained
+     */
+    static PropertySwitchPoints addProtoChainSwitchPoint(final PropertySwitchPoints oldSwitchPoints, final SwitchPoint switchPoint) {
+        return addSwitchPoint(oldSwitchPoints, PROTO_CHAIN, switchPoint);
+    }
+
     /**
      * Checks whether {@code switchPoint} is contained in {@code key}'s set.
      *
@@ -127,12 +142,12 @@ public class PropertySwitchPoints {
      * @param switchPoint the switchPoint
      * @return true if switchpoint is already contained for key
      */
-    private synchronized boolean contains(final String key, final SwitchPoint switchPoint) {
+    private synchronized boolean contains(final Object key, final SwitchPoint switchPoint) {
         final WeakSwitchPointSet set = this.switchPointMap.get(key);
         return set != null && set.contains(switchPoint);
     }
 
-    private synchronized void add(final String key, final SwitchPoint switchPoint) {
+    private synchronized void add(final Object key, final SwitchPoint switchPoint) {
         if (Context.DEBUG) {
             switchPointsAdded.increment();
         }
@@ -146,13 +161,23 @@ public class PropertySwitchPoints {
         set.add(switchPoint);
     }
 
-    Set<SwitchPoint> getSwitchPoints(final Object key) {
-        WeakSwitchPointSet switchPointSet = switchPointMap.get(key);
+    /**
+     * Return a switchpoint for property {@code key} that has not been invalidated yet.
+     *
+     * @param key the property key
+     * @return a valid switchpoint, or null if there is none
+     */
+    synchronized SwitchPoint getValidSwitchPoint(final Object key) {
+        final WeakSwitchPointSet switchPointSet = switchPointMap.get(key);
         if (switchPointSet != null) {
-            return switchPointSet.elements();
+            for (final SwitchPoint switchPoint : switchPointSet.elements()) {
+                if (switchPoint != null && !switchPoint.hasBeenInvalidated()) {
+                    return switchPoint;
+                }
+            }
         }
 
-        return Collections.emptySet();
+        return null;
     }
 
     /**
@@ -162,14 +187,27 @@ public class PropertySwitchPoints {
      * @param prop The property to invalidate.
      */
     synchronized void invalidateProperty(final Property prop) {
-        final WeakSwitchPointSet set = switchPointMap.get(prop.getKey());
+        invalidate(prop.getKey());
+        invalidate(PROTO_CHAIN);
+    }
+
+    /**
+     * Invalidate all prototype chain switchpoints. This is called when an object
+     * is given a different map that does not share these switchpoints.
+     */
+    synchronized void invalidateProtoChain() {
+        invalidate(PROTO_CHAIN);
+    }
+
+    private void invalidate(final Object key) {
+        final WeakSwitchPointSet set = switchPointMap.get(key);
         if (set != null) {
             if (Context.DEBUG) {
                 switchPointsInvalidated.add(set.size());
             }
             final SwitchPoint[] switchPoints = set.elements().toArray(EMPTY_SWITCHPOINT_ARRAY);
             SwitchPoint.invalidateAll(switchPoints);
-            this.switchPointMap.remove(prop.getKey());
+            this.switchPointMap.remove(key);
         }
     }
 
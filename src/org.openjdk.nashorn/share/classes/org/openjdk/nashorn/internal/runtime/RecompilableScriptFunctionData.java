@@ -384,6 +384,11 @@ public final class RecompilableScriptFunctionData extends ScriptFunctionData imp
         return allocationStrategy.getAllocatorMap(prototype);
     }
 
+    @Override
+    boolean isCurrentAllocatorMap(final PropertyMap map) {
+        return allocationStrategy.isCurrentAllocatorMap(map);
+    }
+
     @Override
     ScriptObject allocate(final PropertyMap map) {
         return allocationStrategy.allocate(map);
@@ -397,7 +402,8 @@ public final class RecompilableScriptFunctionData extends ScriptFunctionData imp
         }
 
         final int descPosition = Token.descPosition(token);
-        final Context context = Context.getContextTrusted();
+        // Not necessarily called on a thread with a global, see CompiledFunction.recompileInBackground.
+        final Context context = installer.getContext();
         final Parser parser = new Parser(
             context.getEnv(),
             source,
@@ -466,8 +472,12 @@ public final class RecompilableScriptFunctionData extends ScriptFunctionData imp
 
         // Asynchronously serialize split functions.
         if (isSplit) {
-            astSerializerExecutorService.execute(() ->
-                cachedAst = new SerializedAst(symbolClonedAst, ref));
+            astSerializerExecutorService.execute(() -> {
+                // Might have been serialized already when the function got persisted, see getSerializedAst()
+                if (cachedAst == ref) {
+                    cachedAst = new SerializedAst(symbolClonedAst, ref);
+                }
+            });
         }
     }
 
@@ -737,7 +747,15 @@ public final class RecompilableScriptFunctionData extends ScriptFunctionData imp
     }
 
     boolean usePersistentCodeCache() {
-        return installer != null && installer.getContext().getEnv()._persistent_cache;
+        if (installer == null) {
+            return false;
+        }
+        final ScriptEnvironment env = installer.getContext().getEnv();
+        return env._persistent_cache || env._shared_code_cache;
+    }
+
+    boolean useBackgroundRecompilation() {
+        return installer != null && installer.getContext().getEnv()._background_recompilation;
     }
 
     private MethodType explicitParams(final MethodType callSiteType) {
@@ -1049,14 +1067,33 @@ public final class RecompilableScriptFunctionData extends ScriptFunctionData imp
     }
 
     private void writeObject(final ObjectOutputStream out) throws IOException {
-        final Object localCachedAst = cachedAst;
+        final Object localCachedAst = getSerializedAst();
         out.defaultWriteObject();
         // We need to persist SerializedAst for split functions as they can't reparse the source code.
+        out.writeObject(localCachedAst);
+    }
+
+    /**
+     * Returns the serialized AST of a split function for persisting it. If the function is being persisted
+     * before its AST was serialized in the background, the AST is serialized right away, as it'd be lost from
+     * the persistent code cache otherwise.
+     * @return the serialized AST, or null if this is not a split function or its AST is no longer cached.
+     */
+    private SerializedAst getSerializedAst() {
+        final Object localCachedAst = cachedAst;
         if (localCachedAst instanceof SerializedAst) {
-            out.writeObject(localCachedAst);
-        } else {
-            out.writeObject(null);
+            return (SerializedAst)localCachedAst;
+        } else if (localCachedAst instanceof Reference<?> && getFunctionFlag(FunctionNode.IS_SPLIT)) {
+            @SuppressWarnings("unchecked")
+            final Reference<FunctionNode> ref = (Reference<FunctionNode>)localCachedAst;
+            final FunctionNode fn = ref.get();
+            if (fn != null) {
+                final SerializedAst serializedAst = new SerializedAst(fn, ref);
+                cachedAst = serializedAst;
+                return serializedAst;
+            }
         }
+        return null;
     }
 
     private void readObject(final java.io.ObjectInputStream in) throws IOException, ClassNotFoundException {
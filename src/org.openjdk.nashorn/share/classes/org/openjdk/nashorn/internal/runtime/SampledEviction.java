@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.openjdk.nashorn.internal.runtime;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Sampled eviction for bounded concurrent caches. Instead of maintaining an access order, a victim
+ * is picked from a random sample of the cached entries as the least frequently and then least
+ * recently used one. Caches that don't track access frequencies get an approximation of a least
+ * recently used policy by reporting the same frequency for all entries.
+ *
+ * @param <E> the type of cache entries
+ */
+public final class SampledEviction<E> {
+    /** Number of entries examined when looking for an eviction victim. */
+    private static final int SAMPLE_SIZE = 8;
+
+    private final ToIntFunction<E> frequency;
+    private final ToLongFunction<E> lastAccess;
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * Constructor.
+     *
+     * @param frequency estimated access frequency of an entry
+     * @param lastAccess time of the last access to an entry, compared as {@link System#nanoTime()} values
+     */
+    public SampledEviction(final ToIntFunction<E> frequency, final ToLongFunction<E> lastAccess) {
+        this.frequency  = frequency;
+        this.lastAccess = lastAccess;
+    }
+
+    /**
+     * Remove sampled victims until the cache is back within its bounds.
+     *
+     * @param map the cache map
+     * @param overBounds tells whether the cache holds more than it may
+     * @param remove removes a victim from the cache
+     */
+    public void evict(final Map<?, E> map, final BooleanSupplier overBounds, final Consumer<E> remove) {
+        // Only one thread evicts at a time; others needn't wait as it will bring the cache back within its bounds.
+        if (!overBounds.getAsBoolean() || !evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            while (overBounds.getAsBoolean()) {
+                final E victim = sampleVictim(map);
+                if (victim == null) {
+                    break;
+                }
+                remove.accept(victim);
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * Pick the entry to evict next from a random sample of entries.
+     *
+     * @param map the cache map
+     * @return the least frequently and then least recently used entry of the sample, or null if the cache is empty
+     */
+    public E sampleVictim(final Map<?, E> map) {
+        final int size = map.size();
+        if (size == 0) {
+            return null;
+        }
+
+        int skip = size > SAMPLE_SIZE ? ThreadLocalRandom.current().nextInt(size - SAMPLE_SIZE + 1) : 0;
+        E victim = null;
+        int victimFrequency = Integer.MAX_VALUE;
+        int sampled = 0;
+        for (final Iterator<E> iter = map.values().iterator(); iter.hasNext() && sampled < SAMPLE_SIZE; ) {
+            final E entry = iter.next();
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            sampled++;
+            final int entryFrequency = frequency.applyAsInt(entry);
+            if (victim == null || entryFrequency < victimFrequency
+                    || (entryFrequency == victimFrequency && lastAccess.applyAsLong(entry) - lastAccess.applyAsLong(victim) < 0)) {
+                victim = entry;
+                victimFrequency = entryFrequency;
+            }
+        }
+        return victim;
+    }
+}
@@ -65,15 +65,27 @@ public final class ScriptEnvironment {
     /** Current Options object. */
     private final Options options;
 
+    /** Recompile deoptimized functions on background threads instead of the calling thread */
+    public final boolean _background_recompilation;
+
     /** Size of the per-global Class cache size */
     public final int     _class_cache_size;
 
+    /** Maximum size in bytes of the class files held in the per-global Class cache */
+    public final int     _class_cache_max_bytes;
+
     /** -classpath value. */
     public final String  _classpath;
 
+    /** Directory of a code archive to load compiled scripts from, or to store them in when only compiling */
+    public final String  _code_archive;
+
     /** Only compile script, do not run it or generate other ScriptObjects */
     public final boolean _compile_only;
 
+    /** Compile unrelated scripts of a context concurrently instead of one at a time */
+    public final boolean _concurrent_compilation;
+
     /** Accept "const" keyword and treat it as variable. Interim feature */
     public final boolean _const_as_var;
 
@@ -170,6 +182,9 @@ public final class ScriptEnvironment {
     /** Do not support typed arrays. */
     public final boolean _no_typed_arrays;
 
+    /** Generate, verify and install the classes of compile units in parallel */
+    public final boolean _parallel_class_generation;
+
     /** Only parse the source code, do not compile */
     public final boolean _parse_only;
 
@@ -206,6 +221,9 @@ public final class ScriptEnvironment {
     /** is this environment in scripting mode? */
     public final boolean _scripting;
 
+    /** Share compiled scripts with other contexts using the same options */
+    public final boolean _shared_code_cache;
+
     /** is this environment in strict mode? */
     public final boolean _strict;
 
@@ -255,9 +273,13 @@ public final class ScriptEnvironment {
         this.namespace = new Namespace();
         this.options = options;
 
+        _background_recompilation = options.getBoolean("background.recompilation");
         _class_cache_size     = options.getInteger("class.cache.size");
+        _class_cache_max_bytes = options.getInteger("class.cache.max.bytes");
         _classpath            = options.getString("classpath");
+        _code_archive         = options.getString("code.archive");
         _compile_only         = options.getBoolean("compile.only");
+        _concurrent_compilation = options.getBoolean("concurrent.compilation");
         _const_as_var         = options.getBoolean("const.as.var");
         _debug_lines          = options.getBoolean("debug.lines");
         _debug_scopes         = options.getBoolean("debug.scopes");
@@ -295,6 +317,7 @@ public final class ScriptEnvironment {
         _no_java              = options.getBoolean("no.java");
         _no_syntax_extensions = options.getBoolean("no.syntax.extensions");
         _no_typed_arrays      = options.getBoolean("no.typed.arrays");
+        _parallel_class_generation = options.getBoolean("parallel.class.generation");
         _parse_only           = options.getBoolean("parse.only");
         _persistent_cache     = options.getBoolean("persistent.code.cache");
         _print_ast            = options.getBoolean("print.ast");
@@ -305,6 +328,7 @@ public final class ScriptEnvironment {
         _print_lower_parse    = options.getBoolean("print.lower.parse");
         _print_symbols        = options.getBoolean("print.symbols");
         _scripting            = options.getBoolean("scripting");
+        _shared_code_cache    = options.getBoolean("shared.code.cache");
         _strict               = options.getBoolean("strict");
         _version              = options.getBoolean("version");
         _verify_code          = options.getBoolean("verify.code");
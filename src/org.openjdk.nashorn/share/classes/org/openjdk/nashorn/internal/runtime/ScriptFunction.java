@@ -44,6 +44,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.LongAdder;
 import jdk.dynalink.CallSiteDescriptor;
 import jdk.dynalink.SecureLookupSupplier;
@@ -239,26 +241,7 @@ public class ScriptFunction extends ScriptObject {
             final Specialization[] specs,
             final int flags,
             final Global global) {
-        this(new FinalScriptFunctionData(name, methodHandle, specs, flags), map, scope, global);
-    }
-
-    /**
-     * Constructor
-     *
-     * @param name name of function
-     * @param methodHandle handle for invocation
-     * @param scope scope object
-     * @param specs specialized versions of this method, if available, null
-     * otherwise
-     * @param flags {@link ScriptFunctionData} flags
-     */
-    private ScriptFunction(
-            final String name,
-            final MethodHandle methodHandle,
-            final ScriptObject scope,
-            final Specialization[] specs,
-            final int flags) {
-        this(name, methodHandle, getMap(isStrict(flags)), scope, specs, flags, Global.instance());
+        this(getBuiltinData(name, methodHandle, specs, flags), map, scope, global);
     }
 
     /**
@@ -288,6 +271,33 @@ public class ScriptFunction extends ScriptObject {
         this(name, invokeHandle, map.addAll(map$), null, specs, ScriptFunctionData.IS_BUILTIN_CONSTRUCTOR, Global.instance());
     }
 
+    /**
+     * Returns the function data for a built-in function. Built-in functions are created from static method
+     * handles by every new global, so their data is created once and shared by all globals, like the data of
+     * script functions is shared by all functions created from the same code.
+     *
+     * @param name name of function
+     * @param methodHandle static handle for invocation
+     * @param specs specialized versions of this method, if available, null otherwise
+     * @param flags {@link ScriptFunctionData} flags
+     * @return shared function data
+     */
+    private static ScriptFunctionData getBuiltinData(final String name, final MethodHandle methodHandle, final Specialization[] specs, final int flags) {
+        final ScriptFunctionData data = builtinData.get(methodHandle);
+        // A few handles are used for more than one built-in, e.g. exit and quit; only the first one is shared.
+        if (data != null && data.flags == flags && data.getName().equals(name)) {
+            return data;
+        }
+        final ScriptFunctionData newData = new FinalScriptFunctionData(name, methodHandle, specs, flags);
+        if (data == null) {
+            builtinData.putIfAbsent(methodHandle, newData);
+        }
+        return newData;
+    }
+
+    /** Function data of built-in functions keyed by their method handle, see {@link #getBuiltinData}. */
+    private static final ConcurrentMap<MethodHandle, ScriptFunctionData> builtinData = new ConcurrentHashMap<>();
+
     // Factory methods to create various functions
     /**
      * Factory method called by compiler generated code for functions that need
@@ -328,7 +338,11 @@ public class ScriptFunction extends ScriptObject {
 
     // builtin function create helper factory
     private static ScriptFunction createBuiltin(final String name, final MethodHandle methodHandle, final Specialization[] specs, final int flags) {
-        final ScriptFunction func = new ScriptFunction(name, methodHandle, null, specs, flags);
+        return createBuiltin(getBuiltinData(name, methodHandle, specs, flags));
+    }
+
+    private static ScriptFunction createBuiltin(final ScriptFunctionData data) {
+        final ScriptFunction func = new ScriptFunction(data, getMap(data.isStrict()), null, Global.instance());
         func.setPrototype(UNDEFINED);
         // Non-constructor built-in functions do not have "prototype" property
         func.deleteOwnProperty(func.getMap().findProperty("prototype"));
@@ -411,7 +425,8 @@ public class ScriptFunction extends ScriptObject {
      */
     public final ScriptFunction createSynchronized(final Object sync) {
         final MethodHandle mh = MH.insertArguments(ScriptFunction.INVOKE_SYNC, 0, this, sync);
-        return createBuiltin(getName(), mh);
+        // The handle is bound to this function, so its data must not be shared with other globals.
+        return createBuiltin(new FinalScriptFunctionData(getName(), mh, null, ScriptFunctionData.IS_BUILTIN));
     }
 
     @Override
@@ -556,8 +571,9 @@ public class ScriptFunction extends ScriptObject {
      * @return property map
      */
     private PropertyMap getAllocatorMap(final ScriptObject prototype) {
-        if (allocatorMap == null || allocatorMap.isInvalidSharedMapFor(prototype)) {
-            // The prototype map has changed since this function was last used as constructor.
+        if (allocatorMap == null || allocatorMap.isInvalidSharedMapFor(prototype) || !data.isCurrentAllocatorMap(allocatorMap)) {
+            // The prototype map has changed since this function was last used as constructor,
+            // or the allocation strategy has switched to a different structure class.
             // Get a new allocator map.
             allocatorMap = data.getAllocatorMap(prototype);
         }
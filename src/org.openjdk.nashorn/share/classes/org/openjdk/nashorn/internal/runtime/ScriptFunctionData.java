@@ -419,6 +419,17 @@ public abstract class ScriptFunctionData implements Serializable {
         return null;
     }
 
+    /**
+     * Check whether a property map previously returned by {@link #getAllocatorMap(ScriptObject)}
+     * can still be used for objects allocated by this function.
+     *
+     * @param map the property map
+     * @return true if the map can still be used
+     */
+    boolean isCurrentAllocatorMap(final PropertyMap map) {
+        return true;
+    }
+
     /**
      * This method is used to create the immutable portion of a bound function.
      * See {@link ScriptFunction#createBound(Object, Object[])}
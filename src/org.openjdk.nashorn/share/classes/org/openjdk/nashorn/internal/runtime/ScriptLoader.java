@@ -38,6 +38,11 @@ import java.util.Set;
 final class ScriptLoader extends NashornLoader {
     private static final String NASHORN_PKG_PREFIX = "org.openjdk.nashorn.internal.";
 
+    static {
+        // Classes of a compilation may be installed concurrently.
+        ClassLoader.registerAsParallelCapable();
+    }
+
     private volatile boolean structureAccessAdded;
     private final Context context;
     private final Module scriptModule;
@@ -150,4 +155,19 @@ final class ScriptLoader extends NashornLoader {
     synchronized Class<?> installClass(final String name, final byte[] data, final CodeSource cs) {
         return defineClass(name, data, 0, data.length, Objects.requireNonNull(cs));
     }
+
+    /**
+     * Install a class for use by the Nashorn runtime without locking this loader. This is used to install
+     * the classes of a compilation concurrently, see {@code --parallel-class-generation}. The classes
+     * installed concurrently must have distinct names.
+     *
+     * @param name Binary name of class.
+     * @param data Class data bytes.
+     * @param cs CodeSource code source of the class bytes.
+     *
+     * @return Installed class.
+     */
+    Class<?> installClassConcurrently(final String name, final byte[] data, final CodeSource cs) {
+        return defineClass(name, data, 0, data.length, Objects.requireNonNull(cs));
+    }
 }
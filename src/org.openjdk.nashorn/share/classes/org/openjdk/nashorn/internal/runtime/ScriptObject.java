@@ -130,6 +130,9 @@ public abstract class ScriptObject implements PropertyAccess, Cloneable {
      */
     public static final int SPILL_RATE = 8;
 
+    /** Maximum spill length allocated in advance for properties not yet added to an object. */
+    private static final int MAX_SPILL_PREALLOCATION = 128;
+
     /** Map to property information and accessor functions. Ordered by insertion. */
     private PropertyMap map;
 
@@ -151,7 +154,8 @@ public abstract class ScriptObject implements PropertyAccess, Cloneable {
     /** Method handle to retrieve prototype of this object */
     public static final MethodHandle GETPROTO      = findOwnMH_V("getProto", ScriptObject.class);
 
-    static final MethodHandle MEGAMORPHIC_GET    = findOwnMH_V("megamorphicGet", Object.class, String.class, boolean.class, boolean.class);
+    static final MethodHandle MEGAMORPHIC_GET    = findOwnMH_V("megamorphicGet", Object.class, String.class, boolean.class, boolean.class, MegamorphicCache.class);
+    static final MethodHandle MEGAMORPHIC_SET    = findOwnMH_V("megamorphicSet", void.class, Object.class, String.class, int.class, MegamorphicCache.class);
     static final MethodHandle GLOBALFILTER       = findOwnMH_S("globalFilter", Object.class, Object.class);
     static final MethodHandle DECLARE_AND_SET    = findOwnMH_V("declareAndSet", void.class, String.class, Object.class);
 
@@ -1373,11 +1377,17 @@ public abstract class ScriptObject implements PropertyAccess, Cloneable {
      */
     @SuppressWarnings("unchecked")
     protected <T> T[] getOwnKeys(final Class<T> type, final boolean all, final Set<T> nonEnumerable) {
-        final List<Object> keys    = new ArrayList<>();
         final PropertyMap  selfMap = this.getMap();
-
         final ArrayData array  = getArray();
 
+        if (type == String.class && !all && nonEnumerable == null && array.length() == 0) {
+            // Fast path for enumerable keys of objects without array elements. The empty array can be shared.
+            final String[] keys = selfMap.getEnumerableKeys();
+            return (T[])(keys.length == 0 ? keys : keys.clone());
+        }
+
+        final List<Object> keys    = new ArrayList<>();
+
         if (type == String.class) {
             for (final Iterator<Long> iter = array.indexIterator(); iter.hasNext(); ) {
                 keys.add(JSType.toString(iter.next().longValue()));
@@ -1995,8 +2005,6 @@ public abstract class ScriptObject implements PropertyAccess, Cloneable {
                 UnwarrantedOptimismException.INVALID_PROGRAM_POINT;
 
         mh = find.getGetter(returnType, programPoint, request);
-        // Get the appropriate guard for this callsite and property.
-        final MethodHandle guard = NashornGuards.getGuard(this, property, desc, explicitInstanceOfCheck);
         final ScriptObject owner = find.getOwner();
         final Class<ClassCastException> exception = explicitInstanceOfCheck ? null : ClassCastException.class;
 
@@ -2004,7 +2012,7 @@ public abstract class ScriptObject implements PropertyAccess, Cloneable {
 
         if (mh == null) {
             mh = Lookup.emptyGetter(returnType);
-            protoSwitchPoints = getProtoSwitchPoints(name, owner);
+            protoSwitchPoints = getInheritedSwitchPoints(desc, name, owner);
         } else if (!find.isSelf()) {
             assert mh.type().returnType().equals(returnType) :
                     "return type mismatch for getter " + mh.type().returnType() + " != " + returnType;
@@ -2012,26 +2020,39 @@ public abstract class ScriptObject implements PropertyAccess, Cloneable {
                 // Add a filter that replaces the self object with the prototype owning the property.
                 mh = addProtoFilter(mh, find.getProtoChainLength());
             }
-            protoSwitchPoints = getProtoSwitchPoints(name, owner);
+            protoSwitchPoints = getInheritedSwitchPoints(desc, name, owner);
         } else {
             protoSwitchPoints = null;
         }
 
-        final GuardedInvocation inv = new GuardedInvocation(mh, guard, protoSwitchPoints, exception);
+        // Guard the invocation as appropriate for this callsite and property.
+        final GuardedInvocation inv = NashornGuards.newGuardedInvocation(mh, this, property, desc, explicitInstanceOfCheck, protoSwitchPoints, exception);
         return inv.addSwitchPoint(findBuiltinSwitchPoint(name));
     }
 
     private static GuardedInvocation findMegaMorphicGetMethod(final CallSiteDescriptor desc, final String name, final boolean isMethod) {
         Context.getContextTrusted().getLogger(ObjectClassGenerator.class).warning("Megamorphic getter: ", desc, " ", name + " ", isMethod);
-        final MethodHandle invoker = MH.insertArguments(MEGAMORPHIC_GET, 1, name, isMethod, NashornCallSiteDescriptor.isScope(desc));
+        final boolean      isScope = NashornCallSiteDescriptor.isScope(desc);
+        // Scope lookups may be affected by with statements and lexical scopes, so they are not cached
+        final MethodHandle invoker = MH.insertArguments(MEGAMORPHIC_GET, 1, name, isMethod, isScope, isScope ? null : new MegamorphicCache());
         final MethodHandle guard   = getScriptObjectGuard(desc.getMethodType(), true);
         return new GuardedInvocation(invoker, guard);
     }
 
     @SuppressWarnings("unused")
-    private Object megamorphicGet(final String key, final boolean isMethod, final boolean isScope) {
+    private Object megamorphicGet(final String key, final boolean isMethod, final boolean isScope, final MegamorphicCache cache) {
+        if (cache != null) {
+            final MegamorphicCache.Entry entry = cache.get(getMap());
+            if (entry != null) {
+                return entry.getObjectValue(this);
+            }
+        }
+
         final FindProperty find = findProperty(key, true, isScope, this);
         if (find != null) {
+            if (cache != null) {
+                cache.put(getMap(), find, getProtoChainSwitchPoints(find.getOwner()));
+            }
             // If this is a method invocation, and found property has a different self object then this,
             // then return a function bound to the self object. This is the case for functions in with expressions.
             final Object value = find.getObjectValue();
@@ -2152,6 +2173,46 @@ public abstract class ScriptObject implements PropertyAccess, Cloneable {
         return switchPoints.toArray(new SwitchPoint[0]);
     }
 
+    /**
+     * Get a SwitchPoint that is invalidated when a property is created, modified, or deleted in any
+     * object of this object's prototype chain, or when the prototype of any of these objects is changed.
+     * The SwitchPoint is kept in the property map of the prototype and shared by all objects inheriting
+     * from an object with that map, so an inherited property access only needs to check the map of the
+     * receiver and this single SwitchPoint no matter how long the prototype chain is.
+     *
+     * @return the prototype chain SwitchPoint, or null if this object has no prototype
+     */
+    public final SwitchPoint getProtoChainSwitchPoint() {
+        final ScriptObject proto = getProto();
+        if (proto == null) {
+            return null;
+        }
+
+        final PropertyMap protoMap = proto.getMap();
+        SwitchPoint switchPoint = protoMap.getProtoChainSwitchPoint();
+
+        if (switchPoint == null) {
+            switchPoint = new SwitchPoint();
+            for (ScriptObject obj = proto; obj != null; obj = obj.getProto()) {
+                obj.getMap().addProtoChainSwitchPoint(switchPoint);
+            }
+            protoMap.setProtoChainSwitchPoint(switchPoint);
+        }
+
+        return switchPoint;
+    }
+
+    private SwitchPoint[] getProtoChainSwitchPoints(final ScriptObject owner) {
+        final SwitchPoint switchPoint = owner == this ? null : getProtoChainSwitchPoint();
+        return switchPoint == null ? null : new SwitchPoint[] { switchPoint };
+    }
+
+    // Scope objects inherit from the global object, which changes too often for the prototype chain
+    // SwitchPoint, so scope accesses keep using the SwitchPoints of the individual property.
+    private SwitchPoint[] getInheritedSwitchPoints(final CallSiteDescriptor desc, final String name, final ScriptObject owner) {
+        return NashornCallSiteDescriptor.isScope(desc) ? getProtoSwitchPoints(name, owner) : getProtoChainSwitchPoints(owner);
+    }
+
     // Similar to getProtoSwitchPoints method above, but used for additional prototype switchpoints of
     // properties that are known not to exist, e.g. the original property name in a __noSuchProperty__ invocation.
     final SwitchPoint getProtoSwitchPoint(final String name) {
@@ -2250,8 +2311,11 @@ public abstract class ScriptObject implements PropertyAccess, Cloneable {
     }
 
     private GlobalConstants getGlobalConstants() {
-        // Avoid hitting getContext() which might be costly for a non-Global unless needed.
-        return GlobalConstants.GLOBAL_ONLY && !isGlobal() ? null : getContext().getGlobalConstants();
+        if (isGlobal()) {
+            return ((Global)this).getGlobalConstants();
+        }
+        // Avoid looking up the current global for a non-Global unless needed.
+        return GlobalConstants.GLOBAL_ONLY ? null : Context.getGlobal().getGlobalConstants();
     }
 
     private GuardedInvocation createEmptySetMethod(final CallSiteDescriptor desc, final boolean explicitInstanceOfCheck, final String strictErrorMessage, final boolean canBeFastScope) {
@@ -2260,9 +2324,10 @@ public abstract class ScriptObject implements PropertyAccess, Cloneable {
             throw typeError(strictErrorMessage, name, ScriptRuntime.safeToString(this));
         }
         assert canBeFastScope || !NashornCallSiteDescriptor.isFastScope(desc);
-        return new GuardedInvocation(
+        return NashornGuards.newMapGuardedInvocation(
                 Lookup.EMPTY_SETTER,
-                NashornGuards.getMapGuard(getMap(), explicitInstanceOfCheck),
+                getMap(),
+                explicitInstanceOfCheck,
                 getProtoSwitchPoints(name, null),
                 explicitInstanceOfCheck ? null : ClassCastException.class);
     }
@@ -2282,12 +2347,36 @@ public abstract class ScriptObject implements PropertyAccess, Cloneable {
 
     private static GuardedInvocation findMegaMorphicSetMethod(final CallSiteDescriptor desc, final String name) {
         Context.getContextTrusted().getLogger(ObjectClassGenerator.class).warning("Megamorphic setter: ", desc, " ", name);
+        final int flags = NashornCallSiteDescriptor.getFlags(desc);
+        if (!isScopeFlag(flags) && !NashornCallSiteDescriptor.isDeclaration(flags) && !isValidArrayIndex(getArrayIndex(name))) {
+            final MethodHandle invoker = MH.insertArguments(MEGAMORPHIC_SET, 2, name, flags, new MegamorphicCache());
+            final MethodHandle guard   = getScriptObjectGuard(desc.getMethodType(), true);
+            return new GuardedInvocation(MH.asType(invoker, desc.getMethodType()), guard);
+        }
+
         final MethodType        type = desc.getMethodType().insertParameterTypes(1, Object.class);
         //never bother with ClassCastExceptionGuard for megamorphic callsites
         final GuardedInvocation inv = findSetIndexMethod(desc, false, type);
         return inv.replaceMethods(MH.insertArguments(inv.getInvocation(), 1, name), inv.getGuard());
     }
 
+    @SuppressWarnings("unused")
+    private void megamorphicSet(final Object value, final String key, final int callSiteFlags, final MegamorphicCache cache) {
+        final MegamorphicCache.Entry entry = cache.get(getMap());
+        if (entry != null) {
+            invalidateGlobalConstant(key);
+            entry.property.setValue(this, this, value, isStrictFlag(callSiteFlags));
+            return;
+        }
+
+        final FindProperty find = findProperty(key, true);
+        // Only cache writable own properties, setting any other property takes the slow path
+        if (find != null && find.isSelf() && find.getProperty().isWritable() && find.getProperty().hasNativeSetter()) {
+            cache.put(getMap(), find, null);
+        }
+        setObject(find, callSiteFlags, key, value);
+    }
+
     @SuppressWarnings("unused")
     private static Object globalFilter(final Object object) {
         ScriptObject sobj = (ScriptObject) object;
@@ -2487,11 +2576,27 @@ public abstract class ScriptObject implements PropertyAccess, Cloneable {
             throw new UnwarrantedOptimismException(UNDEFINED, NashornCallSiteDescriptor.getProgramPoint(desc), Type.OBJECT);
         }
 
-        return new GuardedInvocation(Lookup.emptyGetter(desc.getMethodType().returnType()),
-                NashornGuards.getMapGuard(getMap(), explicitInstanceOfCheck), getProtoSwitchPoints(name, null),
+        return NashornGuards.newMapGuardedInvocation(Lookup.emptyGetter(desc.getMethodType().returnType()),
+                getMap(), explicitInstanceOfCheck, getProtoSwitchPoints(name, null),
                 explicitInstanceOfCheck ? null : ClassCastException.class);
     }
 
+    /**
+     * Check whether any object in the prototype chain of an object has enumerable string keys. If none has,
+     * the enumerable keys of the object are its own ones and there is no need to filter shadowed keys.
+     *
+     * @param object the object
+     * @return true if an object in the prototype chain has enumerable keys
+     */
+    private static boolean hasInheritedEnumerableKeys(final ScriptObject object) {
+        for (ScriptObject proto = object.getProto(); proto != null; proto = proto.getProto()) {
+            if (proto.getOwnKeys(String.class, false, null).length != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private abstract static class ScriptObjectIterator <T> implements Iterator<T> {
         protected T[] values;
         protected final ScriptObject object;
@@ -2532,6 +2637,10 @@ public abstract class ScriptObject implements PropertyAccess, Cloneable {
 
         @Override
         protected void init() {
+            if (!hasInheritedEnumerableKeys(object)) {
+                this.values = object.getOwnKeys(String.class, false, null);
+                return;
+            }
             final Set<String> keys = new LinkedHashSet<>();
             final Set<String> nonEnumerable = new HashSet<>();
             for (ScriptObject self = object; self != null; self = self.getProto()) {
@@ -2548,6 +2657,15 @@ public abstract class ScriptObject implements PropertyAccess, Cloneable {
 
         @Override
         protected void init() {
+            if (!hasInheritedEnumerableKeys(object)) {
+                final String[] keys = object.getOwnKeys(String.class, false, null);
+                final Object[] ownValues = new Object[keys.length];
+                for (int i = 0; i < keys.length; i++) {
+                    ownValues[i] = object.get(keys[i]);
+                }
+                this.values = ownValues;
+                return;
+            }
             final ArrayList<Object> valueList = new ArrayList<>();
             final Set<String> nonEnumerable = new HashSet<>();
             for (ScriptObject self = object; self != null; self = self.getProto()) {
@@ -3431,6 +3549,14 @@ public abstract class ScriptObject implements PropertyAccess, Cloneable {
 
     @Override
     protected ScriptObject clone() throws CloneNotSupportedException {
+        if (objectSpill != null) {
+            // A lazy value shared by the clone and this object would be materialized separately by each.
+            for (int i = 0; i < objectSpill.length; i++) {
+                if (objectSpill[i] instanceof LazySpillProperty.LazyValue) {
+                    LazySpillProperty.getLazy(this, i);
+                }
+            }
+        }
         final ScriptObject clone = (ScriptObject) super.clone();
         if (objectSpill != null) {
             clone.objectSpill = objectSpill.clone();
@@ -3472,7 +3598,10 @@ public abstract class ScriptObject implements PropertyAccess, Cloneable {
         if (slot < oldLength) {
             return this;
         }
-        final int newLength = alignUp(slot + 1, SPILL_RATE);
+        // Grow to the spill length reached by other objects that spilled the same first property, so that
+        // objects built up one property at a time only grow their spill once. Grow by half otherwise.
+        final int expectedLength = Math.min(map.getExpectedSpillLength(), MAX_SPILL_PREALLOCATION);
+        final int newLength = alignUp(Math.max(slot + 1, Math.max(expectedLength, oldLength + (oldLength >> 1))), SPILL_RATE);
         final Object[] newObjectSpill    = new Object[newLength];
         final long[]   newPrimitiveSpill = useDualFields() ? new long[newLength] : null;
 
@@ -113,8 +113,8 @@ final class SetMethodCreator {
             // getGuard returns a map guard that casts its argument to ScriptObject, and if that fails, we need to
             // relink on ClassCastException.
             final boolean explicitInstanceOfCheck = NashornGuards.explicitInstanceOfCheck(desc, request);
-            return new GuardedInvocation(methodHandle, NashornGuards.getGuard(sobj, property, desc, explicitInstanceOfCheck),
-                    (SwitchPoint)null, explicitInstanceOfCheck ? null : ClassCastException.class);
+            return NashornGuards.newGuardedInvocation(methodHandle, sobj, property, desc, explicitInstanceOfCheck,
+                    null, explicitInstanceOfCheck ? null : ClassCastException.class);
         }
     }
 
@@ -80,6 +80,38 @@ public final class StoredScript implements Serializable {
         return compilationId;
     }
 
+    /**
+     * Get the name of the main class of this StoredScript
+     * @return main class name
+     */
+    String getMainClassName() {
+        return mainClassName;
+    }
+
+    /**
+     * Get the class files of this StoredScript
+     * @return map of class names to class bytes
+     */
+    Map<String, byte[]> getClassBytes() {
+        return classBytes;
+    }
+
+    /**
+     * Get the function initializers of this StoredScript
+     * @return map of function ids to function initializers
+     */
+    Map<Integer, FunctionInitializer> getInitializers() {
+        return initializers;
+    }
+
+    /**
+     * Get the constants array of this StoredScript
+     * @return constants array
+     */
+    Object[] getConstants() {
+        return constants;
+    }
+
     private Map<String, Class<?>> installClasses(final Source source, final CodeInstaller installer) {
         final Map<String, Class<?>> installedClasses = new HashMap<>();
         final byte[]   mainClassBytes = classBytes.get(mainClassName);
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.openjdk.nashorn.internal.runtime;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Weak keyed table of the transitions from a {@link PropertyMap} to the maps derived from it.
+ * <p>
+ * Lookups and insertions don't take any locks. A table with few transitions, which is the common
+ * case, holds them in an immutable array that is replaced by compare-and-set on insertion. Once
+ * there are more than {@code MAX_ARRAY_LENGTH} transitions, for example from the empty map of
+ * objects used as dictionaries, the table switches to a concurrent hash map. Keys are held weakly,
+ * and maps through the reference given on insertion. Entries whose key or map has been collected
+ * are dropped when the table is modified. A null key is allowed, for the null prototype.
+ *
+ * @param <K> the key type
+ */
+final class TransitionTable<K> {
+    /** Maximum number of transitions kept in an array. */
+    private static final int MAX_ARRAY_LENGTH = 8;
+
+    private static final Entry[] EMPTY_ARRAY = new Entry[0];
+
+    /** Key used in place of null, which can't be told apart from a collected key. */
+    private static final Object NULL_KEY = new Object();
+
+    private static final VarHandle TABLE;
+    static {
+        try {
+            TABLE = MethodHandles.lookup().findVarHandle(TransitionTable.class, "table", Object.class);
+        } catch (final ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Either an immutable {@code Entry[]} or a {@link HashTable}. */
+    private volatile Object table = EMPTY_ARRAY;
+
+    /**
+     * Get the map for a key.
+     *
+     * @param key the key
+     * @return the map, or null if there is none
+     */
+    PropertyMap get(final K key) {
+        final Object k = key == null ? NULL_KEY : key;
+        final Object t = table;
+        if (t instanceof HashTable) {
+            final Entry entry = ((HashTable)t).map.get(new Entry(k, null, null));
+            return entry == null ? null : entry.getMap();
+        }
+        final int hash = k.hashCode();
+        for (final Entry entry : (Entry[])t) {
+            if (entry.matches(k, hash)) {
+                return entry.getMap();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Add the map for a key unless there already is one. If several threads add a map for the
+     * same key at the same time, all of them get the same map.
+     *
+     * @param key the key
+     * @param map the map
+     * @param ref reference to the map, by which the table holds it
+     * @return the map for the key, either {@code map} or the one that was already present
+     */
+    PropertyMap putIfAbsent(final K key, final PropertyMap map, final Reference<PropertyMap> ref) {
+        final Object k = key == null ? NULL_KEY : key;
+        while (true) {
+            final Object t = table;
+            if (t instanceof HashTable) {
+                final PropertyMap existing = ((HashTable)t).putIfAbsent(k, ref);
+                return existing != null ? existing : map;
+            }
+
+            final Entry[] entries = (Entry[])t;
+            final int hash = k.hashCode();
+            int live = 0;
+            for (final Entry entry : entries) {
+                if (entry.matches(k, hash)) {
+                    final PropertyMap existing = entry.getMap();
+                    if (existing != null) {
+                        return existing;
+                    }
+                } else if (entry.isLive()) {
+                    live++;
+                }
+            }
+
+            final Object newTable;
+            if (live < MAX_ARRAY_LENGTH) {
+                final Entry[] newEntries = new Entry[live + 1];
+                int i = 0;
+                for (final Entry entry : entries) {
+                    if (!entry.matches(k, hash) && entry.isLive()) {
+                        newEntries[i++] = entry;
+                    }
+                }
+                newEntries[i] = new Entry(k, ref, null);
+                newTable = newEntries;
+            } else {
+                final HashTable hashTable = new HashTable();
+                for (final Entry entry : entries) {
+                    final Object entryKey = entry.get();
+                    if (entryKey != null && entry.isLive()) {
+                        hashTable.putIfAbsent(entryKey, entry.map);
+                    }
+                }
+                hashTable.putIfAbsent(k, ref);
+                newTable = hashTable;
+            }
+
+            if (TABLE.compareAndSet(this, t, newTable)) {
+                // a weak reference may already be cleared, so don't read the map back from it
+                return map;
+            }
+        }
+    }
+
+    private static final class HashTable {
+        final ConcurrentHashMap<Entry, Entry> map = new ConcurrentHashMap<>();
+        private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+        /**
+         * @return the map already present for the key, or null if {@code ref} was added
+         */
+        PropertyMap putIfAbsent(final Object key, final Reference<PropertyMap> ref) {
+            for (Entry stale; (stale = (Entry)queue.poll()) != null; ) {
+                map.remove(stale, stale);
+            }
+
+            final Entry entry = new Entry(key, ref, queue);
+            while (true) {
+                final Entry existing = map.putIfAbsent(entry, entry);
+                if (existing == null) {
+                    return null;
+                }
+                final PropertyMap existingMap = existing.getMap();
+                if (existingMap != null) {
+                    return existingMap;
+                }
+                map.remove(existing, existing);
+            }
+        }
+    }
+
+    private static final class Entry extends WeakReference<Object> {
+        private final int hash;
+        final Reference<PropertyMap> map;
+
+        Entry(final Object key, final Reference<PropertyMap> map, final ReferenceQueue<Object> queue) {
+            super(key, queue);
+            this.hash = key.hashCode();
+            this.map = map;
+        }
+
+        boolean matches(final Object key, final int keyHash) {
+            if (hash != keyHash) {
+                return false;
+            }
+            final Object entryKey = get();
+            return entryKey == key || key.equals(entryKey);
+        }
+
+        PropertyMap getMap() {
+            return map.get();
+        }
+
+        boolean isLive() {
+            return get() != null && map.get() != null;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Entry)) {
+                return false;
+            }
+            final Object key = get();
+            return key != null && ((Entry)other).matches(key, hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -71,6 +71,20 @@ public final class DoubleConversion {
      * @return formatted number
      */
     public static String toShortestString(final double value) {
+        return shortestDtoa(value).format(DtoaMode.SHORTEST, 0);
+    }
+
+    /**
+     * Appends the shortest string representation of a double number to a string builder.
+     *
+     * @param value number to convert
+     * @param sb the string builder to append to
+     */
+    public static void appendShortestString(final double value, final StringBuilder sb) {
+        shortestDtoa(value).format(DtoaMode.SHORTEST, 0, sb);
+    }
+
+    private static DtoaBuffer shortestDtoa(final double value) {
         final DtoaBuffer buffer = new DtoaBuffer(FastDtoa.kFastDtoaMaximalLength);
         final double absValue = Math.abs(value);
 
@@ -83,7 +97,7 @@ public final class DoubleConversion {
             bignumDtoa(absValue, DtoaMode.SHORTEST, 0, buffer);
         }
 
-        return buffer.format(DtoaMode.SHORTEST, 0);
+        return buffer;
     }
 
     /**
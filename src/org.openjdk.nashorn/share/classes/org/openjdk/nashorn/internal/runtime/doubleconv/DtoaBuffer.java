@@ -137,6 +137,19 @@ public class DtoaBuffer {
      */
     public String format(final DtoaMode mode, final int digitsAfterPoint) {
         final StringBuilder buffer = new StringBuilder();
+        format(mode, digitsAfterPoint, buffer);
+        return buffer.toString();
+    }
+
+    /**
+     * Appends the formatted buffer content to a string builder, using the specified conversion mode
+     * and padding.
+     *
+     * @param mode conversion mode
+     * @param digitsAfterPoint number of digits after point
+     * @param buffer the string builder to append to
+     */
+    public void format(final DtoaMode mode, final int digitsAfterPoint, final StringBuilder buffer) {
         if (isNegative) {
             buffer.append('-');
         }
@@ -161,8 +174,6 @@ public class DtoaBuffer {
                 }
                 break;
         }
-
-        return buffer.toString();
     }
 
     private void toFixedFormat(final StringBuilder buffer, final int digitsAfterPoint) {
@@ -34,19 +34,25 @@ import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.LongAdder;
 import jdk.dynalink.DynamicLinker;
 import jdk.dynalink.linker.GuardedInvocation;
-import jdk.dynalink.support.ChainedCallSite;
+import jdk.dynalink.support.AbstractRelinkableCallSite;
 import org.openjdk.nashorn.internal.runtime.Context;
 import org.openjdk.nashorn.internal.runtime.Debug;
+import org.openjdk.nashorn.internal.runtime.PropertyMap;
 import org.openjdk.nashorn.internal.runtime.ScriptObject;
 import org.openjdk.nashorn.internal.runtime.ScriptRuntime;
 import org.openjdk.nashorn.internal.runtime.options.Options;
@@ -54,8 +60,13 @@ import org.openjdk.nashorn.internal.runtime.options.Options;
 
 /**
  * Relinkable form of call site.
+ * <p>
+ * Like Dynalink's {@code ChainedCallSite}, a call site keeps a chain of the most recently
+ * linked invocations and tests their guards one after another. Once a site has linked
+ * several invocations that are only guarded by the property map of their receiver, these
+ * are selected by a search on the map of the receiver instead, see {@link PropertyMapDispatch}.
  */
-public class LinkerCallSite extends ChainedCallSite {
+public class LinkerCallSite extends AbstractRelinkableCallSite {
     /** Maximum number of arguments passed directly. */
     public static final int ARGLIMIT = 125;
 
@@ -64,6 +75,24 @@ public class LinkerCallSite extends ChainedCallSite {
     private static final MethodHandle INCREASE_MISS_COUNTER = MH.findStatic(MethodHandles.lookup(), LinkerCallSite.class, "increaseMissCount", MH.type(Object.class, String.class, Object.class));
     private static final Comparator<Entry<String, AtomicInteger>> MISS_COUNT_COMPARATOR = Comparator.comparingInt(e -> e.getValue().get());
 
+    private static final MethodHandle PRUNE               = MH.findVirtual(MethodHandles.lookup(), LinkerCallSite.class, "prune", MH.type(MethodHandle.class, MethodHandle.class, boolean.class));
+    private static final MethodHandle COUNT_DISPATCH      = MH.findVirtual(MethodHandles.lookup(), LinkerCallSite.class, "countDispatch", MH.type(Object.class, Object.class));
+    private static final MethodHandle COUNT_DISPATCH_MISS = MH.findVirtual(MethodHandles.lookup(), LinkerCallSite.class, "countDispatchMiss", MH.type(Object.class, Object.class));
+
+    /** Whether map guarded invocations are dispatched on the receiver map. Disabled with -Dnashorn.callsite.dispatch=false */
+    private static final boolean DISPATCH = Options.getBooleanProperty("nashorn.callsite.dispatch", Boolean.TRUE);
+
+    /** Minimum number of map guarded invocations that are dispatched on the receiver map rather than chained. */
+    private static final int DISPATCH_THRESHOLD = Math.max(2, Options.getIntProperty("nashorn.callsite.dispatch.threshold", 4));
+
+    /** Linked invocations, most recently linked last. */
+    private final AtomicReference<LinkedList<GuardedInvocation>> invocations = new AtomicReference<>();
+
+    // dispatch counters updated in debug mode
+    private LongAdder dispatchCount;
+    private LongAdder dispatchMissCount;
+    private String dispatchLocation;
+
     LinkerCallSite(final NashornCallSiteDescriptor descriptor) {
         super(descriptor);
         if (Context.DEBUG) {
@@ -107,12 +136,124 @@ public class LinkerCallSite extends ChainedCallSite {
 
     @Override
     public void relink(final GuardedInvocation invocation, final MethodHandle relink) {
-        super.relink(invocation, getDebuggingRelink(relink));
+        relinkInternal(invocation, getDebuggingRelink(relink), false, false);
     }
 
     @Override
     public void resetAndRelink(final GuardedInvocation invocation, final MethodHandle relink) {
-        super.resetAndRelink(invocation, getDebuggingRelink(relink));
+        relinkInternal(invocation, getDebuggingRelink(relink), true, false);
+    }
+
+    private MethodHandle relinkInternal(final GuardedInvocation invocation, final MethodHandle relink, final boolean reset, final boolean removeCatches) {
+        final LinkedList<GuardedInvocation> currentInvocations = invocations.get();
+        final LinkedList<GuardedInvocation> newInvocations = currentInvocations == null || reset ? new LinkedList<>() : new LinkedList<>(currentInvocations);
+
+        // Always prune invocations with invalidated switch points, and those relinking on exceptions if asked to
+        newInvocations.removeIf(inv -> inv.hasBeenInvalidated() || (removeCatches && inv.getException() != null));
+
+        // prune() relinks without a new invocation to only remove invocations from the chain
+        if (invocation != null) {
+            if (newInvocations.size() == getMaxChainLength()) {
+                newInvocations.removeFirst();
+            }
+            newInvocations.addLast(invocation);
+        }
+
+        final MethodHandle pruneAndInvokeSwitchPoints = makePruneAndInvokeMethod(relink, false);
+        final MethodHandle pruneAndInvokeCatches      = makePruneAndInvokeMethod(relink, true);
+
+        final MethodHandle target = compose(newInvocations, relink, pruneAndInvokeSwitchPoints, pruneAndInvokeCatches);
+
+        // If nobody else updated the call site while we were rebuilding the chain, set the target
+        if (invocations.compareAndSet(currentInvocations, newInvocations)) {
+            setTarget(target);
+        }
+        return target;
+    }
+
+    private MethodHandle compose(final LinkedList<GuardedInvocation> chain, final MethodHandle relink,
+            final MethodHandle switchPointFallback, final MethodHandle catchFallback) {
+        // Most recently linked invocation for each map that is the only guard of an invocation
+        final Map<PropertyMap, GuardedInvocation> mapGuarded = new LinkedHashMap<>();
+        if (DISPATCH) {
+            for (final GuardedInvocation inv : chain) {
+                final PropertyMap map = NashornGuards.getGuardedMap(inv);
+                if (map != null) {
+                    mapGuarded.remove(map);
+                    mapGuarded.put(map, inv);
+                }
+            }
+        }
+        final boolean dispatch = mapGuarded.size() >= DISPATCH_THRESHOLD;
+
+        MethodHandle target = relink;
+        for (final GuardedInvocation inv : chain) {
+            if (!dispatch || NashornGuards.getGuardedMap(inv) == null) {
+                target = inv.compose(target, switchPointFallback, catchFallback);
+            }
+        }
+
+        if (dispatch) {
+            final PropertyMap[]       maps           = mapGuarded.keySet().toArray(new PropertyMap[0]);
+            final GuardedInvocation[] mapInvocations = mapGuarded.values().toArray(new GuardedInvocation[0]);
+            if (Context.DEBUG) {
+                initDispatchCounters();
+                target = PropertyMapDispatch.dispatch(maps, mapInvocations, countDispatch(target, COUNT_DISPATCH_MISS), switchPointFallback, catchFallback);
+                target = countDispatch(target, COUNT_DISPATCH);
+            } else {
+                target = PropertyMapDispatch.dispatch(maps, mapInvocations, target, switchPointFallback, catchFallback);
+            }
+        }
+
+        return target;
+    }
+
+    private MethodHandle makePruneAndInvokeMethod(final MethodHandle relink, final boolean catches) {
+        // Prune the chain ignoring all incoming arguments, then invoke the new target with them
+        final MethodHandle boundPrune = MH.insertArguments(PRUNE, 0, this, relink, catches);
+        final MethodHandle ignoreArgsPrune = MH.dropArguments(boundPrune, 0, type().parameterList());
+        return MH.foldArguments(MethodHandles.exactInvoker(type()), ignoreArgsPrune);
+    }
+
+    @SuppressWarnings("unused")
+    private MethodHandle prune(final MethodHandle relink, final boolean catches) {
+        return relinkInternal(null, relink, false, catches);
+    }
+
+    private synchronized void initDispatchCounters() {
+        if (dispatchLocation == null) {
+            dispatchCount     = new LongAdder();
+            dispatchMissCount = new LongAdder();
+            dispatchLocation  = getDescriptor().getOperation() + " @ " + getScriptLocation();
+            dispatchingSites.add(this);
+        }
+    }
+
+    private MethodHandle countDispatch(final MethodHandle target, final MethodHandle counter) {
+        final Class<?> type = target.type().parameterType(0);
+        return MH.filterArguments(target, 0, MH.asType(MH.bindTo(counter, this), MH.type(type, type)));
+    }
+
+    /**
+     * Instrumentation - count dispatches on the receiver map. Used as filter
+     * @param self self reference
+     * @return self reference
+     */
+    @SuppressWarnings("unused")
+    private Object countDispatch(final Object self) {
+        dispatchCount.increment();
+        return self;
+    }
+
+    /**
+     * Instrumentation - count dispatches that found no invocation for the receiver map. Used as filter
+     * @param self self reference
+     * @return self reference
+     */
+    @SuppressWarnings("unused")
+    private Object countDispatchMiss(final Object self) {
+        dispatchMissCount.increment();
+        return self;
     }
 
     private MethodHandle getDebuggingRelink(final MethodHandle relink) {
@@ -491,6 +632,7 @@ public class LinkerCallSite extends ChainedCallSite {
     private static LongAdder missCount;
     private static final Random r = new Random();
     private static final int missSamplingPercentage = Options.getIntProperty("nashorn.tcs.miss.samplePercent", 1);
+    private static final Set<LinkerCallSite> dispatchingSites = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
     static {
         if (Context.DEBUG) {
@@ -499,7 +641,11 @@ public class LinkerCallSite extends ChainedCallSite {
         }
     }
 
-    @Override
+    /**
+     * Get the maximum number of invocations linked to this call site. When a new invocation
+     * is linked to a site with that many invocations, the least recently linked one is removed.
+     * @return the maximum number of linked invocations
+     */
     protected int getMaxChainLength() {
         return 8;
     }
@@ -542,4 +688,16 @@ public class LinkerCallSite extends ChainedCallSite {
         }
     }
 
+    /**
+     * Dump the hit rates of the call sites dispatching on the receiver map to a given output stream
+     * @param out print stream
+     */
+    public static void getDispatchCounts(final PrintWriter out) {
+        for (final LinkerCallSite callSite : dispatchingSites) {
+            final long total = callSite.dispatchCount.sum();
+            final long hits  = total - callSite.dispatchMissCount.sum();
+            out.println("  " + callSite.dispatchLocation + "\t" + hits + "/" + total + "\t" + (total == 0 ? 0 : hits * 100 / total) + "%");
+        }
+    }
+
 }
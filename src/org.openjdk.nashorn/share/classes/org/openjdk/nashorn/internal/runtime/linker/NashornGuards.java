@@ -29,8 +29,11 @@ import static org.openjdk.nashorn.internal.lookup.Lookup.MH;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.SwitchPoint;
 import java.lang.ref.WeakReference;
+import java.util.Arrays;
 import jdk.dynalink.CallSiteDescriptor;
+import jdk.dynalink.linker.GuardedInvocation;
 import jdk.dynalink.linker.LinkRequest;
 import org.openjdk.nashorn.api.scripting.JSObject;
 import org.openjdk.nashorn.internal.objects.Global;
@@ -114,6 +117,39 @@ public final class NashornGuards {
         return MH.insertArguments(explicitInstanceOfCheck ? IS_MAP_SCRIPTOBJECT : IS_MAP, 1, map);
     }
 
+    /**
+     * Create an invocation guarded by {@link #getMapGuard(PropertyMap, boolean)}. With an explicit
+     * instanceof check, the invocation records the map, so that call sites can dispatch on the map
+     * of the receiver, see {@link #getGuardedMap(GuardedInvocation)}.
+     *
+     * @param invocation the invocation
+     * @param map the map to check against
+     * @param explicitInstanceOfCheck true if we should do an explicit script object instanceof check instead of just casting
+     * @param switchPoints the switch points of the invocation, or null
+     * @param exception the exception type to relink on, or null
+     * @return the guarded invocation
+     */
+    public static GuardedInvocation newMapGuardedInvocation(final MethodHandle invocation, final PropertyMap map, final boolean explicitInstanceOfCheck,
+            final SwitchPoint[] switchPoints, final Class<? extends Throwable> exception) {
+        if (explicitInstanceOfCheck) {
+            return new MapGuardedInvocation(invocation, getMapGuard(map, true), map, switchPoints, exception);
+        }
+        return new GuardedInvocation(invocation, getMapGuard(map, false), switchPoints, exception);
+    }
+
+    /**
+     * Get the map checked by the guard of an invocation created by
+     * {@link #newMapGuardedInvocation(MethodHandle, PropertyMap, boolean, SwitchPoint[], Class)}
+     * with an explicit instanceof check. Call sites use this to recognize invocations that only
+     * depend on the property map of the receiver.
+     *
+     * @param inv the invocation
+     * @return the map checked by the guard, or null if the invocation is not guarded by a map guard only
+     */
+    static PropertyMap getGuardedMap(final GuardedInvocation inv) {
+        return inv instanceof MapGuardedInvocation ? ((MapGuardedInvocation)inv).map : null;
+    }
+
     /**
      * Determine whether the given callsite needs a guard.
      * @param property the property, or null
@@ -140,19 +176,47 @@ public final class NashornGuards {
         if (!needsGuard(property, desc)) {
             return null;
         }
-        if (NashornCallSiteDescriptor.isScope(desc) && sobj.isScope()) {
+        if (needsIdentityGuard(sobj, property, desc)) {
             if (property != null && property.isBound() && !property.canChangeType()) {
                 // This is a declared top level variables in main script or eval, use identity guard.
                 return getIdentityGuard(sobj);
             }
-            if (!(sobj instanceof Global) && (property == null || property.isConfigurable())) {
-                // Undeclared variables in nested evals need stronger guards
-                return combineGuards(getIdentityGuard(sobj), getMapGuard(sobj.getMap(), explicitInstanceOfCheck));
-            }
+            // Undeclared variables in nested evals need stronger guards
+            return combineGuards(getIdentityGuard(sobj), getMapGuard(sobj.getMap(), explicitInstanceOfCheck));
         }
         return getMapGuard(sobj.getMap(), explicitInstanceOfCheck);
     }
 
+    /**
+     * Create an invocation guarded by {@link #getGuard(ScriptObject, Property, CallSiteDescriptor, boolean)}.
+     * If that is a map guard, the invocation is created by
+     * {@link #newMapGuardedInvocation(MethodHandle, PropertyMap, boolean, SwitchPoint[], Class)}.
+     *
+     * @param invocation the invocation
+     * @param sobj the first object in the prototype chain
+     * @param property the property
+     * @param desc the callsite descriptor
+     * @param explicitInstanceOfCheck true if we should do an explicit script object instanceof check instead of just casting
+     * @param switchPoints the switch points of the invocation, or null
+     * @param exception the exception type to relink on, or null
+     * @return the guarded invocation
+     */
+    public static GuardedInvocation newGuardedInvocation(final MethodHandle invocation, final ScriptObject sobj, final Property property,
+            final CallSiteDescriptor desc, final boolean explicitInstanceOfCheck, final SwitchPoint[] switchPoints, final Class<? extends Throwable> exception) {
+        if (needsGuard(property, desc) && !needsIdentityGuard(sobj, property, desc)) {
+            return newMapGuardedInvocation(invocation, sobj.getMap(), explicitInstanceOfCheck, switchPoints, exception);
+        }
+        return new GuardedInvocation(invocation, getGuard(sobj, property, desc, explicitInstanceOfCheck), switchPoints, exception);
+    }
+
+    private static boolean needsIdentityGuard(final ScriptObject sobj, final Property property, final CallSiteDescriptor desc) {
+        if (NashornCallSiteDescriptor.isScope(desc) && sobj.isScope()) {
+            return property != null && property.isBound() && !property.canChangeType() ||
+                    !(sobj instanceof Global) && (property == null || property.isConfigurable());
+        }
+        return false;
+    }
+
 
     /**
      * Get a guard that checks referential identity of the current object.
@@ -238,4 +302,43 @@ public final class NashornGuards {
     private static MethodHandle findOwnMH(final String name, final Class<?> rtype, final Class<?>... types) {
         return MH.findStatic(MethodHandles.lookup(), NashornGuards.class, name, MH.type(rtype, types));
     }
+
+    /**
+     * Invocation guarded only by a map guard with an explicit instanceof check. It keeps the map
+     * when its methods are replaced with the guard unchanged, as is done to adapt invocations to
+     * the type of their call site.
+     */
+    private static final class MapGuardedInvocation extends GuardedInvocation {
+        final PropertyMap map;
+
+        MapGuardedInvocation(final MethodHandle invocation, final MethodHandle guard, final PropertyMap map,
+                final SwitchPoint[] switchPoints, final Class<? extends Throwable> exception) {
+            super(invocation, guard, switchPoints, exception);
+            this.map = map;
+        }
+
+        @Override
+        public GuardedInvocation replaceMethods(final MethodHandle newInvocation, final MethodHandle newGuard) {
+            if (newGuard != getGuard()) {
+                return super.replaceMethods(newInvocation, newGuard);
+            }
+            return new MapGuardedInvocation(newInvocation, newGuard, map, getSwitchPoints(), getException());
+        }
+
+        @Override
+        public GuardedInvocation addSwitchPoint(final SwitchPoint newSwitchPoint) {
+            if (newSwitchPoint == null) {
+                return this;
+            }
+            final SwitchPoint[] switchPoints = getSwitchPoints();
+            final SwitchPoint[] newSwitchPoints;
+            if (switchPoints == null) {
+                newSwitchPoints = new SwitchPoint[] { newSwitchPoint };
+            } else {
+                newSwitchPoints = Arrays.copyOf(switchPoints, switchPoints.length + 1);
+                newSwitchPoints[switchPoints.length] = newSwitchPoint;
+            }
+            return new MapGuardedInvocation(getInvocation(), getGuard(), map, newSwitchPoints, getException());
+        }
+    }
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.openjdk.nashorn.internal.runtime.linker;
+
+import static org.openjdk.nashorn.internal.lookup.Lookup.MH;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.Comparator;
+import jdk.dynalink.linker.GuardedInvocation;
+import org.openjdk.nashorn.internal.runtime.PropertyMap;
+import org.openjdk.nashorn.internal.runtime.ScriptObject;
+
+/**
+ * Dispatch of a polymorphic call site on the property map of its receiver.
+ * <p>
+ * A {@link LinkerCallSite} tests the guards of its linked invocations one after another.
+ * Invocations that are only guarded by the map of the receiver are instead arranged in a
+ * binary search tree by {@link PropertyMap#getId() map id}, so that a site that has seen
+ * {@code n} maps selects the invocation for the map of its receiver with {@code log2(n)}
+ * comparisons of the id, followed by the map guard of that invocation. All invocations
+ * remain constants of the resulting method handle and can be inlined.
+ */
+final class PropertyMapDispatch {
+    private static final MethodHandle IS_ID_BELOW = MH.findStatic(MethodHandles.lookup(), PropertyMapDispatch.class, "isIdBelow", MH.type(boolean.class, Object.class, int.class));
+
+    private PropertyMapDispatch() {
+    }
+
+    /**
+     * Create a method handle that invokes the invocation for the map of the receiver.
+     *
+     * @param maps distinct maps to dispatch on
+     * @param invocations the invocation guarded by each map
+     * @param fallback invocation for receivers with other maps
+     * @param switchPointFallback fallback for invalidated switch points of the invocations
+     * @param catchFallback fallback for exceptions of the invocations
+     * @return the dispatching method handle
+     */
+    static MethodHandle dispatch(final PropertyMap[] maps, final GuardedInvocation[] invocations, final MethodHandle fallback,
+            final MethodHandle switchPointFallback, final MethodHandle catchFallback) {
+        assert maps.length == invocations.length;
+
+        final Integer[] order = new Integer[maps.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> maps[i].getId()));
+
+        final int[]          ids   = new int[maps.length];
+        final MethodHandle[] cases = new MethodHandle[maps.length];
+        for (int i = 0; i < order.length; i++) {
+            ids[i]   = maps[order[i]].getId();
+            cases[i] = invocations[order[i]].compose(fallback, switchPointFallback, catchFallback);
+        }
+        return select(ids, cases, 0, cases.length, fallback.type().parameterType(0));
+    }
+
+    private static MethodHandle select(final int[] ids, final MethodHandle[] cases, final int from, final int to, final Class<?> selfType) {
+        if (to - from == 1) {
+            return cases[from];
+        }
+        final int mid = (from + to) >>> 1;
+        final MethodHandle test = MH.insertArguments(IS_ID_BELOW, 1, ids[mid]);
+        return MH.guardWithTest(MH.asType(test, test.type().changeParameterType(0, selfType)),
+                select(ids, cases, from, mid, selfType), select(ids, cases, mid, to, selfType));
+    }
+
+    @SuppressWarnings("unused")
+    private static boolean isIdBelow(final Object self, final int id) {
+        return self instanceof ScriptObject && ((ScriptObject)self).getMap().getId() < id;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.openjdk.nashorn.internal.runtime.regexp;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.nashorn.internal.runtime.SampledEviction;
+
+/**
+ * Bounded cache of compiled regular expressions, keyed by pattern and flags.
+ * <p>
+ * Lookups and insertions don't take any locks. Once the cache holds more than its maximum
+ * number of entries, the least recently used of a random sample of entries is evicted, which
+ * approximates a least recently used policy without maintaining an access order.
+ * <p>
+ * Access times are only as precise as needed to choose between entries at eviction: the time is
+ * sampled when a regular expression is added, which is when evictions happen, and a lookup
+ * stamps its entry with the last sampled time, so hits don't update any shared state.
+ */
+final class RegExpCache {
+    private final int maxEntries;
+    private final ConcurrentHashMap<Key, Entry> map;
+    /** Time of the last insertion, see {@link System#nanoTime()}. */
+    private volatile long clock = System.nanoTime();
+    private final SampledEviction<Entry> eviction = new SampledEviction<>(entry -> 0, entry -> entry.lastAccess);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param maxEntries maximum number of cached regular expressions
+     */
+    RegExpCache(final int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.map        = new ConcurrentHashMap<>(Math.min(maxEntries, 1024));
+    }
+
+    /**
+     * Look up a compiled regular expression.
+     *
+     * @param pattern the pattern
+     * @param flags the flags
+     * @return the cached regular expression, or null if there is none
+     */
+    RegExp get(final String pattern, final String flags) {
+        final Entry entry = map.get(new Key(pattern, flags));
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        final long now = clock;
+        if (entry.lastAccess != now) {
+            entry.lastAccess = now;
+        }
+        hits.increment();
+        return entry.regexp;
+    }
+
+    /**
+     * Cache a compiled regular expression.
+     *
+     * @param pattern the pattern
+     * @param flags the flags
+     * @param regexp the compiled regular expression
+     * @return the regular expression cached for pattern and flags, which is a different one if another
+     *         thread cached one first
+     */
+    RegExp put(final String pattern, final String flags, final RegExp regexp) {
+        final Key key = new Key(pattern, flags);
+        final long now = System.nanoTime();
+        clock = now;
+        final Entry previous = map.putIfAbsent(key, new Entry(key, regexp, now));
+        if (previous != null) {
+            return previous.regexp;
+        }
+        eviction.evict(map, () -> map.size() > maxEntries, victim -> {
+            if (map.remove(victim.key, victim)) {
+                evictions.increment();
+            }
+        });
+        return regexp;
+    }
+
+    /**
+     * @return the number of lookups that found a compiled regular expression.
+     */
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that did not find a compiled regular expression.
+     */
+    long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of regular expressions removed from the cache to make room for others.
+     */
+    long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of cached regular expressions.
+     */
+    int size() {
+        return map.size();
+    }
+
+    private static final class Key {
+        final String pattern;
+        final String flags;
+
+        Key(final String pattern, final String flags) {
+            this.pattern = pattern;
+            this.flags = flags;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) other;
+            return pattern.equals(key.pattern) && flags.equals(key.flags);
+        }
+
+        @Override
+        public int hashCode() {
+            return pattern.hashCode() * 31 + flags.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        final Key key;
+        final RegExp regexp;
+        volatile long lastAccess;
+
+        Entry(final Key key, final RegExp regexp, final long lastAccess) {
+            this.key = key;
+            this.regexp = regexp;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
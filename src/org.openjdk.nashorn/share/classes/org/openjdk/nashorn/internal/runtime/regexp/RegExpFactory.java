@@ -25,9 +25,6 @@
 
 package org.openjdk.nashorn.internal.runtime.regexp;
 
-import java.util.Collections;
-import java.util.Map;
-import java.util.WeakHashMap;
 import org.openjdk.nashorn.internal.runtime.ParserException;
 import org.openjdk.nashorn.internal.runtime.options.Options;
 
@@ -42,13 +39,14 @@ public class RegExpFactory {
     private final static String JDK  = "jdk";
     private final static String JONI = "joni";
 
-    /** Weak cache of already validated regexps - when reparsing, we don't, for example
+    /** Cache of already validated regexps - when reparsing, we don't, for example
      *  need to recompile (reverify) all regexps that have previously been parsed by this
      *  RegExpFactory in a previous compilation. This saves significant time in e.g. avatar
-     *  startup
+     *  startup, and in scripts that create the same regexps dynamically over and over.
+     *  The number of cached regexps is set with the {@code nashorn.regexp.cache.size}
+     *  system property, 0 disables the cache.
      */
-    private static final Map<String, RegExp> REGEXP_CACHE =
-            Collections.synchronizedMap(new WeakHashMap<String, RegExp>());
+    private static final RegExpCache REGEXP_CACHE;
 
     static {
         final String impl = Options.getStringProperty("nashorn.regexp.impl", JONI);
@@ -63,6 +61,8 @@ public class RegExpFactory {
                 instance = null;
                 throw new InternalError("Unsupported RegExp factory: " + impl);
         }
+        final int cacheSize = Options.getIntProperty("nashorn.regexp.cache.size", 512);
+        REGEXP_CACHE = cacheSize > 0 ? new RegExpCache(cacheSize) : null;
     }
 
     /**
@@ -86,13 +86,14 @@ public class RegExpFactory {
      * @throws ParserException if invalid source or flags
      */
     public static RegExp create(final String pattern, final String flags) {
-        final String key = pattern + "/" + flags;
-        RegExp regexp = REGEXP_CACHE.get(key);
-        if (regexp == null) {
-            regexp = instance.compile(pattern,  flags);
-            REGEXP_CACHE.put(key, regexp);
+        if (REGEXP_CACHE == null) {
+            return instance.compile(pattern, flags);
         }
-        return regexp;
+        final RegExp regexp = REGEXP_CACHE.get(pattern, flags);
+        if (regexp != null) {
+            return regexp;
+        }
+        return REGEXP_CACHE.put(pattern, flags, instance.compile(pattern, flags));
     }
 
     /**
@@ -115,4 +116,40 @@ public class RegExpFactory {
     public static boolean usesJavaUtilRegex() {
         return instance != null && instance.getClass() == RegExpFactory.class;
     }
+
+    /**
+     * Returns the number of regexps created from the regexp cache.
+     *
+     * @return the number of regexp cache hits
+     */
+    public static long getCacheHitCount() {
+        return REGEXP_CACHE == null ? 0 : REGEXP_CACHE.getHitCount();
+    }
+
+    /**
+     * Returns the number of regexps that had to be compiled because they were not in the regexp cache.
+     *
+     * @return the number of regexp cache misses
+     */
+    public static long getCacheMissCount() {
+        return REGEXP_CACHE == null ? 0 : REGEXP_CACHE.getMissCount();
+    }
+
+    /**
+     * Returns the number of regexps removed from the regexp cache to make room for others.
+     *
+     * @return the number of regexp cache evictions
+     */
+    public static long getCacheEvictionCount() {
+        return REGEXP_CACHE == null ? 0 : REGEXP_CACHE.getEvictionCount();
+    }
+
+    /**
+     * Returns the number of regexps in the regexp cache.
+     *
+     * @return the regexp cache size
+     */
+    public static int getCacheSize() {
+        return REGEXP_CACHE == null ? 0 : REGEXP_CACHE.size();
+    }
 }
@@ -371,6 +371,15 @@ public class Shell implements PartialParser {
 
             // For each file on the command line.
             for (final String fileName : files) {
+                if (env._code_archive != null) {
+                    // Compile through the context so the compiled script is stored in the code archive.
+                    context.compileScript(sourceFor(fileName, new File(fileName)), global);
+                    if (errors.getNumberOfErrors() != 0) {
+                        return COMPILATION_ERROR;
+                    }
+                    continue;
+                }
+
                 final FunctionNode functionNode = new Parser(env, sourceFor(fileName, new File(fileName)), errors, env._strict, 0, context.getLogger(Parser.class)).parse();
 
                 if (errors.getNumberOfErrors() != 0) {
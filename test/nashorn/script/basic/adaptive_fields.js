@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+/**
+ * Objects allocated by constructors keep their property values when the
+ * constructor switches to a different field representation.
+ *
+ * @test
+ * @run
+ */
+
+function Point(x, y) {
+    this.x = x;
+    this.y = y;
+    this.scale = 1.5;
+    this.label = "p";
+}
+
+Point.prototype.length = function() {
+    return Math.sqrt(this.x * this.x + this.y * this.y) * this.scale;
+};
+
+var points = [];
+for (var i = 0; i < 50; i++) {
+    var p = new Point(i, i * 2);
+    if (i % 10 === 0) {
+        p.extra = i / 4;
+    }
+    points.push(p);
+}
+
+var sum = 0;
+for (var i = 0; i < points.length; i++) {
+    points[i].x = points[i].x + 0.5;
+    sum += points[i].length();
+}
+print(sum.toFixed(6));
+
+// Numeric properties that later hold other values
+points[3].x = "three";
+points[40].y = { value: 40 };
+points[45].scale = undefined;
+points[49].extra = 49;
+points[49].extra = "forty-nine";
+print(points[3].x + " " + points[40].y.value + " " + points[45].scale + " " + points[49].extra);
+print(JSON.stringify(points[0]));
+print(JSON.stringify(points[48]));
+
+// Mostly non-numeric properties
+function Person(name, age) {
+    this.name = name;
+    this.email = name + "@example.com";
+    this.tags = [name];
+    this.age = age;
+}
+
+var people = [];
+for (var i = 0; i < 40; i++) {
+    people.push(new Person("p" + i, i));
+}
+people[39].age = 3.25;
+print(people[0].email + " " + people[39].age + " " + people[39].tags[0]);
+print(Object.keys(people[20]).join(","));
+
+// Values of every type in numeric fields
+function Cell(v) {
+    this.a = v;
+    this.b = v + 1;
+    this.c = v * 0.5;
+}
+
+var cells = [];
+for (var i = 0; i < 40; i++) {
+    cells.push(new Cell(i));
+}
+var values = [0, -0, 1.5, 2147483648, NaN, Infinity, true, null, "s", 9007199254740993];
+for (var i = 0; i < values.length; i++) {
+    cells[30 + i % 10].a = values[i];
+    print(cells[30 + i % 10].a + " " + (1 / cells[30 + i % 10].a));
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+/**
+ * @test
+ * @summary Objects allocated before and after a constructor switches to a larger structure class behave the same
+ * @run
+ */
+
+function Point(x, y) {
+    this.x = x;
+    this.y = y;
+}
+Point.prototype.sum = function() {
+    var s = this.x + this.y;
+    for (var k = 0; k < 10; k++) {
+        s += this["p" + k];
+    }
+    return s;
+};
+
+var points = [];
+for (var i = 0; i < 40; i++) {
+    var p = new Point(i, 2 * i);
+    for (var k = 0; k < 10; k++) {
+        p["p" + k] = k;
+    }
+    points.push(p);
+}
+
+// The first objects have spilled properties, later ones have them in fields
+var first = points[0], last = points[points.length - 1];
+print(Object.getPrototypeOf(first) === Object.getPrototypeOf(last));
+
+var total = 0;
+for (var i = 0; i < points.length; i++) {
+    total += points[i].sum();
+}
+print(total);
+
+delete last.p5;
+last.extra = "extra";
+print(last.p5, last.p9, last.extra, Object.keys(last).length);
+print(JSON.stringify(first));
+
+// A single object with many added properties among the tracked ones
+function Item(id) {
+    this.id = id;
+}
+
+var items = [];
+for (var i = 0; i < 40; i++) {
+    var item = new Item(i);
+    var n = i === 10 ? 200 : 3;
+    for (var k = 0; k < n; k++) {
+        item["q" + k] = i + k;
+    }
+    items.push(item);
+}
+print(Object.keys(items[10]).length, items[10].q199, Object.keys(items[39]).length, items[39].q2);
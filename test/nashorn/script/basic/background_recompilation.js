@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+/**
+ * @test
+ * @summary Deoptimizing recompilation on background threads produces the same results
+ * @option --optimistic-types=true
+ * @option --background-recompilation
+ * @run
+ */
+
+function add(a, b) {
+    return a + b;
+}
+
+function fold(arr) {
+    var s = 0;
+    for (var i = 0; i < arr.length; i++) {
+        s = s * 2 + arr[i];
+    }
+    return s;
+}
+
+var r;
+for (var i = 0; i < 20000; i++) {
+    r = add(i, 1);
+    if (i == 100) {
+        print(add(2147483647, 1));
+    } else if (i == 200) {
+        print(add(0.5, 1));
+    } else if (i == 300) {
+        print(add("a", i));
+    }
+}
+print(r);
+
+print(fold([1, 2, 3]));
+print(fold([1.5, 2]));
+print(fold([2147483647, 2147483647, 2147483647]));
+print(fold(["a", 1]));
+
+var t = 0;
+for (var j = 0; j < 20000; j++) {
+    t += fold([j, j]);
+}
+print(t);
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+/**
+ * @test
+ * @summary Built-in functions of different globals share their code but are distinct objects
+ * @run
+ */
+
+var other = loadWithNewGlobal({ script: "this", name: "other" });
+
+print(other.Array.prototype.push === Array.prototype.push);
+Array.prototype.push.custom = 42;
+print(other.eval("Array.prototype.push.custom"));
+print(Object.getPrototypeOf(parseInt) === Function.prototype);
+print(other.eval("Object.getPrototypeOf(parseInt) === Function.prototype"));
+
+Array.prototype.push = function() { return "replaced"; };
+print([].push(1));
+print(other.eval("var a = [1, 2]; a.push(3); a"));
+print(other.parseInt.name, other.parseInt.length, parseInt("12", 8));
+print(exit.name, quit.name, other.exit.name, other.quit.name);
+print(other.eval("Array.prototype.push.hasOwnProperty('prototype')"));
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+/**
+ * @test
+ * @summary Enumerating objects through the cached keys of their property map
+ * @run
+ */
+
+function P() {
+    this.own = 1;
+}
+P.prototype.inherited = 2;
+Object.defineProperty(P.prototype, "hidden", { value: 3, enumerable: false });
+
+function keysOf(obj) {
+    var keys = [];
+    for (var k in obj) {
+        keys.push(k);
+    }
+    return keys;
+}
+
+var o = new P();
+o.x = 1;
+Object.defineProperty(o, "ne", { value: 1, enumerable: false });
+o[0] = "zero";
+print(keysOf(o));
+print(Object.keys(o));
+
+// own non-enumerable property shadowing an enumerable inherited one
+var c = Object.create(P.prototype);
+c.inherited = 5;
+Object.defineProperty(c, "own", { value: 1, enumerable: false });
+print(keysOf(c));
+
+var plain = { a: 1, b: 2 };
+print(keysOf(plain), Object.keys(plain));
+
+// returned arrays are not shared
+var keys = Object.keys(plain);
+keys.push("c");
+print(Object.keys(plain));
+
+// same shape, different enumerability
+var other = { a: 1 };
+Object.defineProperty(other, "b", { value: 2, enumerable: true, configurable: true });
+print(Object.keys(other));
+Object.defineProperty(other, "b", { enumerable: false });
+print(Object.keys(other), keysOf(other));
+
+var values = [];
+for each (var v in { p: 1, q: "s" }) {
+    values.push(v);
+}
+print(values);
+
+var s = new String("ab");
+s.z = 1;
+print(keysOf(s), Object.keys(s));
+
+print(JSON.stringify(o), JSON.stringify(plain), JSON.stringify(other));
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+
+
+/**
+ * ScriptUtils.parseJSONLazily and ScriptUtils.convertJSONLazily create nested objects and arrays
+ * when they are first read.
+ *
+ * @test
+ * @run
+ */
+
+var ScriptUtils = Java.type("org.openjdk.nashorn.api.scripting.ScriptUtils");
+
+var text = JSON.stringify({
+    name: "doc",
+    count: 3,
+    ratio: 0.5,
+    nested: { a: { b: [1, { c: "deep" }, [2, 3]] }, empty: {}, list: [] },
+    items: [{ id: 1, tags: ["x"] }, { id: 2, tags: ["y", "z"] }],
+    "7": { index: true },
+    last: null
+});
+
+var lazy = ScriptUtils.parseJSONLazily(text);
+print(lazy.name, lazy.count, lazy.ratio, lazy.last);
+print(lazy.nested.a.b[1].c, lazy.nested.a.b[2]);
+print(lazy.items[1].tags, lazy.items.length);
+print(lazy[7].index, Object.keys(lazy));
+print(Array.isArray(lazy.items), Array.isArray(lazy.nested), typeof lazy.nested.empty);
+print(JSON.stringify(lazy) === text);
+print(JSON.stringify(ScriptUtils.parseJSONLazily(text)) === text);
+
+// values are created once
+print(lazy.nested === lazy.nested, lazy.nested.a.b === lazy.nested.a.b);
+
+// properties can be changed before and after they are read
+var other = ScriptUtils.parseJSONLazily(text);
+other.nested = 42;
+other.items.push(3);
+delete other.count;
+print(other.nested, other.items.length, "count" in other);
+other.nested = { replaced: true };
+print(JSON.stringify(other.nested));
+
+// duplicate keys keep the last value
+var dup = ScriptUtils.parseJSONLazily('{ "a": { "x": 1 }, "b": [1], "a": 2, "b": { "y": [3] } }');
+print(dup.a, JSON.stringify(dup.b));
+["{ \"a\": 1, \"b\": 2, \"a\": { \"c\": [3] } }",
+ "{ \"a\": { \"c\": 1 }, \"b\": 2, \"a\": 3.5 }",
+ "{ \"a\": [1], \"a\": { \"c\": 1 } }"].forEach(function(str) {
+    print(JSON.stringify(ScriptUtils.parseJSONLazily(str)) === JSON.stringify(JSON.parse(str)));
+});
+
+// top level arrays and scalars
+print(JSON.stringify(ScriptUtils.parseJSONLazily(' [ { "a": { "b": 1 } }, [ [] ] ] ')));
+print(ScriptUtils.parseJSONLazily('"str"'), ScriptUtils.parseJSONLazily(' -1.5e1 '), ScriptUtils.parseJSONLazily('true'));
+
+// objects of the same shape
+var records = [];
+for (var i = 0; i < 100; i++) {
+    records.push({ id: i, data: { value: i * 2, more: [i] } });
+}
+var lazyRecords = ScriptUtils.parseJSONLazily(JSON.stringify(records));
+var sum = 0;
+for (var i = 0; i < 100; i += 3) {
+    sum += lazyRecords[i].data.value;
+}
+print(sum, JSON.stringify(lazyRecords) === JSON.stringify(records));
+
+// the whole text is validated before any value is read
+function tryParse(str) {
+    try {
+        ScriptUtils.parseJSONLazily(str);
+        print("no error");
+    } catch (e) {
+        print(e.name, e.message === (function() { try { JSON.parse(str); } catch (e2) { return e2.message; } })());
+    }
+}
+tryParse('{ "a": { "b": [1, 2,] } }');
+tryParse('{ "a": { "b": "\\x" } }');
+tryParse('{ "a": { "b": 01 } }');
+tryParse('{ "a": [] } x');
+tryParse('{ "a": { "b": tru } }');
+
+// values read by several threads at once are created once
+var Thread = Java.type("java.lang.Thread");
+var shared = [];
+for (var i = 0; i < 50; i++) {
+    shared.push(ScriptUtils.parseJSONLazily(text));
+}
+var seen = [[], [], [], []];
+var threads = seen.map(function(values) {
+    return new Thread(function() {
+        shared.forEach(function(doc) { values.push(doc.nested); });
+    });
+});
+threads.forEach(function(thread) { thread.start(); });
+threads.forEach(function(thread) { thread.join(); });
+print(seen.every(function(values) {
+    return values.every(function(value, i) { return value === shared[i].nested; });
+}));
+
+// Java maps and lists are converted like lazily parsed text
+var LinkedHashMap = Java.type("java.util.LinkedHashMap");
+var ArrayList = Java.type("java.util.ArrayList");
+var AbstractMap = Java.type("java.util.AbstractMap");
+
+var entriesRead = 0;
+var inner = new LinkedHashMap();
+inner.put("c", "deep");
+var counting = new (Java.extend(AbstractMap))({
+    entrySet: function() {
+        entriesRead++;
+        return inner.entrySet();
+    }
+});
+var list = new ArrayList();
+list.add(1);
+list.add(java.lang.Long.valueOf(2));
+list.add(2.5);
+list.add(counting);
+var map = new LinkedHashMap();
+map.put("name", new java.lang.StringBuilder("doc"));
+map.put("count", java.lang.Long.valueOf(3));
+map.put("list", list);
+map.put("counting", counting);
+map.put(7, true);
+map.put("none", null);
+
+var converted = ScriptUtils.convertJSONLazily(map);
+print(entriesRead, typeof converted.name, converted.count, converted.none, Object.keys(converted));
+print(entriesRead, converted.counting.c, entriesRead, converted.counting === converted.counting);
+print(Array.isArray(converted.list), converted.list.length, converted.list[3].c, entriesRead);
+print(JSON.stringify(converted));
+print(JSON.stringify(ScriptUtils.convertJSONLazily(list)), ScriptUtils.convertJSONLazily("str"));
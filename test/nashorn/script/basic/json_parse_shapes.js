@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+/**
+ * JSON.parse reuses the property maps of objects of the same shape.
+ *
+ * @test
+ * @run
+ */
+
+function check(text) {
+    var result = JSON.stringify(JSON.parse(text));
+    print(result === JSON.stringify(eval("(" + text + ")")) ? result : "different: " + result);
+}
+
+check('[{"a": 1, "b": "x"}, {"a": 2, "b": "y"}, {"a": 3.5, "b": null}, {"a": "z", "b": 4}]');
+check('[{"a": 1, "b": 2}, {"a": 1, "c": 3}, {"b": 1, "a": 2}, {"a": 1}, {}, {"a": 1, "b": 2, "c": 3}]');
+check('[{"a": 1, "a": 2, "b": 3}, {"a": 1, "b": 3}, {"a": 1, "b": 3, "b": "x"}]');
+check('[{"0": 1, "a": 2}, {"a": 2, "1": 3}, {"0": "x", "a": 2}]');
+check('[{"o": {"a": 1, "b": {"c": 2}}}, {"o": {"a": 3, "b": {"c": 4}}}, {"o": {"b": {"c": 5}, "a": 6}}]');
+
+var records = [];
+for (var i = 0; i < 100; i++) {
+    records.push({ id: i, name: "n" + i, score: i / 2, tags: ["t" + i], nested: { x: i, y: i % 3 === 0 ? null : "y" } });
+}
+var parsed = JSON.parse(JSON.stringify(records));
+print(JSON.stringify(parsed) === JSON.stringify(records));
+
+parsed[5].extra = true;
+delete parsed[6].name;
+print(Object.keys(parsed[4]), Object.keys(parsed[5]), Object.keys(parsed[6]));
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+/**
+ * JSON.parse reads JSON text from Java readers, input streams and byte buffers.
+ *
+ * @test
+ * @run
+ */
+
+var StringReader = Java.type("java.io.StringReader");
+var ByteArrayInputStream = Java.type("java.io.ByteArrayInputStream");
+var ByteBuffer = Java.type("java.nio.ByteBuffer");
+var UTF_8 = Java.type("java.nio.charset.StandardCharsets").UTF_8;
+
+function bytes(str) {
+    return new java.lang.String(str).getBytes(UTF_8);
+}
+
+var text = '{ "name": "café 😀", "list": [1, -2.5, 3e2, true, false, null], "esc": "a\\tb\\u0041" }';
+
+var fromReader = JSON.parse(new StringReader(text));
+print(JSON.stringify(fromReader) === JSON.stringify(JSON.parse(text)));
+print(fromReader.name === "café 😀", fromReader.list, fromReader.esc);
+
+var fromStream = JSON.parse(new ByteArrayInputStream(bytes(text)));
+print(JSON.stringify(fromStream) === JSON.stringify(fromReader));
+
+var buffer = ByteBuffer.wrap(bytes(text));
+var fromBuffer = JSON.parse(buffer, function(k, v) { return typeof v === "number" ? v * 2 : v; });
+print(fromBuffer.list);
+print(buffer.position() === 0);
+
+// values spanning many buffer refills
+var items = [];
+var long = "";
+for (var i = 0; i < 3000; i++) {
+    items.push({ id: i, value: i / 4, text: "item \"" + i + "\"", flag: i % 2 === 0 });
+    long += "éx\\";
+}
+var big = JSON.stringify({ items: items, long: long, after: "end" }, null, 2);
+var parsed = JSON.parse(new ByteArrayInputStream(bytes(big)));
+print(JSON.stringify(parsed) === JSON.stringify(JSON.parse(big)));
+print(parsed.items.length, parsed.items[2999].text, parsed.long.length, parsed.after);
+
+// a reader returning no characters on most calls
+var Reader = Java.type("java.io.Reader");
+var calls = 0, next = 0;
+var slowReader = new (Java.extend(Reader))({
+    read: function(cbuf, off, len) {
+        if (next === big.length) {
+            return -1;
+        }
+        if (calls++ % 3 !== 0) {
+            return 0;
+        }
+        var n = Math.min(len, 64, big.length - next);
+        for (var i = 0; i < n; i++) {
+            cbuf[off + i] = big.charAt(next++);
+        }
+        return n;
+    },
+    close: function() {}
+});
+print(JSON.stringify(JSON.parse(slowReader)) === JSON.stringify(parsed));
+
+print(JSON.stringify(Java.type("org.openjdk.nashorn.api.scripting.ScriptUtils").parseJSON(new StringReader("[1, {\"a\": 2}]"))));
+
+// syntax errors report the position in the whole text
+function tryParse(input) {
+    try {
+        JSON.parse(input);
+    } catch (e) {
+        print(e.name, String(e.message).split(/\r?\n/)[0]);
+    }
+}
+
+tryParse(new StringReader('{ "a": tru }'));
+tryParse(new StringReader('[1, 2,]'));
+tryParse(new StringReader('"unterminated'));
+tryParse(new StringReader(big + "\n  x"));
+tryParse(big + "\n  x");
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+/**
+ * JSON.stringify output, also when written to Java writers and output streams.
+ *
+ * @test
+ * @run
+ */
+
+var ScriptUtils = Java.type("org.openjdk.nashorn.api.scripting.ScriptUtils");
+var StringWriter = Java.type("java.io.StringWriter");
+var ByteArrayOutputStream = Java.type("java.io.ByteArrayOutputStream");
+var UTF_8 = Java.type("java.nio.charset.StandardCharsets").UTF_8;
+
+var obj = {
+    s: "quote \" backslash \\ tab \t newline \n control \u0001 end",
+    n: [0, -0, 1, -1, 0.5, 1e21, 1.5e-7, 123456789012, NaN, Infinity, -Infinity, new Number(4)],
+    b: [true, false, new Boolean(false)],
+    u: undefined,
+    f: function() {},
+    nested: { a: [], o: {}, arr: [undefined, function() {}, null], 1: "index", x: "y" },
+    date: new Date(0),
+    custom: { toJSON: function(key) { return "custom " + key; } }
+};
+
+print(JSON.stringify(obj));
+print(JSON.stringify(obj, null, 2));
+print(JSON.stringify(obj, ["s", "b", "nested", "a", "x"], "--"));
+print(JSON.stringify(obj.nested, function(k, v) { return typeof v === "string" ? v.toUpperCase() : v; }, "\t"));
+print(JSON.stringify(undefined), JSON.stringify(function() {}), JSON.stringify("str"), JSON.stringify(42.5));
+
+var sparse = [1, 2];
+sparse[5] = 6;
+print(JSON.stringify(sparse));
+
+// objects of the same shape with different values
+var records = [];
+for (var i = 0; i < 3; i++) {
+    records.push({ id: i, name: "n" + i, score: i / 4 });
+}
+records[2].name = undefined;
+print(JSON.stringify(records));
+
+try {
+    var cyclic = { a: {} };
+    cyclic.a.b = cyclic;
+    JSON.stringify(cyclic);
+} catch (e) {
+    print(e.name);
+}
+
+var big = [];
+for (var i = 0; i < 5000; i++) {
+    big.push({ id: i, text: "item é " + i, values: [i, i / 2] });
+}
+var expected = JSON.stringify(big);
+
+var writer = new StringWriter();
+ScriptUtils.stringifyJSON(big, writer);
+print(writer.toString() === expected);
+
+var out = new ByteArrayOutputStream();
+ScriptUtils.stringifyJSON(big, out);
+print(new java.lang.String(out.toByteArray(), UTF_8) == expected);
+
+writer = new StringWriter();
+ScriptUtils.stringifyJSON(undefined, writer);
+print(writer.toString().length);
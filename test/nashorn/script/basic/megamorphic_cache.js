@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+/**
+ * @test
+ * @summary Megamorphic property accesses see updates to own and inherited properties
+ * @option --unstable-relink-threshold=4
+ * @run
+ */
+
+function Base() {}
+Base.prototype.inherited = "proto";
+Object.defineProperty(Base.prototype, "accessor", { get: function() { return "get " + this.id; }, configurable: true });
+
+var objects = [];
+for (var i = 0; i < 12; i++) {
+    var o = (i % 2) ? new Base() : {};
+    o["p" + i] = i;
+    o.id = i;
+    objects.push(o);
+}
+
+function get(o) {
+    return o.id + ":" + o.inherited + ":" + o.accessor;
+}
+
+function set(o, v) {
+    o.id = v;
+}
+
+function dump() {
+    var s = [];
+    for (var i = 0; i < objects.length; i++) {
+        s.push(get(objects[i]));
+    }
+    print(s.join(" "));
+}
+
+dump();
+dump();
+
+for (var i = 0; i < objects.length; i++) {
+    set(objects[i], i * 10);
+}
+dump();
+
+Base.prototype.inherited = "changed";
+dump();
+
+Object.defineProperty(Base.prototype, "accessor", { get: function() { return "new " + this.id; } });
+delete objects[1].id;
+objects[3].inherited = "own";
+dump();
+
+Object.freeze(objects[5]);
+set(objects[5], "frozen");
+objects[7].__proto__ = { inherited: "other proto" };
+set(objects[9], "after");
+dump();
+
+Object.defineProperty(objects[0], "id", { set: function(v) { print("setter " + v); }, get: function() { return "accessor"; } });
+set(objects[0], "value");
+dump();
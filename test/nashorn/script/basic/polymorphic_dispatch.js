@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+/**
+ * @test
+ * @summary Polymorphic call sites dispatching on the receiver map link and relink correctly
+ * @run
+ */
+
+function Base() {}
+Base.prototype.inherited = "proto";
+
+var objects = [];
+for (var i = 0; i < 7; i++) {
+    var o = (i % 2) ? new Base() : {};
+    o["p" + i] = i;
+    o.x = i;
+    objects.push(o);
+}
+
+function getX(o) {
+    return o.x;
+}
+
+function getInherited(o) {
+    return o.inherited;
+}
+
+function setX(o, v) {
+    o.x = v;
+}
+
+function dump(receivers) {
+    var s = [];
+    for (var i = 0; i < receivers.length; i++) {
+        s.push(getX(receivers[i]) + "/" + getInherited(receivers[i]));
+    }
+    print(s.join(" "));
+}
+
+dump(objects);
+for (var i = 0; i < objects.length; i++) {
+    setX(objects[i], "s" + i);
+}
+dump(objects);
+
+// Invalidate the switch points of inherited getters
+Base.prototype.inherited = "changed";
+dump(objects);
+Object.defineProperty(Base.prototype, "inherited", { get: function() { return "getter " + this.x; } });
+dump(objects);
+
+// Receivers that are not script objects or have unseen maps
+dump(["str", 42, { x: "new" }, objects[1]]);
+delete objects[2].x;
+objects[4].x = 3.5;
+dump(objects);
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+/**
+ * @test
+ * @summary Objects of the same shape built on several threads at once are built correctly
+ * @run
+ */
+
+var Thread = Java.type("java.lang.Thread");
+
+function Base() {}
+Base.prototype.kind = "base";
+
+function build(id) {
+    var objects = [];
+    for (var i = 0; i < 2000; i++) {
+        var o = (i % 2) ? {} : Object.create(Base.prototype);
+        for (var k = 0; k < 20; k++) {
+            o["p" + ((i + k) % 40)] = k;
+        }
+        if (i % 3 == 0) {
+            delete o["p" + (i % 40)];
+        }
+        objects.push(o);
+    }
+    var sum = 0;
+    for (var i = 0; i < objects.length; i++) {
+        var o = objects[i];
+        for (var k = 0; k < 20; k++) {
+            var v = o["p" + ((i + k) % 40)];
+            sum += v === undefined ? 100 : v;
+        }
+        if (Object.keys(o).length !== (i % 3 == 0 ? 19 : 20) || (i % 2 == 0) !== (o.kind === "base")) {
+            sum = NaN;
+        }
+    }
+    return sum;
+}
+
+var results = [0, 0, 0, 0];
+var threads = [];
+for (var t = 0; t < 4; t++) {
+    (function(t) {
+        threads.push(new Thread(function() {
+            results[t] = build(t);
+        }));
+    })(t);
+}
+threads.forEach(function(thread) { thread.start(); });
+threads.forEach(function(thread) { thread.join(); });
+
+print(results.join());
+print(build(4));
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+/**
+ * Inherited properties accessed through a deep prototype chain must see
+ * changes made to any object of the chain.
+ *
+ * @test
+ * @run
+ */
+
+function A() {}
+A.prototype.name = function() { return "A"; };
+A.prototype.kind = "a";
+
+function B() {}
+B.prototype = Object.create(A.prototype);
+function C() {}
+C.prototype = Object.create(B.prototype);
+function D() {}
+D.prototype = Object.create(C.prototype);
+function E() {}
+E.prototype = Object.create(D.prototype);
+
+var e = new E();
+
+function call(obj) {
+    return obj.name();
+}
+
+function kind(obj) {
+    return obj.kind;
+}
+
+function missing(obj) {
+    return obj.missing;
+}
+
+function check(step) {
+    print(step + ": " + call(e) + " " + kind(e) + " " + missing(e));
+}
+
+for (var i = 0; i < 3; i++) {
+    check("initial");
+}
+
+C.prototype.name = function() { return "C"; };
+check("shadowed in C");
+
+E.prototype.kind = "e";
+check("shadowed in E");
+
+delete C.prototype.name;
+check("deleted from C");
+
+Object.prototype.missing = "object";
+check("added to Object.prototype");
+
+A.prototype.name = function() { return "A2"; };
+check("replaced in A");
+
+Object.defineProperty(B.prototype, "name", { get: function() { return function() { return "B"; }; }, configurable: true });
+check("accessor in B");
+
+Object.setPrototypeOf(D.prototype, A.prototype);
+check("D inherits from A");
+
+delete Object.prototype.missing;
+A.prototype.missing = 1;
+A.prototype.missing = "int to object";
+check("type change in A");
+
+// Objects inheriting from different prototypes with the same map
+function make(n) {
+    function F() {}
+    F.prototype.name = function() { return "F" + n; };
+    return new F();
+}
+
+var objs = [make(1), make(2), make(3)];
+for (var i = 0; i < 3; i++) {
+    print(objs.map(call).join(" "));
+}
+Object.getPrototypeOf(objs[1]).name = function() { return "changed"; };
+print(objs.map(call).join(" "));
+Object.getPrototypeOf(objs[2]).extra = true;
+Object.getPrototypeOf(objs[2]).name = function() { return "changed too"; };
+print(objs.map(call).join(" "));
+
+// Megamorphic access
+var shapes = [];
+for (var i = 0; i < 20; i++) {
+    var o = Object.create(E.prototype);
+    o["p" + i] = i;
+    shapes.push(o);
+}
+function names() {
+    var s = "";
+    for (var i = 0; i < shapes.length; i++) {
+        s += shapes[i].name();
+    }
+    return s;
+}
+print(names());
+print(names());
+D.prototype.name = function() { return "d"; };
+print(names());
@@ -57,13 +57,15 @@ var findPropertyMethod = propertyMapCls.getMethod("findProperty", objectCls);
 var context = getContextMethod.invoke(null);
 var useDualFieldsMethod = contextCls.getMethod("useDualFields");
 var dualFields = useDualFieldsMethod.invoke(context);
+var useAdaptiveFieldsMethod = contextCls.getMethod("useAdaptiveFields");
+var adaptiveFields = useAdaptiveFieldsMethod.invoke(context);
 var optimisticTypes = $OPTIONS._optimistic_types;
 
 if (dualFields != optimisticTypes) {
     throw new Error("Wrong dual fields setting");
 }
 
-function testMap(obj) {
+function testMap(obj, dualFields) {
     obj.x = "foo";
     obj["y"] = 0;
     Object.defineProperty(obj, "z", {value: 0.5});
@@ -73,13 +75,13 @@ function testMap(obj) {
         if (hasDualFieldsMethod.invoke(prop) !== dualFields) {
             throw new Error("Wrong property flags: " + prop);
         }
-        if (getTypeMethod.invoke(prop) != getExpectedType(obj[key])) {
-            throw new Error("Wrong property type: " + prop.getType() + " // " + getExpectedType(obj[key]));
+        if (getTypeMethod.invoke(prop) != getExpectedType(obj[key], dualFields)) {
+            throw new Error("Wrong property type: " + prop.getType() + " // " + getExpectedType(obj[key], dualFields));
         }
     }
 }
 
-function getExpectedType(value) {
+function getExpectedType(value, dualFields) {
     if (!dualFields) {
         return objectType.class;
     }
@@ -108,7 +110,8 @@ var b = 2.5;
 var c = 0x10000000000;
 var d = true;
 
-testMap(o);
-testMap(new C());
-testMap(JSON.parse('{ "a": 1, "b": 2.5, "c": 1099511627776, "d": true }'));
-testMap(this);
+// Objects allocated by constructors start out with dual fields in adaptive field mode
+testMap(o, dualFields);
+testMap(new C(), dualFields || adaptiveFields);
+testMap(JSON.parse('{ "a": 1, "b": 2.5, "c": 1099511627776, "d": true }'), dualFields);
+testMap(this, dualFields);
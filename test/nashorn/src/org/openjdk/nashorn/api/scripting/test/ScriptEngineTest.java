@@ -52,6 +52,7 @@ import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 import javax.script.SimpleScriptContext;
 import org.openjdk.nashorn.api.scripting.ScriptObjectMirror;
+import org.openjdk.nashorn.api.scripting.ScriptUtils;
 import org.testng.annotations.Test;
 
 /**
@@ -865,6 +866,22 @@ public class ScriptEngineTest {
         assertNull(ctx.removeAttribute("undefinedname", ScriptContext.ENGINE_SCOPE));
     }
 
+    // ScriptUtils JSON methods need a script global, which threads outside of script code don't have
+    @Test
+    public void scriptUtilsJSONWithoutGlobalTest() throws Exception {
+        final Throwable[] thrown = new Throwable[1];
+        final Thread thread = new Thread(() -> {
+            try {
+                ScriptUtils.parseJSON("{}");
+            } catch (final Throwable t) {
+                thrown[0] = t;
+            }
+        });
+        thread.start();
+        thread.join();
+        assertTrue(thrown[0] instanceof IllegalStateException, String.valueOf(thrown[0]));
+    }
+
     private static void checkProperty(final ScriptEngine e, final String name)
         throws ScriptException {
         final String value = System.getProperty(name);
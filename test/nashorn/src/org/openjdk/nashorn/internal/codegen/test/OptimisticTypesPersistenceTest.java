@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.openjdk.nashorn.internal.codegen.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+import java.io.File;
+import java.lang.module.Configuration;
+import java.lang.module.ModuleFinder;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for storing and loading optimistic type info, in memory and in the type info files.
+ * <p>
+ * Type info persistence is configured once per class loader, and is disabled in the test VM. The tests
+ * therefore use a copy of the Nashorn module, defined in its own layer after enabling persistence.
+ *
+ * @test
+ * @modules org.openjdk.nashorn/org.openjdk.nashorn.internal.codegen
+ * @run testng org.openjdk.nashorn.internal.codegen.test.OptimisticTypesPersistenceTest
+ */
+@SuppressWarnings("javadoc")
+public class OptimisticTypesPersistenceTest {
+    private static final String[] PROPERTIES = {
+        "nashorn.typeInfo.maxFiles", "nashorn.typeInfo.cacheDir", "nashorn.typeInfo.writeDelaySeconds"
+    };
+
+    private Persistence persistence;
+    private Object numberType;
+    private Object objectType;
+
+    /**
+     * Type info persistence of its own copy of the Nashorn module. Copies share the cache directory, like
+     * separate processes would.
+     */
+    private static final class Persistence {
+        final Method sourceFor;
+        final Method getLocationDescriptor;
+        final Method store;
+        final Method load;
+        final Method writeDirtyTypeInfos;
+        final Object typeArray;
+        final Object numberType;
+        final Object objectType;
+
+        Persistence() throws Exception {
+            final Path[] modulePath = Arrays.stream(System.getProperty("jdk.module.path").split(File.pathSeparator)).map(Paths::get).toArray(Path[]::new);
+            final Configuration configuration = ModuleLayer.boot().configuration().resolve(ModuleFinder.of(modulePath), ModuleFinder.of(), Set.of("org.openjdk.nashorn"));
+            final ModuleLayer.Controller controller = ModuleLayer.defineModulesWithOneLoader(configuration, List.of(ModuleLayer.boot()), ClassLoader.getSystemClassLoader());
+            final Module nashorn = controller.layer().findModule("org.openjdk.nashorn").get();
+            final ClassLoader loader = nashorn.getClassLoader();
+            for (final String pkg : new String[] { "org.openjdk.nashorn.internal.codegen", "org.openjdk.nashorn.internal.codegen.types", "org.openjdk.nashorn.internal.runtime" }) {
+                controller.addOpens(nashorn, pkg, Persistence.class.getModule());
+            }
+
+            final Map<String, String> oldValues = new HashMap<>();
+            for (final String property : PROPERTIES) {
+                oldValues.put(property, System.getProperty(property));
+            }
+            final File cacheDir = new File(System.getProperty("build.dir", "build"), "type_info_persistence_test");
+            System.setProperty("nashorn.typeInfo.maxFiles", "unlimited");
+            System.setProperty("nashorn.typeInfo.cacheDir", cacheDir.getPath());
+            // keep updates in memory until the test writes them
+            System.setProperty("nashorn.typeInfo.writeDelaySeconds", "3600");
+            final Class<?> persistence;
+            try {
+                persistence = Class.forName("org.openjdk.nashorn.internal.codegen.OptimisticTypesPersistence", true, loader);
+            } finally {
+                for (final String property : PROPERTIES) {
+                    final String oldValue = oldValues.get(property);
+                    if (oldValue != null) {
+                        System.setProperty(property, oldValue);
+                    } else {
+                        System.getProperties().remove(property);
+                    }
+                }
+            }
+
+            final Class<?> sourceClass = Class.forName("org.openjdk.nashorn.internal.runtime.Source", true, loader);
+            final Class<?> typeClass = Class.forName("org.openjdk.nashorn.internal.codegen.types.Type", true, loader);
+            typeArray = Array.newInstance(typeClass, 0);
+            sourceFor = sourceClass.getMethod("sourceFor", String.class, String.class);
+            getLocationDescriptor = persistence.getMethod("getLocationDescriptor", sourceClass, int.class, typeArray.getClass());
+            store = persistence.getMethod("store", Object.class, Map.class);
+            load = persistence.getMethod("load", Object.class);
+            writeDirtyTypeInfos = persistence.getDeclaredMethod("writeDirtyTypeInfos");
+            writeDirtyTypeInfos.setAccessible(true);
+            numberType = typeClass.getField("NUMBER").get(null);
+            objectType = typeClass.getField("OBJECT").get(null);
+        }
+
+        Object getLocationDescriptor(final String code, final int functionId, final Object... paramTypes) throws Exception {
+            final Object types = Array.newInstance(typeArray.getClass().getComponentType(), paramTypes.length);
+            for (int i = 0; i < paramTypes.length; i++) {
+                Array.set(types, i, paramTypes[i]);
+            }
+            final Object descriptor = getLocationDescriptor.invoke(null, sourceFor.invoke(null, "test", code), functionId, types);
+            assertNotNull(descriptor);
+            return descriptor;
+        }
+
+        Map<Integer, Object> types(final int... programPoints) {
+            final Map<Integer, Object> types = new HashMap<>();
+            for (final int programPoint : programPoints) {
+                types.put(programPoint, programPoint % 2 == 0 ? numberType : objectType);
+            }
+            return types;
+        }
+
+        void store(final String code, final int functionId, final int... programPoints) throws Exception {
+            store.invoke(null, getLocationDescriptor(code, functionId), types(programPoints));
+        }
+
+        Object load(final String code, final int functionId) throws Exception {
+            return load.invoke(null, getLocationDescriptor(code, functionId));
+        }
+
+        void write() throws Exception {
+            writeDirtyTypeInfos.invoke(null);
+        }
+    }
+
+    @BeforeClass
+    public void defineModule() throws Exception {
+        persistence = new Persistence();
+        numberType = persistence.numberType;
+        objectType = persistence.objectType;
+    }
+
+    private Object getLocationDescriptor(final String code, final int functionId, final Object... paramTypes) throws Exception {
+        return persistence.getLocationDescriptor(code + " // " + System.nanoTime(), functionId, paramTypes);
+    }
+
+    private Map<Integer, Object> types(final int... programPoints) {
+        final Map<Integer, Object> types = new HashMap<>();
+        for (final int programPoint : programPoints) {
+            types.put(programPoint, programPoint % 2 == 0 ? numberType : objectType);
+        }
+        return types;
+    }
+
+    @Test
+    public void storeAndLoadTest() throws Exception {
+        final Object descriptor = getLocationDescriptor("function f(x) { return x + 1 }", 1);
+        assertNull(persistence.load.invoke(null, descriptor));
+
+        persistence.store.invoke(null, descriptor, types(1, 2, 30, 400));
+        assertEquals(persistence.load.invoke(null, descriptor), types(1, 2, 30, 400));
+
+        persistence.store.invoke(null, descriptor, types(1, 2, 30, 400, 5000));
+        assertEquals(persistence.load.invoke(null, descriptor), types(1, 2, 30, 400, 5000));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void loadReturnsCopyTest() throws Exception {
+        final Object descriptor = getLocationDescriptor("function g() {}", 2);
+        persistence.store.invoke(null, descriptor, types(3, 4));
+        ((Map<Integer, Object>) persistence.load.invoke(null, descriptor)).put(5, objectType);
+        assertEquals(persistence.load.invoke(null, descriptor), types(3, 4));
+    }
+
+    @Test
+    public void specializationsAreSeparateTest() throws Exception {
+        final String code = "function h(a) { return a }";
+        final Object generic = getLocationDescriptor(code, 1);
+        final Object specialized = getLocationDescriptor(code, 1, numberType);
+        persistence.store.invoke(null, generic, types(1));
+        assertNull(persistence.load.invoke(null, specialized));
+        persistence.store.invoke(null, specialized, types(2));
+        assertEquals(persistence.load.invoke(null, generic), types(1));
+        assertEquals(persistence.load.invoke(null, specialized), types(2));
+    }
+
+    @Test
+    public void manySourcesTest() throws Exception {
+        // more sources than are kept in memory; type info that is not yet written is kept
+        final Object[] descriptors = new Object[400];
+        for (int i = 0; i < descriptors.length; i++) {
+            descriptors[i] = getLocationDescriptor("var x = " + i, 0);
+            persistence.store.invoke(null, descriptors[i], types(i + 1));
+        }
+        for (int i = 0; i < descriptors.length; i++) {
+            assertEquals(persistence.load.invoke(null, descriptors[i]), types(i + 1));
+        }
+    }
+
+    @Test
+    public void writeReadAndMergeTest() throws Exception {
+        final String code = "function m() {} // " + System.nanoTime();
+        final Persistence first = new Persistence();
+        final Persistence second = new Persistence();
+
+        first.store(code, 1, 1, 2, 300);
+        first.write();
+        // the written file is read back by a copy that has no type info in memory
+        assertEquals(String.valueOf(second.load(code, 1)), String.valueOf(new TreeMap<>(second.types(1, 2, 300))));
+
+        // both copies update the file; the later write merges in the earlier one
+        first.store(code, 2, 4);
+        second.store(code, 3, 5, 6000);
+        first.write();
+        second.write();
+
+        final Persistence third = new Persistence();
+        assertEquals(String.valueOf(third.load(code, 1)), String.valueOf(new TreeMap<>(third.types(1, 2, 300))));
+        assertEquals(String.valueOf(third.load(code, 2)), String.valueOf(new TreeMap<>(third.types(4))));
+        assertEquals(String.valueOf(third.load(code, 3)), String.valueOf(new TreeMap<>(third.types(5, 6000))));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.openjdk.nashorn.internal.runtime.regexp.test;
+
+import org.openjdk.nashorn.internal.runtime.regexp.RegExp;
+import org.openjdk.nashorn.internal.runtime.regexp.RegExpFactory;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the cache of compiled regular expressions in RegExpFactory.
+ *
+ * @test
+ * @modules org.openjdk.nashorn/org.openjdk.nashorn.internal.runtime.regexp
+ * @run testng org.openjdk.nashorn.internal.runtime.regexp.test.RegExpCacheTest
+ */
+public class RegExpCacheTest {
+
+    /**
+     * Creating a regexp with the same pattern and flags again returns the cached one
+     */
+    @Test
+    public void testCacheHit() {
+        final long hits = RegExpFactory.getCacheHitCount();
+        final long misses = RegExpFactory.getCacheMissCount();
+        final RegExp regexp = RegExpFactory.create("cache(hit)+", "g");
+        assertSame(RegExpFactory.create("cache(hit)+", "g"), regexp);
+        assertEquals(RegExpFactory.getCacheMissCount() - misses, 1);
+        assertEquals(RegExpFactory.getCacheHitCount() - hits, 1);
+    }
+
+    /**
+     * Regexps with the same pattern but different flags are cached separately
+     */
+    @Test
+    public void testFlags() {
+        final RegExp regexp = RegExpFactory.create("cache(flags)+", "");
+        final RegExp ignoreCase = RegExpFactory.create("cache(flags)+", "i");
+        assertNotSame(ignoreCase, regexp);
+        assertTrue(ignoreCase.isIgnoreCase());
+        assertSame(RegExpFactory.create("cache(flags)+", ""), regexp);
+        assertSame(RegExpFactory.create("cache(flags)+", "i"), ignoreCase);
+    }
+
+    /**
+     * The cache is bounded and evicts regexps that have not been used recently
+     */
+    @Test
+    public void testEviction() {
+        final RegExp regexp = RegExpFactory.create("cache(evict)+", "");
+        for (int i = 0; i < 2000; i++) {
+            RegExpFactory.create("cache" + i, "");
+            // keep regexp in use
+            RegExpFactory.create("cache(evict)+", "");
+        }
+        assertTrue(RegExpFactory.getCacheEvictionCount() > 0);
+        assertTrue(RegExpFactory.getCacheSize() <= 512);
+        assertSame(RegExpFactory.create("cache(evict)+", ""), regexp);
+    }
+}
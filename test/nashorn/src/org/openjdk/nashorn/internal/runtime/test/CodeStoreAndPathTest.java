@@ -26,16 +26,29 @@ package org.openjdk.nashorn.internal.runtime.test;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 import org.openjdk.nashorn.api.scripting.NashornScriptEngineFactory;
+import org.openjdk.nashorn.internal.runtime.CodeStore.LogCodeStore;
+import org.openjdk.nashorn.internal.runtime.Context;
+import org.openjdk.nashorn.internal.runtime.ErrorManager;
+import org.openjdk.nashorn.internal.runtime.Source;
+import org.openjdk.nashorn.internal.runtime.StoredScript;
+import org.openjdk.nashorn.internal.runtime.options.Options;
+import org.openjdk.nashorn.tools.Shell;
 import org.testng.annotations.Test;
 
 /**
@@ -391,6 +404,8 @@ public class CodeStoreAndPathTest {
             "    })(); \n" +
             "}()); ";
     final static String codeCache = System.getProperty("build.dir", "build") + "/nashorn_code_cache";
+    final static String logCodeCache = System.getProperty("build.dir", "build") + "/nashorn_log_code_cache";
+    final static String codeArchive = System.getProperty("build.dir", "build") + "/nashorn_code_archive";
     final static String oldUserDir = System.getProperty("user.dir");
 
     private static final String[] ENGINE_OPTIONS_OPT   = new String[]{"--persistent-code-cache", "--optimistic-types=true"};
@@ -485,8 +500,115 @@ public class CodeStoreAndPathTest {
         System.getProperties().remove("nashorn.compiler.splitter.threshold");
     }
 
+    @Test
+    public void logCodeStoreTest() throws ScriptException, IOException {
+        final String oldCodeCache = System.setProperty("nashorn.persistent.code.cache", logCodeCache);
+        System.setProperty("nashorn.persistent.code.cache.type", "log");
+        try {
+            final NashornScriptEngineFactory fac = new NashornScriptEngineFactory();
+            final ScriptEngine e1 = fac.getScriptEngine(ENGINE_OPTIONS_NOOPT);
+            e1.eval(code1);
+            e1.eval(code2);
+            e1.eval(code3);// less than minimum size for storing
+            final Path codeCachePath = getCodeCachePath(false);
+            final Path logFile = codeCachePath.resolve("codestore.log");
+            // all scripts are stored in a single log file
+            checkCompiledScripts(Files.newDirectoryStream(codeCachePath), 1);
+            final long size = Files.size(logFile);
+            assertTrue(size > 0, "Code store log is empty!");
+
+            // scripts are loaded from the log rather than compiled and stored again
+            final ScriptEngine e2 = fac.getScriptEngine(ENGINE_OPTIONS_NOOPT);
+            e2.eval(code1);
+            e2.eval(code2);
+            assertEquals(e2.eval("x"), "Hello Script");
+            assertEquals(Files.size(logFile), size);
+        } finally {
+            System.getProperties().remove("nashorn.persistent.code.cache.type");
+            if (oldCodeCache != null) {
+                System.setProperty("nashorn.persistent.code.cache", oldCodeCache);
+            } else {
+                System.getProperties().remove("nashorn.persistent.code.cache");
+            }
+        }
+    }
+
+    @Test
+    public void logCodeStoreCompactTest() throws IOException {
+        final Context cx = new Context(new Options(""), new ErrorManager(), Thread.currentThread().getContextClassLoader());
+        final String dir = System.getProperty("build.dir", "build") + "/nashorn_log_compact_test";
+        final LogCodeStore store = new LogCodeStore(cx, dir, false, 0);
+        store.initLogger(cx);
+        // a distinct path to the same log file gets its own view of the log, like a store in another process
+        final LogCodeStore other = new LogCodeStore(cx, dir + File.separator + ".", false, 0);
+        other.initLogger(cx);
+
+        final Source source1 = Source.sourceFor("compact1", "var compact1 = 1;");
+        final Source source2 = Source.sourceFor("compact2", "var compact2 = 2;");
+        final StoredScript script = new StoredScript(1, "Script", Collections.singletonMap("Script", new byte[] { 1, 2, 3 }), new HashMap<>(), new Object[0]);
+        store.store("key", source1, script);
+        store.store("key", source1, script);
+        other.store("key", source2, script);
+
+        // compaction must not drop the record appended through the other view of the log
+        store.compact();
+        final LogCodeStore reader = new LogCodeStore(cx, dir + File.separator + "." + File.separator + ".", true, 0);
+        reader.initLogger(cx);
+        assertNotNull(reader.load(source1, "key"));
+        assertNotNull(reader.load(source2, "key"));
+    }
+
+    @Test
+    public void codeArchiveTest() throws IOException {
+        final File script = new File(System.getProperty("build.dir", "build"), "code_archive_test.js");
+        Files.write(script.toPath(), code1.getBytes(StandardCharsets.UTF_8));
+
+        // compiling only stores compiled scripts in the archive
+        assertEquals(runShell("--code-archive=" + codeArchive, "--compile-only", "--lazy-compilation=false", script.getPath()), "");
+        final Path archivePath = getCodeCachePath(codeArchive, false);
+        final Path logFile = archivePath.resolve("codestore.log");
+        checkCompiledScripts(Files.newDirectoryStream(archivePath), 1);
+        final long size = Files.size(logFile);
+        assertTrue(size > 0, "Code archive is empty!");
+
+        // running loads the compiled script from the archive instead of parsing it
+        assertFalse(runShell("--print-parse", script.getPath()).isEmpty());
+        assertEquals(runShell("--code-archive=" + codeArchive, "--print-parse", script.getPath()), "");
+        assertEquals(Files.size(logFile), size);
+    }
+
+    @Test
+    public void splitFunctionArchiveTest() throws IOException {
+        // A function large enough to be split, which can't be reparsed from source
+        final StringBuilder sb = new StringBuilder("function big(n) {\n    var s = 0;\n");
+        for (int i = 0; i < 1000; i++) {
+            sb.append("    if (n > ").append(i).append(") { s += n * ").append(i).append("; }\n");
+        }
+        sb.append("    return s;\n}\nprint(big(10));\n");
+        final File script = new File(System.getProperty("build.dir", "build"), "split_archive_test.js");
+        Files.write(script.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+        final String archive = codeArchive + "_split";
+
+        assertEquals(runShell("--code-archive=" + archive, "--compile-only", "--lazy-compilation=false", script.getPath()), "");
+
+        // the split function is specialized from the AST stored in the archive, without running the parser
+        final String out = runShell("--code-archive=" + archive, "--log=parser", script.getPath());
+        assertTrue(out.contains("450"), out);
+        assertFalse(out.contains("'JavaScript Parsing'"), out);
+    }
+
+    private static String runShell(final String... args) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final int exitCode = Shell.main(new ByteArrayInputStream(new byte[0]), out, out, args);
+        assertEquals(exitCode, Shell.SUCCESS, out.toString());
+        return out.toString();
+    }
+
     private static Path getCodeCachePath(final boolean optimistic) {
-        final String codeCache = System.getProperty("nashorn.persistent.code.cache");
+        return getCodeCachePath(System.getProperty("nashorn.persistent.code.cache"), optimistic);
+    }
+
+    private static Path getCodeCachePath(final String codeCache, final boolean optimistic) {
         final Path codeCachePath = FileSystems.getDefault().getPath(codeCache).toAbsolutePath();
         final String[] files = codeCachePath.toFile().list();
         for (final String file : files) {
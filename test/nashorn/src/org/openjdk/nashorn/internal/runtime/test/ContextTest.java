@@ -27,12 +27,23 @@ package org.openjdk.nashorn.internal.runtime.test;
 
 import static org.openjdk.nashorn.internal.runtime.Source.sourceFor;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.openjdk.nashorn.internal.codegen.CompileUnit;
 import org.openjdk.nashorn.internal.objects.Global;
 import org.openjdk.nashorn.internal.runtime.Context;
 import org.openjdk.nashorn.internal.runtime.ErrorManager;
+import org.openjdk.nashorn.internal.runtime.JSONFunctions;
 import org.openjdk.nashorn.internal.runtime.ScriptFunction;
 import org.openjdk.nashorn.internal.runtime.ScriptObject;
 import org.openjdk.nashorn.internal.runtime.ScriptRuntime;
@@ -44,7 +55,8 @@ import org.testng.annotations.Test;
  * Basic Context API tests.
  *
  * @test
- * @modules org.openjdk.nashorn/org.openjdk.nashorn.internal.runtime
+ * @modules org.openjdk.nashorn/org.openjdk.nashorn.internal.codegen
+ *          org.openjdk.nashorn/org.openjdk.nashorn.internal.runtime
  *          org.openjdk.nashorn/org.openjdk.nashorn.internal.runtime.options
  *          org.openjdk.nashorn/org.openjdk.nashorn.internal.objects
  * @run testng org.openjdk.nashorn.internal.runtime.test.ContextTest
@@ -138,10 +150,217 @@ public class ContextTest {
         }
     }
 
-    private static Object eval(final Context cx, final String name, final String code) {
-        final Source source = sourceFor(name, code);
+    // compile the same and unrelated sources from several threads in concurrent compilation mode
+    @Test
+    public void concurrentCompileTest() throws Exception {
+        final Options options = new Options("nashorn");
+        options.process(new String[] { "--concurrent-compilation" });
+        final ErrorManager errors = new ErrorManager(new PrintWriter(new StringWriter()));
+        final Context cx = new Context(options, errors, Thread.currentThread().getContextClassLoader());
+        final Global oldGlobal = Context.getGlobal();
+        final Global global = cx.createGlobal();
+        Context.setGlobal(global);
+        final ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            final List<Future<ScriptFunction>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                // every third source is invalid, and its errors must not leak into the valid compilations
+                final Source source = i % 3 == 2 ?
+                        sourceFor("<concurrentCompileTestInvalid" + (i % 4) + ">", "40 + " + (i % 4) + " +") :
+                        sourceFor("<concurrentCompileTest" + (i % 4) + ">", "40 + " + (i % 4));
+                results.add(executor.submit(() -> {
+                    if (Context.getGlobal() != global) {
+                        Context.setGlobal(global);
+                    }
+                    return cx.compileScript(source, global);
+                }));
+            }
+            int invalid = 0;
+            for (int i = 0; i < results.size(); i++) {
+                final ScriptFunction func = results.get(i).get();
+                if (i % 3 == 2) {
+                    assertTrue(func == null);
+                    invalid++;
+                } else {
+                    assertTrue(func != null);
+                    assertEquals(((Number)ScriptRuntime.apply(func, global)).intValue(), 40 + i % 4);
+                }
+            }
+            assertTrue(errors.getNumberOfErrors() >= invalid);
+        } finally {
+            executor.shutdown();
+            Context.setGlobal(oldGlobal);
+        }
+    }
+
+    // class cache statistics, and frequently used scripts surviving a burst of one-off scripts
+    @Test
+    public void classCacheTest() {
+        final Options options = new Options("nashorn");
+        options.process(new String[] { "--class-cache-size=4" });
+        final ErrorManager errors = new ErrorManager();
+        final Context cx = new Context(options, errors, Thread.currentThread().getContextClassLoader());
+        final Global oldGlobal = Context.getGlobal();
+        Context.setGlobal(cx.createGlobal());
+        try {
+            final Source hot = sourceFor("<classCacheTestHot>", "'hot'");
+            for (int i = 0; i < 5; i++) {
+                assertEquals(evalSource(cx, hot), "hot");
+            }
+            assertEquals(cx.getClassCacheMissCount(), 1);
+            assertEquals(cx.getClassCacheHitCount(), 4);
+            assertTrue(cx.getClassCacheWeight() > 0);
+            assertTrue(cx.getClassCacheLoadTime() > 0);
+
+            for (int i = 0; i < 20; i++) {
+                assertEquals(eval(cx, "<classCacheTestCold" + i + ">", "'cold" + i + "'"), "cold" + i);
+            }
+            assertTrue(cx.getClassCacheEvictionCount() + cx.getClassCacheRejectionCount() >= 16);
+
+            final long hits = cx.getClassCacheHitCount();
+            assertEquals(evalSource(cx, hot), "hot");
+            assertEquals(cx.getClassCacheHitCount(), hits + 1);
+        } finally {
+            Context.setGlobal(oldGlobal);
+        }
+    }
+
+    // Test that scripts split into several compile units work with --parallel-class-generation
+    @Test
+    public void parallelClassGenerationTest() {
+        final Options options = new Options("nashorn");
+        options.process(new String[] { "--parallel-class-generation", "--lazy-compilation=false" });
+        final ErrorManager errors = new ErrorManager();
+        final Context cx = new Context(options, errors, Thread.currentThread().getContextClassLoader());
+        final Global oldGlobal = Context.getGlobal();
+        Context.setGlobal(cx.createGlobal());
+        try {
+            final StringBuilder sb = new StringBuilder("var sum = 0;\n");
+            for (int i = 0; i < 1000; i++) {
+                sb.append("function f").append(i).append("(x) { return x > 10 ? x - ").append(i).append(" : x + ").append(i).append("; }\n");
+                sb.append("sum += f").append(i).append("(").append(i % 20).append(");\n");
+            }
+            sb.append("sum;");
+
+            final int unitsBefore = CompileUnit.getEmittedUnitCount();
+            assertEquals(((Number)eval(cx, "<parallelClassGenerationTest>", sb.toString())).intValue(), expectedParallelSum());
+            assertTrue(CompileUnit.getEmittedUnitCount() - unitsBefore > 1);
+            assertEquals(errors.getNumberOfErrors(), 0);
+        } finally {
+            Context.setGlobal(oldGlobal);
+        }
+    }
+
+    private static int expectedParallelSum() {
+        int sum = 0;
+        for (int i = 0; i < 1000; i++) {
+            final int x = i % 20;
+            sum += x > 10 ? x - i : x + i;
+        }
+        return sum;
+    }
+
+    // contexts with the same options share compiled scripts with --shared-code-cache
+    @Test
+    public void sharedCodeCacheTest() {
+        final StringBuilder sb = new StringBuilder("var sum = 0;\n");
+        for (int i = 0; i < 50; i++) {
+            sb.append("function g").append(i).append("(x) { return x > 10 ? x - ").append(i).append(" : x + ").append(i).append("; }\n");
+            sb.append("sum += g").append(i).append("(").append(i % 20).append(");\n");
+        }
+        sb.append("sum;");
+        final String code = sb.toString();
+
+        final Global oldGlobal = Context.getGlobal();
+        try {
+            final Object expected = eval(newSharedCodeCacheContext(), "<sharedCodeCacheTest>", code);
+
+            // neither the script nor its functions are compiled again
+            int unitsBefore = CompileUnit.getEmittedUnitCount();
+            assertEquals(eval(newSharedCodeCacheContext(), "<sharedCodeCacheTest>", code), expected);
+            assertEquals(CompileUnit.getEmittedUnitCount(), unitsBefore);
+
+            // but they are compiled for a context with different options
+            unitsBefore = CompileUnit.getEmittedUnitCount();
+            assertEquals(eval(newSharedCodeCacheContext("-strict"), "<sharedCodeCacheTest>", code), expected);
+            assertTrue(CompileUnit.getEmittedUnitCount() > unitsBefore);
+        } finally {
+            Context.setGlobal(oldGlobal);
+        }
+    }
+
+    // Test that globals linked as constants in one Global don't leak into other Globals of the same Context
+    @Test
+    public void multiGlobalConstantsTest() {
+        final Options options = new Options("nashorn");
+        final Context cx = new Context(options, new ErrorManager(), Thread.currentThread().getContextClassLoader());
+        final Global oldGlobal = Context.getGlobal();
+        try {
+            final Global g1 = cx.createGlobal();
+            final Global g2 = cx.createGlobal();
+            Context.setGlobal(g1);
+            eval(cx, "<multiGlobalConstantsTest1>", "function two() { return 2; }");
+            Context.setGlobal(g2);
+            eval(cx, "<multiGlobalConstantsTest2>", "function two() { return 20; }");
+
+            // the same class, and so the same call sites, are used with both globals
+            final Source source = sourceFor("<multiGlobalConstantsTest>", "String(Math.abs(-1) + two())");
+            for (int i = 0; i < 5; i++) {
+                Context.setGlobal(g1);
+                assertEquals(evalSource(cx, source), "3");
+                Context.setGlobal(g2);
+                assertEquals(evalSource(cx, source), "21");
+            }
+
+            // resetting a global only affects its own Global
+            Context.setGlobal(g1);
+            eval(cx, "<multiGlobalConstantsTest3>", "Math = { abs: function() { return 5; } }");
+            for (int i = 0; i < 5; i++) {
+                assertEquals(evalSource(cx, source), "7");
+                Context.setGlobal(g2);
+                assertEquals(evalSource(cx, source), "21");
+                Context.setGlobal(g1);
+            }
+        } finally {
+            Context.setGlobal(oldGlobal);
+        }
+    }
+
+    private static Context newSharedCodeCacheContext(final String... args) {
+        final Options options = new Options("nashorn");
+        final String[] allArgs = Arrays.copyOf(args, args.length + 1);
+        allArgs[args.length] = "--shared-code-cache";
+        options.process(allArgs);
+        final Context cx = new Context(options, new ErrorManager(), Thread.currentThread().getContextClassLoader());
+        Context.setGlobal(cx.createGlobal());
+        return cx;
+    }
+
+    // A copy of a lazily parsed object shares the values of the original.
+    @Test
+    public void lazyJSONCopyTest() {
+        final Options options = new Options("");
+        final ErrorManager errors = new ErrorManager();
+        final Context cx = new Context(options, errors, Thread.currentThread().getContextClassLoader());
+        final Global oldGlobal = Context.getGlobal();
+        Context.setGlobal(cx.createGlobal());
+        try {
+            final ScriptObject doc = (ScriptObject) JSONFunctions.parseLazily("{ \"a\": { \"b\": 1 }, \"c\": [2, 3] }");
+            final ScriptObject copy = doc.copy();
+            assertSame(copy.get("a"), doc.get("a"));
+            assertSame(doc.get("c"), copy.get("c"));
+        } finally {
+            Context.setGlobal(oldGlobal);
+        }
+    }
+
+    private static Object evalSource(final Context cx, final Source source) {
         final ScriptObject global = Context.getGlobal();
         final ScriptFunction func = cx.compileScript(source, global);
         return func != null ? ScriptRuntime.apply(func, global) : null;
     }
+
+    private static Object eval(final Context cx, final String name, final String code) {
+        return evalSource(cx, sourceFor(name, code));
+    }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.openjdk.nashorn.internal.runtime.test;
+
+import static org.openjdk.nashorn.internal.runtime.PropertyHashMap.EMPTY_HASHMAP;
+
+import org.openjdk.nashorn.internal.runtime.Property;
+import org.openjdk.nashorn.internal.runtime.PropertyHashMap;
+import org.openjdk.nashorn.internal.runtime.SpillProperty;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for PropertyHashMap functionality
+ *
+ * @test
+ * @modules org.openjdk.nashorn/org.openjdk.nashorn.internal.runtime
+ * @run testng org.openjdk.nashorn.internal.runtime.test.PropertyHashMapTest
+ */
+@SuppressWarnings("javadoc")
+public class PropertyHashMapTest {
+
+    private static Property property(final String key, final int slot) {
+        return new SpillProperty(key, 0, slot);
+    }
+
+    private static PropertyHashMap build(final String prefix, final int count) {
+        PropertyHashMap map = EMPTY_HASHMAP;
+        for (int i = 0; i < count; i++) {
+            map = map.immutableAdd(property(prefix + i, i));
+        }
+        return map;
+    }
+
+    private static void assertKeys(final PropertyHashMap map, final String... keys) {
+        final Property[] properties = map.values().toArray(new Property[0]);
+        Assert.assertEquals(properties.length, keys.length);
+        Assert.assertEquals(map.size(), keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            Assert.assertEquals(properties[i].getKey(), keys[i]);
+            Assert.assertSame(map.find(keys[i]), properties[i]);
+        }
+    }
+
+    @Test
+    public void derivedMapsTest() {
+        final PropertyHashMap parent = build("p", 3);
+        final PropertyHashMap first = parent.immutableAdd(property("a", 3));
+        final PropertyHashMap second = parent.immutableAdd(property("b", 3));
+        final PropertyHashMap grandChild = first.immutableAdd(property("c", 4));
+
+        assertKeys(parent, "p0", "p1", "p2");
+        assertKeys(first, "p0", "p1", "p2", "a");
+        assertKeys(second, "p0", "p1", "p2", "b");
+        assertKeys(grandChild, "p0", "p1", "p2", "a", "c");
+        Assert.assertNull(parent.find("a"));
+        Assert.assertNull(first.find("b"));
+        Assert.assertNull(second.find("a"));
+    }
+
+    @Test
+    public void removeAndReplaceTest() {
+        final PropertyHashMap map = build("p", 5);
+        final PropertyHashMap removed = map.immutableRemove("p1");
+        assertKeys(removed, "p0", "p2", "p3", "p4");
+        assertKeys(map, "p0", "p1", "p2", "p3", "p4");
+        assertKeys(map.immutableRemove("x"), "p0", "p1", "p2", "p3", "p4");
+        Assert.assertSame(build("p", 1).immutableRemove("p0"), EMPTY_HASHMAP);
+
+        final Property replacement = property("p2", 7);
+        final PropertyHashMap replaced = map.immutableReplace(map.find("p2"), replacement);
+        assertKeys(replaced, "p0", "p1", "p2", "p3", "p4");
+        Assert.assertSame(replaced.find("p2"), replacement);
+        Assert.assertNotSame(map.find("p2"), replacement);
+
+        final PropertyHashMap readded = map.immutableAdd(property("p1", 5));
+        assertKeys(readded, "p0", "p2", "p3", "p4", "p1");
+    }
+
+    @Test
+    public void largeMapsTest() {
+        final PropertyHashMap small = build("p", 16);
+        final PropertyHashMap large = small.immutableAdd(property("a", 16));
+        final PropertyHashMap larger = large.immutableAdd(property("b", 17));
+        assertKeys(small, "p0", "p1", "p2", "p3", "p4", "p5", "p6", "p7", "p8", "p9", "p10", "p11", "p12", "p13", "p14", "p15");
+        assertKeys(larger, "p0", "p1", "p2", "p3", "p4", "p5", "p6", "p7", "p8", "p9", "p10", "p11", "p12", "p13", "p14", "p15", "a", "b");
+        Assert.assertEquals(large.size(), 17);
+        Assert.assertNull(large.find("b"));
+
+        final PropertyHashMap bulk = build("p", 10).immutableAdd(property("x", 10), property("y", 11), property("z", 12));
+        Assert.assertEquals(bulk.size(), 13);
+        Assert.assertSame(bulk.values().toArray()[12], bulk.find("z"));
+        Assert.assertEquals(build("p", 10).immutableAdd(build("q", 10).values()).size(), 20);
+    }
+}
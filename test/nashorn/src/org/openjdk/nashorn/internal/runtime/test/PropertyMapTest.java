@@ -62,4 +62,47 @@ public class PropertyMapTest {
         Assert.assertFalse(iterator.hasNext());
     }
 
+    private static final class SpillObject extends ScriptObject {
+        SpillObject(final PropertyMap map) {
+            super(map);
+        }
+
+        int getSpillLength() {
+            return objectSpill == null ? 0 : objectSpill.length;
+        }
+    }
+
+    @Test
+    public void expectedSpillLengthTest() {
+        final PropertyMap root = PropertyMap.newMap();
+
+        final SpillObject dictionary = new SpillObject(root);
+        for (int i = 0; i < 300; i++) {
+            dictionary.set("key" + i, i, 0);
+        }
+        Assert.assertTrue(dictionary.getMap().getExpectedSpillLength() >= 300);
+
+        // a large object does not make objects with other properties allocate a large spill
+        final SpillObject small = new SpillObject(root);
+        small.set("a", 1, 0);
+        small.set("b", 2, 0);
+        small.set("c", 3, 0);
+        Assert.assertTrue(small.getSpillLength() < 16, "spill length " + small.getSpillLength());
+        Assert.assertTrue(small.getMap().getExpectedSpillLength() < 16);
+
+        // objects adding the same properties grow their spill beyond the first allocation to the length they will need
+        final SpillObject other = new SpillObject(root);
+        int i = 0;
+        while (other.getSpillLength() <= ScriptObject.SPILL_RATE) {
+            other.set("key" + i, i, 0);
+            i++;
+        }
+        final int spillLength = other.getSpillLength();
+        Assert.assertTrue(spillLength >= 64, "spill length " + spillLength);
+        for (; i < spillLength; i++) {
+            other.set("key" + i, i, 0);
+        }
+        Assert.assertEquals(other.getSpillLength(), spillLength);
+    }
+
 }